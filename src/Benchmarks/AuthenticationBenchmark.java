@@ -0,0 +1,65 @@
+package Benchmarks;
+
+import Common.User.User;
+import ServerApp.AuthenticationSystem.AuthenticationSystem;
+import ServerApp.PersistenceQueue.DurabilityMode;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures AuthenticationSystem.validateCredentials with 1k and 100k users:
+ * a rejected password, which is the username lookup alone, and a successful
+ * login, which also persists the user's online state (the user is logged out
+ * again after each call so the next one is not refused as a double login).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    @Param({"1000", "100000"})
+    public int users;
+
+    private BenchmarkDirectory directory;
+    private PersistenceQueue persistenceQueue;
+    private AuthenticationSystem authenticationSystem;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = new BenchmarkDirectory("authentication-benchmark");
+        persistenceQueue = new PersistenceQueue(DurabilityMode.ASYNC, 5, 1024);
+        authenticationSystem = new AuthenticationSystem(persistenceQueue, directory.resolve("users"));
+        for (int i = 1; i <= users; i++) {
+            authenticationSystem.registerUser(new User(i, "user" + i, "password" + i, false));
+        }
+        persistenceQueue.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        persistenceQueue.close();
+        directory.delete();
+    }
+
+    @Benchmark
+    public User wrongPassword() {
+        int i = ThreadLocalRandom.current().nextInt(users) + 1;
+        return authenticationSystem.validateCredentials("user" + i, "wrong");
+    }
+
+    @Benchmark
+    public void login(Blackhole blackhole) {
+        int i = ThreadLocalRandom.current().nextInt(users) + 1;
+        User user = authenticationSystem.validateCredentials("user" + i, "password" + i);
+        blackhole.consume(user);
+        authenticationSystem.logout(i);
+    }
+}
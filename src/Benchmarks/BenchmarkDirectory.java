@@ -0,0 +1,43 @@
+package Benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * BenchmarkDirectory is a temporary directory the benchmarks keep their user
+ * and chatbox files in, so a run never reads or overwrites the server's own
+ * users/ and chatboxes/ directories.
+ */
+final class BenchmarkDirectory {
+
+    // Attributes
+    private final Path root;
+
+    // Constructor: creates an empty directory under the system temporary directory
+    // INPUT: prefix (String)
+    BenchmarkDirectory(String prefix) {
+        try {
+            this.root = Files.createTempDirectory(prefix);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Returns the path of a subdirectory, as the String the server components take
+    String resolve(String name) {
+        return root.resolve(name).toString();
+    }
+
+    // Deletes the directory and everything written to it
+    void delete() {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            System.err.println("Could not delete " + root + ": " + e.getMessage());
+        }
+    }
+}
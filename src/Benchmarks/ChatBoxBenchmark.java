@@ -0,0 +1,48 @@
+package Benchmarks;
+
+import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures adding a message to a chatbox that already holds a large history,
+ * both the server's numbered append and the client's addMessage of a message
+ * that arrives in order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatBoxBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int history;
+
+    private ChatBox chatBox;
+
+    // Rebuilt every iteration, so the history stays close to its size
+    @Setup(Level.Iteration)
+    public void setUp() {
+        chatBox = new ChatBox("benchmark");
+        for (int i = 0; i < history; i++) {
+            chatBox.appendMessage(new Message(1, "Message " + i));
+        }
+    }
+
+    @Benchmark
+    public long appendMessage() {
+        return chatBox.appendMessage(new Message(1, "Hello"));
+    }
+
+    @Benchmark
+    public long addMessage() {
+        Message message = new Message(1, "Hello");
+        chatBox.addMessage(message);
+        return message.getSequenceNumber();
+    }
+}
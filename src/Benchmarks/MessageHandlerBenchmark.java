@@ -0,0 +1,147 @@
+package Benchmarks;
+
+import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.MessageInterface;
+import Common.Protocol.WireProtocol;
+import Common.User.User;
+import ServerApp.ChatBoxWriter.ChatBoxWriter;
+import ServerApp.ClientHandler.ClientHandler;
+import ServerApp.MessageHandler.MessageHandler;
+import ServerApp.PersistenceQueue.DurabilityMode;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+import ServerApp.StorageManager.PersistenceMode;
+import ServerApp.StorageManager.StorageManager;
+import ServerApp.Transport.Connection;
+import ServerApp.Transport.EncodedMessage;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures MessageHandler.sendMessage from the call to the moment every
+ * participant's connection has been handed the encoded frame: the append on
+ * the chatbox's owner thread, the message log write, and the fan-out. The
+ * connections only count what they are sent, so the network is left out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageHandlerBenchmark {
+
+    // A connection that counts the frames it is sent
+    private static final class CountingConnection implements Connection {
+        private final AtomicLong delivered;
+
+        private CountingConnection(AtomicLong delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void send(MessageInterface message) {
+            delivered.incrementAndGet();
+        }
+
+        @Override
+        public void send(EncodedMessage message) {
+            try {
+                message.getFrame(WireProtocol.CODEC_BINARY); // Encoded once, by the first recipient
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            delivered.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void abort() {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return 0;
+        }
+
+        @Override
+        public String getRemoteAddress() {
+            return "benchmark";
+        }
+    }
+
+    @Param({"2", "50", "500"})
+    public int participants;
+
+    private BenchmarkDirectory directory;
+    private PersistenceQueue persistenceQueue;
+    private StorageManager storageManager;
+    private ChatBoxWriter chatBoxWriter;
+    private MessageHandler messageHandler;
+    private List<User> users;
+    private AtomicLong delivered;
+    private int chatBoxID;
+    private int senderID;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = new BenchmarkDirectory("message-handler-benchmark");
+        persistenceQueue = new PersistenceQueue(DurabilityMode.ASYNC, 5, 256);
+        storageManager = new StorageManager(PersistenceMode.LOG, 0, persistenceQueue, Integer.MAX_VALUE,
+                directory.resolve("chatboxes"));
+        chatBoxWriter = new ChatBoxWriter(Runtime.getRuntime().availableProcessors());
+        ConcurrentHashMap<Integer, User> userDB = new ConcurrentHashMap<>();
+        messageHandler = new MessageHandler(storageManager, chatBoxWriter, userDB, null);
+        delivered = new AtomicLong();
+        users = new ArrayList<>(participants);
+        for (int i = 1; i <= participants; i++) {
+            User user = new User(i, "user" + i, "password", false);
+            userDB.put(i, user);
+            users.add(user);
+            ClientHandler clientHandler = new ClientHandler(new CountingConnection(delivered), null, messageHandler, null);
+            clientHandler.setUser(user);
+            messageHandler.getSessionRegistry().register(i, clientHandler);
+        }
+        senderID = users.get(0).getUserID();
+    }
+
+    // A new chatbox every iteration, so its history does not grow for the whole run
+    @Setup(Level.Iteration)
+    public void createChatBox() {
+        chatBoxID = messageHandler.createChatBox(users, "benchmark").getChatBoxID();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        chatBoxWriter.close();
+        storageManager.close();
+        persistenceQueue.close();
+        directory.delete();
+    }
+
+    @Benchmark
+    public long sendMessage() {
+        long expected = delivered.get() + participants;
+        messageHandler.sendMessage(chatBoxID, new Message(senderID, "Hello, everyone"));
+        while (delivered.get() < expected) {
+            Thread.onSpinWait(); // The push runs on the owner thread once the message is logged
+        }
+        return expected;
+    }
+}
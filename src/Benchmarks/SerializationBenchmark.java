@@ -0,0 +1,68 @@
+package Benchmarks;
+
+import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.MessageInterface;
+import Common.Messages.SendChatBox;
+import Common.Protocol.WireProtocol;
+import Common.User.User;
+import Common.UserSummary.UserSummary;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two wire codecs on SendChatBox, the largest message the server
+ * sends: Java serialization (the codec of older clients) against the binary
+ * codec, encoding a frame and decoding its payload.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    @Param({"10", "500"})
+    public int messages;
+
+    @Param({"SERIALIZED", "BINARY"})
+    public String codec;
+
+    private byte codecID;
+    private SendChatBox sendChatBox;
+    private byte[] frame;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        codecID = "BINARY".equals(codec) ? WireProtocol.CODEC_BINARY : WireProtocol.CODEC_SERIALIZED;
+        List<User> participants = new ArrayList<>();
+        List<UserSummary> users = new ArrayList<>();
+        for (int i = 1; i <= 20; i++) {
+            User user = new User(i, "user" + i, "password", false);
+            participants.add(user);
+            users.add(UserSummary.of(user));
+        }
+        ChatBox chatBox = new ChatBox(participants, "benchmark");
+        for (int i = 0; i < messages; i++) {
+            chatBox.appendMessage(new Message(1 + i % 20, "Message number " + i + " of the benchmark history"));
+        }
+        sendChatBox = new SendChatBox(chatBox, users);
+        frame = WireProtocol.encodeFrame(sendChatBox, codecID);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return WireProtocol.encodeFrame(sendChatBox, codecID);
+    }
+
+    @Benchmark
+    public MessageInterface decode() throws IOException {
+        return WireProtocol.decodePayload(frame, 4, frame.length - 4, codecID);
+    }
+}
@@ -0,0 +1,67 @@
+package Benchmarks;
+
+import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.User.User;
+import ServerApp.PersistenceQueue.DurabilityMode;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+import ServerApp.StorageManager.PersistenceMode;
+import ServerApp.StorageManager.StorageManager;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures StorageManager.storeChatBox, which writes the whole chatbox file,
+ * for chatboxes of growing history under each durability mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageManagerBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int messages;
+
+    @Param({"SYNC", "GROUP_COMMIT", "ASYNC"})
+    public DurabilityMode durability;
+
+    private BenchmarkDirectory directory;
+    private PersistenceQueue persistenceQueue;
+    private StorageManager storageManager;
+    private ChatBox chatBox;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        directory = new BenchmarkDirectory("storage-manager-benchmark");
+        persistenceQueue = new PersistenceQueue(durability, 5, 256);
+        storageManager = new StorageManager(PersistenceMode.SNAPSHOT, 0, persistenceQueue, Integer.MAX_VALUE,
+                directory.resolve("chatboxes"));
+        List<User> participants = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            participants.add(new User(i, "user" + i, "password", false));
+        }
+        chatBox = new ChatBox(participants, "benchmark");
+        for (int i = 0; i < messages; i++) {
+            chatBox.appendMessage(new Message(1 + i % 10, "Message number " + i + " of the benchmark history"));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        storageManager.close();
+        persistenceQueue.close();
+        directory.delete();
+    }
+
+    @Benchmark
+    public boolean storeChatBox() {
+        return storageManager.storeChatBox(chatBox);
+    }
+}
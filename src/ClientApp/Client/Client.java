@@ -1,5 +1,9 @@
 package ClientApp.Client;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
@@ -17,18 +21,38 @@ import Common.MessageType;
 import Common.Admin.Admin;
 import Common.Messages.*;
 import Common.Message.Message;
+import Common.Protocol.WireProtocol;
 import Common.User.User;
+import Common.UserDirectory.UserDirectory;
+import Common.UserSummary.UserSummary;
 
 import javax.swing.*;
 
 public class Client {
+    // Wire protocol, negotiated with the server on connect (-Dclient.protocol=binary|serialized|legacy).
+    // "legacy" is the original Java object stream, which the NIO server transport does not accept.
+    private static final String PROTOCOL = System.getProperty("client.protocol", "binary");
+    private static final boolean FRAMED = !PROTOCOL.equalsIgnoreCase("legacy");
+    private static final byte CODEC = PROTOCOL.equalsIgnoreCase("serialized")
+            ? WireProtocol.CODEC_SERIALIZED : WireProtocol.CODEC_BINARY;
+    // Number of messages fetched per page of chat history
+    public static final int PAGE_SIZE = 50;
     private boolean loggedIn = false;
     private final BlockingQueue<MessageInterface> inboundRequestQueue;
     private final BlockingQueue<MessageInterface> outboundResponseQueue;
     private User userData;
     private final Gui gui;
+    // Highest message sequence number received per chatbox, used to detect missed pushes
+    private final Map<Integer, Long> lastSequenceNumbers = new HashMap<>();
+    // Chatboxes with a catch-up fetch under way, and the highest sequence number pushed meanwhile;
+    // further pushes wait for that fetch instead of asking for the same messages again
+    private final Map<Integer, Long> pendingFetches = new HashMap<>();
+    // Names and ban state of the users chatboxes refer to by ID
+    private final UserDirectory userDirectory = new UserDirectory();
     private ObjectOutputStream outObj = null;
     private ObjectInputStream inObj = null;
+    private DataOutputStream frameOut = null;
+    private DataInputStream frameIn = null;
     private Socket socket = null;
 
     public Client() {
@@ -56,14 +80,26 @@ public class Client {
                     case MessageType.RETURN_USER_LIST:
                         handleReturnUserList((SendUserList) response);
                         break;
+                    case MessageType.RETURN_USER_CHANGES:
+                        handleReturnUserChanges((SendUserChanges) response);
+                        break;
                     case MessageType.SEND_MESSAGE:
                         handleSendMessage((SendMessage) response);
                         break;
                     case MessageType.RETURN_CHATBOX_LOG:
                         handleReturnChatBoxLog((SendChatLog) response);
                         break;
-                    case MessageType.RETURN_CHATBOX_LIST:
-                        handleReturnChatBoxList((SendChatBoxList) response);
+                    case MessageType.RETURN_CHATBOX_LOG_CHUNK:
+                        handleReturnChatLogChunk((SendChatLogChunk) response);
+                        break;
+                    case MessageType.RETURN_CHATBOX_SUMMARIES:
+                        gui.updateChatBoxSummaries((SendChatBoxSummaries) response);
+                        break;
+                    case MessageType.RETURN_MESSAGE_PAGE:
+                        handleReturnMessagePage((SendMessagePage) response);
+                        break;
+                    case MessageType.RETURN_SERVER_METRICS:
+                        gui.showServerMetrics(((SendServerMetrics) response).report());
                         break;
                     case MessageType.LOGOUT_RESPONSE:
                         JOptionPane.showMessageDialog(null, "Logout successful");
@@ -81,11 +117,6 @@ public class Client {
 
     // Add methods to handle the server responses
 
-    private void handleReturnChatBoxList(SendChatBoxList sendChatBoxList) {
-        List<ChatBox> chatBoxes = sendChatBoxList.getChatBoxes();
-        gui.updateChatBoxList(chatBoxes);
-    }
-
     
     // Handle Notification messages
     private void handleNotification(Notification notification) {
@@ -93,18 +124,21 @@ public class Client {
         JOptionPane.showMessageDialog(null, text, "Notification", JOptionPane.INFORMATION_MESSAGE);
 
         if (text.contains("User banned successfully") || text.contains("User unbanned successfully")) {
-            // Request updated user list
-            queueMessage(new AskUserList());
+            // Request the users changed since the last sync (the banned user)
+            requestUserChanges();
             // Also, request the current chatbox to update participants
             if (gui.getChatBox() != null) {
-                queueMessage(new AskChatBox(gui.getChatBox().getChatBoxID()));
+                queueMessage(new AskMessagePage(gui.getChatBox().getChatBoxID(), 0, true, PAGE_SIZE));
             }
         }
     }
 
     // Handle SendChatBox messages
     private void handleReturnChatBox(SendChatBox sendChatBox) {
+        userDirectory.putAll(sendChatBox.users());
         ChatBox chatBox = sendChatBox.chatBox();
+        lastSequenceNumbers.put(chatBox.getChatBoxID(), chatBox.getLastSequenceNumber());
+        pendingFetches.remove(chatBox.getChatBoxID());
         gui.updateChatBox(chatBox);
         if (chatBox.isHidden()) {
             gui.clearMessages();
@@ -114,25 +148,108 @@ public class Client {
         }
     }
 
+    // Handle SendMessagePage messages
+    private void handleReturnMessagePage(SendMessagePage page) {
+        userDirectory.putAll(page.users());
+        ChatBox chatBox = page.chatBox();
+        int chatBoxID = chatBox.getChatBoxID();
+        long previous = lastSequenceNumbers.getOrDefault(chatBoxID, 0L);
+        lastSequenceNumbers.put(chatBoxID, Math.max(previous, chatBox.getLastSequenceNumber()));
+        if (!page.older()) {
+            // Messages missed after a gap: append the ones not seen yet and keep catching up
+            ChatBox known = gui.getChatBox(chatBoxID);
+            if (known != null) {
+                for (Message message : chatBox.getMessages()) {
+                    if (message.getSequenceNumber() > previous) {
+                        gui.appendMessage(known, message);
+                    }
+                }
+            }
+            if (page.hasMore()) {
+                queueMessage(new AskMessagePage(chatBoxID, lastSequenceNumbers.get(chatBoxID), false, PAGE_SIZE));
+            } else {
+                finishFetch(chatBoxID);
+            }
+        } else if (page.cursor() > 0) {
+            gui.prependMessages(chatBox, page.hasMore()); // Older history of the open chatbox
+        } else {
+            // Newest messages: replaces what the client holds, like a full chatbox
+            finishFetch(chatBoxID);
+            gui.updateChatBox(chatBox);
+            if (chatBox.isHidden()) {
+                gui.clearMessages();
+            } else if (gui.getChatBox() != null && gui.getChatBox().getChatBoxID() == chatBoxID) {
+                gui.clearMessages();
+                gui.addAllMessages(chatBox);
+                gui.setOlderMessages(chatBox, page.hasMore());
+            }
+        }
+    }
+
     // Handle SendUserList messages
     private void handleReturnUserList(SendUserList sendUserList) {
         List<User> userList = sendUserList.userList();
+        userList.forEach(user -> userDirectory.put(UserSummary.of(user)));
         SwingUtilities.invokeLater(() -> gui.updateUserList(userList));
         // Process user list as needed
     }
 
-    // Handle SendMessage messages
+    // Handle SendUserChanges messages: updates the local user directory and the user lists shown
+    private void handleReturnUserChanges(SendUserChanges changes) {
+        userDirectory.applyChanges(changes.epoch(), changes.version(), changes.full(), changes.users(),
+                changes.removedUserIDs());
+        List<User> userList = new ArrayList<>();
+        for (UserSummary summary : userDirectory.getUsers()) {
+            User listedUser = new User(summary.userID(), summary.username(), null, summary.banned());
+            listedUser.setOnline(summary.online());
+            userList.add(listedUser);
+        }
+        SwingUtilities.invokeLater(() -> gui.updateUserList(userList));
+    }
+
+    // Asks the server for the users changed since the local user directory was last synced
+    // (every user on the first sync)
+    public void requestUserChanges() {
+        queueMessage(new AskUserChanges(userDirectory.getEpoch(), userDirectory.getVersion()));
+    }
+
+    // Handle SendMessage messages (a single new message pushed by the server)
     private void handleSendMessage(SendMessage sendMessage) {
         Message message = sendMessage.message();
         int chatBoxID = sendMessage.chatBoxID();
-        if (gui.getChatBox().getChatBoxID() == chatBoxID) {
-            gui.getChatBox().addMessage(message);
-            gui.addMessage(message);
-        } else {
-            gui.getChatBox(chatBoxID).addMessage(message);
+        ChatBox chatBox = gui.getChatBox(chatBoxID);
+        long expected = lastSequenceNumbers.getOrDefault(chatBoxID, 0L) + 1;
+        if (message.getSequenceNumber() < expected) {
+            return; // Already included in a full chatbox we received
+        }
+        if (pendingFetches.containsKey(chatBoxID)) {
+            pendingFetches.merge(chatBoxID, message.getSequenceNumber(), Math::max);
+            return; // Left to the fetch under way (see finishFetch)
+        }
+        if (chatBox == null || (message.getSequenceNumber() != expected && !lastSequenceNumbers.containsKey(chatBoxID))) {
+            // Unknown chatbox or history never fetched: fetch its newest messages
+            pendingFetches.put(chatBoxID, message.getSequenceNumber());
+            queueMessage(new AskMessagePage(chatBoxID, 0, true, PAGE_SIZE));
+            return;
+        }
+        if (message.getSequenceNumber() != expected) {
+            // Missed messages: fetch the ones after the last message received
+            pendingFetches.put(chatBoxID, message.getSequenceNumber());
+            queueMessage(new AskMessagePage(chatBoxID, expected - 1, false, PAGE_SIZE));
+            return;
+        }
+        lastSequenceNumbers.put(chatBoxID, message.getSequenceNumber());
+        gui.appendMessage(chatBox, message);
+    }
+
+    // Ends the catch-up fetch of a chatbox, or fetches again if a message pushed meanwhile is still missing
+    private void finishFetch(int chatBoxID) {
+        Long pushed = pendingFetches.remove(chatBoxID);
+        long last = lastSequenceNumbers.getOrDefault(chatBoxID, 0L);
+        if (pushed != null && pushed > last) {
+            pendingFetches.put(chatBoxID, pushed);
+            queueMessage(new AskMessagePage(chatBoxID, last, false, PAGE_SIZE));
         }
-        // Add the message to the appropriate chatbox
-        // gui.addMessageToChatBox(message, chatBoxID);
     }
 
     // Handle SendChatLog messages
@@ -141,9 +258,20 @@ public class Client {
         gui.displayChatLog(chatBoxLog);
     }
 
+    // Handle a chunk of a chat log: shows it and asks for the next one while the log is still shown
+    private void handleReturnChatLogChunk(SendChatLogChunk chunk) {
+        boolean shown = gui.appendChatLog(chunk.chatBoxID(), chunk.chatLog(), chunk.cursor() == 0);
+        if (shown && !chunk.complete()) {
+            queueMessage(new AskChatLogChunk(chunk.chatBoxID(), chunk.nextCursor()));
+        }
+    }
+
 
     private void receiveLoginResponse(LoginResponse loginResponse) {
         userData = loginResponse.user();
+        if (userData != null) {
+            userDirectory.put(UserSummary.of(userData));
+        }
 
         // Add this print statement to confirm user type
         System.out.println("Logged in user is admin: " + (userData instanceof Admin));
@@ -164,14 +292,23 @@ public class Client {
 
     }
 
+    // Returns the summaries of the users known to this client
+    public UserDirectory getUserDirectory() {
+        return userDirectory;
+    }
+
 
     public void messageSender() {
         while (!Thread.currentThread().isInterrupted()) {
             MessageInterface message;
             try {
                 message = outboundResponseQueue.take();
-                outObj.reset();
-                outObj.writeObject(message);
+                if (FRAMED) {
+                    WireProtocol.writeFrame(frameOut, message, CODEC);
+                } else {
+                    outObj.reset();
+                    outObj.writeObject(message);
+                }
 
             } catch (IOException | InterruptedException e) {
 //                throw new RuntimeException(e);
@@ -183,7 +320,14 @@ public class Client {
     public void messageReceiver() {
         while (!Thread.interrupted()) {
             try {
-                inboundRequestQueue.add((MessageInterface) inObj.readObject());
+                MessageInterface message = FRAMED ? WireProtocol.readFrame(frameIn, CODEC)
+                        : (MessageInterface) inObj.readObject();
+                if (message.getType() == MessageType.PING) {
+                    // Answered here, so a heartbeat is not held up behind a dialog
+                    queueMessage(new Pong(((Ping) message).sentNanos()));
+                } else {
+                    inboundRequestQueue.add(message);
+                }
             } catch (IOException | ClassNotFoundException e) {
 //                throw new RuntimeException(e);
             }
@@ -205,9 +349,15 @@ public class Client {
             client.socket = new Socket(serverIP, port);
             System.out.println("Connected to the server.");
 
-            // Set up object streams
-            client.outObj = new ObjectOutputStream(client.socket.getOutputStream());
-            client.inObj = new ObjectInputStream(client.socket.getInputStream());
+            // Set up the framed protocol, or plain object streams for the legacy protocol
+            if (FRAMED) {
+                client.frameOut = new DataOutputStream(new BufferedOutputStream(client.socket.getOutputStream()));
+                client.frameIn = new DataInputStream(new BufferedInputStream(client.socket.getInputStream()));
+                WireProtocol.writeHandshake(client.frameOut, CODEC);
+            } else {
+                client.outObj = new ObjectOutputStream(client.socket.getOutputStream());
+                client.inObj = new ObjectInputStream(client.socket.getInputStream());
+            }
 
             senderThread = new Thread(null, client::messageSender, "SenderThread");
             receiverThread = new Thread(null, client::messageReceiver, "ReceiverThread");
@@ -233,9 +383,8 @@ public class Client {
                 }
             }
             Thread.sleep(500);
-            client.queueMessage(new AskChatBox(client.gui.getChatBox().getChatBoxID()));
-            SendChatBox response = (SendChatBox) client.inboundRequestQueue.take();
-            client.handleReturnChatBox(response);
+            // The newest messages are handled by handleServerResponses, since pushed messages may arrive first
+            client.queueMessage(new AskMessagePage(client.gui.getChatBox().getChatBoxID(), 0, true, PAGE_SIZE));
 
 
             client.gui.showMain();
@@ -261,6 +410,12 @@ public class Client {
                 if (client.inObj != null) {
                     client.inObj.close();
                 }
+                if (client.frameOut != null) {
+                    client.frameOut.close();
+                }
+                if (client.frameIn != null) {
+                    client.frameIn.close();
+                }
                 if (client.socket != null) {
                     client.socket.close();
                 }
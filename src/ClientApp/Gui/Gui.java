@@ -2,6 +2,7 @@ package ClientApp.Gui;
 
 import javax.swing.*;
 import java.time.*;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
 import javax.swing.event.ListSelectionEvent;
@@ -10,9 +11,11 @@ import javax.swing.event.ListSelectionListener;
 import ClientApp.Client.Client;
 import Common.Admin.Admin;
 import Common.ChatBox.ChatBox;
+import Common.ChatBoxSummary.ChatBoxSummary;
 import Common.Message.Message;
 import Common.Messages.*;
 import Common.User.User;
+import Common.UserSummary.UserSummary;
 
 import java.awt.*;
 import java.awt.event.ActionEvent;
@@ -32,7 +35,9 @@ public class Gui {
     private final CreateChatBoxDialog chatBoxDialog;
     private final AdminOptionsWindow adminOptionsWindow;
     private final DefaultListModel<User> userModel;
-    private final List<ChatBox> allChatBox = new ArrayList<>();
+    private final List<ChatBoxSummary> chatBoxSummaries = new ArrayList<>(); // Pages loaded for the admin lists
+    private int chatBoxTotal; // Number of chatboxes on the server
+    private static final int SUMMARY_PAGE_SIZE = 100;
     // Define color scheme
     private static final Color BACKGROUND_COLOR = new Color(230, 230, 250); // Lavender
     private static final Color PANEL_COLOR = new Color(230, 230, 250); // Lavender
@@ -101,9 +106,38 @@ public class Gui {
         }
     }
 
-    public void updateChatBoxList(List<ChatBox> chatBoxes) {
-            allChatBox.clear();
-            allChatBox.addAll(chatBoxes);
+    // Shows a snapshot of the server metrics (admin)
+    public void showServerMetrics(String report) {
+        JTextArea reportArea = new JTextArea(report, 25, 100);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        JOptionPane.showMessageDialog(adminOptionsWindow, new JScrollPane(reportArea), "Server Metrics",
+                JOptionPane.PLAIN_MESSAGE);
+    }
+
+    // Adds a chunk of a chat log to the chat log dialog
+    // OUTPUT: true if the dialog still shows the log of that chatbox
+    public boolean appendChatLog(int chatBoxID, String chatLog, boolean first) {
+        if (adminOptionsWindow != null && adminOptionsWindow.getChatLogDialog() != null) {
+            return adminOptionsWindow.getChatLogDialog().appendChatLog(chatBoxID, chatLog, first);
+        }
+        return false;
+    }
+
+    // Adds a page of chatbox summaries to the admin lists; the first page replaces what was loaded
+    public void updateChatBoxSummaries(SendChatBoxSummaries page) {
+        SwingUtilities.invokeLater(() -> {
+            if (page.offset() == 0) {
+                chatBoxSummaries.clear();
+            }
+            if (page.offset() == chatBoxSummaries.size()) {
+                chatBoxSummaries.addAll(page.summaries());
+            }
+            chatBoxTotal = page.total();
+            if (adminOptionsWindow != null) {
+                adminOptionsWindow.refreshChatBoxSummaries();
+            }
+        });
     }
 
     // Method to get connection info from the user
@@ -126,7 +160,7 @@ public class Gui {
     }
 
     public void showCreateChat() {
-        client.queueMessage(new AskUserList());
+        client.requestUserChanges();
         SwingUtilities.invokeLater(() -> {
             chatBoxDialog.setVisible(true);
         });
@@ -186,27 +220,71 @@ public class Gui {
         if (mainWindow.chatBox == null) {
             return;
         }
-        User user = idToUser(message.getSenderID(), mainWindow.chatBox);
-        String resolvedUsername;
+        final String formatted = formatMessage(message, mainWindow.chatBox);
+        SwingUtilities.invokeLater(() -> mainWindow.chatModel.addElement(formatted));
+    }
+
+    // Inserts a page of older messages above the ones shown, if the page is for the open chatbox
+    // INPUT: page (ChatBox) holding the older messages, hasMore (boolean) whether there is older history still
+    // OUTPUT: none
+    public void prependMessages(ChatBox page, boolean hasMore) {
+        SwingUtilities.invokeLater(() -> {
+            ChatBox chatBox = mainWindow.chatBox;
+            if (chatBox == null || chatBox.getChatBoxID() != page.getChatBoxID()) {
+                return;
+            }
+            int index = 0;
+            for (Message message : page.getMessages()) {
+                chatBox.addMessage(message); // Older than the messages held, so the list order is unchanged
+                mainWindow.chatModel.add(index++, formatMessage(message, chatBox));
+            }
+            setOlderMessages(page, hasMore);
+        });
+    }
+
+    // Remembers where the history shown starts and whether older messages can be loaded
+    // INPUT: page (ChatBox) whose oldest message is the oldest shown, hasMore (boolean)
+    // OUTPUT: none
+    public void setOlderMessages(ChatBox page, boolean hasMore) {
+        long oldest = page.getMessages().stream().mapToLong(Message::getSequenceNumber).min().orElse(0);
+        SwingUtilities.invokeLater(() -> {
+            if (oldest > 0) {
+                mainWindow.oldestSequenceNumber = oldest;
+            }
+            mainWindow.olderButton.setEnabled(hasMore);
+        });
+    }
+
+    // Formats a message for the chat area
+    private String formatMessage(Message message, ChatBox chatBox) {
+        UserSummary user = client.getUserDirectory().get(message.getSenderID());
+        String displayUsername;
         if (user == null) {
-            resolvedUsername = String.valueOf(message.getSenderID());
+            displayUsername = String.valueOf(message.getSenderID());
         } else {
-            resolvedUsername = user.getUsername();
-            if (user.isBanned()) {
-                resolvedUsername += " (banned)";
+            displayUsername = user.username();
+            if (user.banned()) {
+                displayUsername += " (banned)";
             }
         }
-        final String displayUsername = resolvedUsername;
+        return "<html><b> &thinsp " + displayUsername
+                + "</b><font size=\"3\" color=\"gray\">&thinsp "
+                + timeFormat(message.getTimestamp())
+                + "</font>"
+                + "<p style=\"width: 500px; margin-left:10px;\">"
+                + message.toString().replace("\n", "<br>")
+                + "</p><br></html>";
+    }
+
+    // Appends a pushed message to a chatbox and moves the chatbox to its new place in the list
+    public void appendMessage(ChatBox chatBox, Message message) {
         SwingUtilities.invokeLater(() -> {
-            mainWindow.chatModel
-                    .addElement("<html><b> &thinsp " + displayUsername
-                            + "</b><font size=\"3\" color=\"gray\">&thinsp "
-                            + timeFormat(message.getTimestamp())
-                            + "</font>"
-                            + "<p style=\"width: 500px; margin-left:10px;\">"
-                            + message.toString().replace("\n", "<br>")
-                            + "</p><br></html>"
-                    );
+            treeListModel.remove(chatBox); // Remove before lastUpdated changes its sort position
+            chatBox.addMessage(message);
+            treeListModel.add(chatBox);
+            if (mainWindow.chatBox != null && mainWindow.chatBox.getChatBoxID() == chatBox.getChatBoxID()) {
+                addMessage(message);
+            }
         });
     }
 
@@ -255,13 +333,8 @@ public class Gui {
                 .orElse(null);
     }
 
-    public User idToUser(int userId, ChatBox chatBox) {
-        for (var i : chatBox.getParticipantsList()) {
-            if (i.getUserID() == userId) {
-                return i;
-            }
-        }
-        return null;
+    public UserSummary idToUser(int userId) {
+        return client.getUserDirectory().get(userId);
     }
 
     public void show() {
@@ -276,7 +349,7 @@ public class Gui {
 
     // Show Admin Options window
     public void showAdminOptions() {
-        client.queueMessage(new AskUserList());
+        client.requestUserChanges();
         SwingUtilities.invokeLater(() -> {
             adminOptionsWindow.setVisible(true);
         });
@@ -372,6 +445,8 @@ public class Gui {
         private final List<JMenuItem> menuItems;
         private final JPanel rightPanel;
         private final JLabel chatLabel;
+        private final JButton olderButton;
+        private long oldestSequenceNumber; // Sequence number of the oldest message shown
 
         public MainWindow() {
             frame.setSize(600, 500);
@@ -400,6 +475,19 @@ public class Gui {
                 chatLabel.setForeground(LABEL_COLOR);
                 chatLabel.setBackground(PANEL_COLOR);
                 chatLabel.setOpaque(true);
+
+                // Fetches the page of history before the oldest message shown
+                olderButton = new JButton("Load older messages");
+                olderButton.setBackground(BUTTON_COLOR);
+                olderButton.setFont(new Font("Arial", Font.PLAIN, 12));
+                olderButton.setEnabled(false);
+                olderButton.addActionListener(e -> {
+                    if (chatBox != null) {
+                        olderButton.setEnabled(false);
+                        client.queueMessage(new AskMessagePage(chatBox.getChatBoxID(), oldestSequenceNumber, true,
+                                Client.PAGE_SIZE));
+                    }
+                });
             }
 
             // Create the message input field
@@ -499,7 +587,11 @@ public class Gui {
             panel.setBackground(BACKGROUND_COLOR);
 
             rightPanel.setLayout(new BorderLayout());
-            rightPanel.add(chatLabel, BorderLayout.NORTH);
+            JPanel chatHeader = new JPanel(new BorderLayout());
+            chatHeader.setBackground(PANEL_COLOR);
+            chatHeader.add(chatLabel, BorderLayout.CENTER);
+            chatHeader.add(olderButton, BorderLayout.EAST);
+            rightPanel.add(chatHeader, BorderLayout.NORTH);
             rightPanel.add(chatScrollPane, BorderLayout.CENTER);
 
             panel.add(menuBar, BorderLayout.NORTH);
@@ -517,7 +609,8 @@ public class Gui {
             if (this.chatBox != chatBox) {
                 setChatBox(chatBox);
                 clearMessages();
-                client.queueMessage(new AskChatBox(chatBox.getChatBoxID()));
+                olderButton.setEnabled(false);
+                client.queueMessage(new AskMessagePage(chatBox.getChatBoxID(), 0, true, Client.PAGE_SIZE));
             }
 
             // Disable message input for system chatbox if user is not an admin
@@ -575,6 +668,31 @@ public class Gui {
         }
     }
 
+    // Shows a chatbox summary with its size and last activity
+    public class ChatBoxSummaryCellRenderer extends DefaultListCellRenderer {
+        @Override
+        public Component getListCellRendererComponent(JList<?> list,
+                                                      Object value,
+                                                      int index,
+                                                      boolean isSelected,
+                                                      boolean cellHasFocus) {
+            JLabel label = (JLabel) super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+
+            if (value instanceof ChatBoxSummary summary) {
+                String lastActive = summary.lastUpdated() != null
+                        ? summary.lastUpdated().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")) : "never";
+                label.setText(summary.name() + "  -  " + summary.messageCount() + " messages, "
+                        + summary.participantCount() + " participants, last active " + lastActive
+                        + (summary.hidden() ? " (hidden)" : ""));
+                label.setFont(new Font("Arial", Font.PLAIN, 14));
+                label.setOpaque(true);
+                label.setBackground(isSelected ? BUTTON_COLOR : PANEL_COLOR);
+                label.setForeground(TEXT_COLOR);
+            }
+            return label;
+        }
+    }
+
     // Inner class for the connection window
     private class ConnectionWindow {
         private final JFrame frame;
@@ -1015,6 +1133,7 @@ public class Gui {
         private JButton createUserButton;
         private JButton hideChatBoxButton; // Add Hide ChatBox button
         private JButton manageChatBoxButton; // Add Unhide ChatBox button
+        private JButton serverMetricsButton;
         private JList<User> users;
         private JLabel prompt;
         private int[] userListIndex;
@@ -1036,8 +1155,9 @@ public class Gui {
             this.setLocationRelativeTo(null);
         }
 
-        public void showChatLogDialog(List<ChatBox> chatBoxes) {
-            chatLogDialog = new ChatLogDialog(this, chatBoxes, client);
+        public void showChatLogDialog() {
+            chatLogDialog = new ChatLogDialog(this, client);
+            chatLogDialog.showSummaries(chatBoxSummaries, chatBoxTotal);
             chatLogDialog.setVisible(true);
         }
 
@@ -1045,21 +1165,52 @@ public class Gui {
             return chatLogDialog;
         }
 
-        public void showChatBoxListDialog(List<ChatBox> chatBoxes) {
-            chatBoxListDialog = new ChatBoxListDialog(this, chatBoxes, client);
+        public void showChatBoxListDialog() {
+            chatBoxListDialog = new ChatBoxListDialog(this, client);
+            chatBoxListDialog.showSummaries(chatBoxSummaries, chatBoxTotal);
             chatBoxListDialog.setVisible(true);
         }
 
+        // Shows the loaded chatbox summaries in the open chatbox dialogs
+        public void refreshChatBoxSummaries() {
+            if (chatLogDialog != null && chatLogDialog.isDisplayable()) {
+                chatLogDialog.showSummaries(chatBoxSummaries, chatBoxTotal);
+            }
+            if (chatBoxListDialog != null && chatBoxListDialog.isDisplayable()) {
+                chatBoxListDialog.showSummaries(chatBoxSummaries, chatBoxTotal);
+            }
+        }
+
+        // Fills a chatbox list with summaries, keeping the selection, and enables loading more if some are missing
+        private static void fillSummaryList(JList<ChatBoxSummary> list, DefaultListModel<ChatBoxSummary> model,
+                                            JButton moreButton, List<ChatBoxSummary> summaries, int total) {
+            ChatBoxSummary selected = list.getSelectedValue();
+            model.clear();
+            model.addAll(summaries);
+            if (selected != null) {
+                for (int i = 0; i < model.size(); i++) {
+                    if (model.get(i).chatBoxID() == selected.chatBoxID()) {
+                        list.setSelectedIndex(i);
+                        break;
+                    }
+                }
+            }
+            moreButton.setEnabled(summaries.size() < total);
+        }
+
         // Inner class for ChatLogDialog
         public class ChatLogDialog extends JDialog {
-            private final JList<ChatBox> chatBoxList;
-            private final DefaultListModel<ChatBox> chatBoxListModel;
+            private final JList<ChatBoxSummary> chatBoxList;
+            private final DefaultListModel<ChatBoxSummary> chatBoxListModel;
             private final JTextArea chatLogArea;
             private final JButton getLogButton;
+            private final JButton exportButton;
+            private final JButton moreButton;
             private final JButton closeButton;
             private final Client client;
+            private volatile int shownChatBoxID = -1; // Chatbox whose log is being received, -1 if none
 
-            public ChatLogDialog(AdminOptionsWindow adminOptionsWindow, List<ChatBox> chatBoxes, Client client) {
+            public ChatLogDialog(AdminOptionsWindow adminOptionsWindow, Client client) {
                 super(adminOptionsWindow, "Chat Logs", true);
                 this.client = client;
 
@@ -1067,12 +1218,11 @@ public class Gui {
                 getContentPane().setBackground(BACKGROUND_COLOR);
 
                 chatBoxListModel = new DefaultListModel<>();
-                chatBoxListModel.addAll(chatBoxes);
 
                 chatBoxList = new JList<>(chatBoxListModel);
                 chatBoxList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
                 chatBoxList.setFont(new Font("Arial", Font.PLAIN, 14));
-                chatBoxList.setCellRenderer(new ChatBoxCellRenderer());
+                chatBoxList.setCellRenderer(new ChatBoxSummaryCellRenderer());
 
                 chatLogArea = new JTextArea();
                 chatLogArea.setEditable(false);
@@ -1084,6 +1234,17 @@ public class Gui {
                 getLogButton.setFont(new Font("Arial", Font.BOLD, 14));
                 getLogButton.addActionListener(e -> requestChatLog());
 
+                exportButton = new JButton("Export to Server File");
+                exportButton.setBackground(BUTTON_COLOR);
+                exportButton.setFont(new Font("Arial", Font.BOLD, 14));
+                exportButton.addActionListener(e -> requestExport());
+
+                moreButton = new JButton("More ChatBoxes");
+                moreButton.setBackground(BUTTON_COLOR);
+                moreButton.setFont(new Font("Arial", Font.BOLD, 14));
+                moreButton.addActionListener(e -> client.queueMessage(
+                        new AskChatBoxSummaries(chatBoxListModel.size(), SUMMARY_PAGE_SIZE)));
+
                 closeButton = new JButton("Close");
                 closeButton.setBackground(BUTTON_COLOR);
                 closeButton.setFont(new Font("Arial", Font.BOLD, 14));
@@ -1092,20 +1253,37 @@ public class Gui {
                 JPanel buttonPanel = new JPanel();
                 buttonPanel.setBackground(BACKGROUND_COLOR);
                 buttonPanel.add(getLogButton);
+                buttonPanel.add(exportButton);
+                buttonPanel.add(moreButton);
                 buttonPanel.add(closeButton);
 
                 add(new JScrollPane(chatBoxList), BorderLayout.WEST);
                 add(new JScrollPane(chatLogArea), BorderLayout.CENTER);
                 add(buttonPanel, BorderLayout.SOUTH);
 
-                setSize(600, 400);
+                setSize(800, 400);
                 setLocationRelativeTo(adminOptionsWindow);
             }
 
+            // Shows the chatbox summaries loaded so far (on the event dispatch thread)
+            public void showSummaries(List<ChatBoxSummary> summaries, int total) {
+                fillSummaryList(chatBoxList, chatBoxListModel, moreButton, summaries, total);
+            }
+
             private void requestChatLog() {
-                ChatBox selectedChatBox = chatBoxList.getSelectedValue();
+                ChatBoxSummary selectedChatBox = chatBoxList.getSelectedValue();
                 if (selectedChatBox != null) {
-                    client.queueMessage(new AskChatLog(selectedChatBox.getChatBoxID()));
+                    shownChatBoxID = selectedChatBox.chatBoxID();
+                    client.queueMessage(new AskChatLog(selectedChatBox.chatBoxID()));
+                } else {
+                    JOptionPane.showMessageDialog(this, "Please select a chatbox.", "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+
+            private void requestExport() {
+                ChatBoxSummary selectedChatBox = chatBoxList.getSelectedValue();
+                if (selectedChatBox != null) {
+                    client.queueMessage(new ExportChatLog(selectedChatBox.chatBoxID()));
                 } else {
                     JOptionPane.showMessageDialog(this, "Please select a chatbox.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -1114,18 +1292,35 @@ public class Gui {
             public void displayChatLog(String chatLog) {
                 SwingUtilities.invokeLater(() -> chatLogArea.setText(chatLog));
             }
+
+            // Shows a chunk of the log being received; the first chunk replaces what was shown
+            // OUTPUT: false once the dialog is closed or shows the log of another chatbox
+            public boolean appendChatLog(int chatBoxID, String chatLog, boolean first) {
+                if (!isDisplayable() || chatBoxID != shownChatBoxID) {
+                    return false;
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (first) {
+                        chatLogArea.setText(chatLog);
+                    } else {
+                        chatLogArea.append(chatLog);
+                    }
+                });
+                return true;
+            }
         }
 
         // ChatBoxListDialog class for Hide/Unhide ChatBox
         public class ChatBoxListDialog extends JDialog {
-            private final JList<ChatBox> chatBoxList;
-            private final DefaultListModel<ChatBox> chatBoxListModel;
+            private final JList<ChatBoxSummary> chatBoxList;
+            private final DefaultListModel<ChatBoxSummary> chatBoxListModel;
             private final JButton hideButton;
             private final JButton unhideButton;
+            private final JButton moreButton;
             private final JButton closeButton;
             private final Client client;
 
-            public ChatBoxListDialog(AdminOptionsWindow adminOptionsWindow, List<ChatBox> chatBoxes, Client client) {
+            public ChatBoxListDialog(AdminOptionsWindow adminOptionsWindow, Client client) {
                 super(adminOptionsWindow, "Manage ChatBoxes", true);
                 this.client = client;
 
@@ -1133,12 +1328,11 @@ public class Gui {
                 getContentPane().setBackground(BACKGROUND_COLOR);
 
                 chatBoxListModel = new DefaultListModel<>();
-                chatBoxListModel.addAll(chatBoxes);
 
                 chatBoxList = new JList<>(chatBoxListModel);
                 chatBoxList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
                 chatBoxList.setFont(new Font("Arial", Font.PLAIN, 14));
-                chatBoxList.setCellRenderer(new ChatBoxCellRenderer());
+                chatBoxList.setCellRenderer(new ChatBoxSummaryCellRenderer());
 
                 hideButton = new JButton("Hide ChatBox");
                 hideButton.setBackground(BUTTON_COLOR);
@@ -1150,6 +1344,12 @@ public class Gui {
                 unhideButton.setFont(new Font("Arial", Font.BOLD, 14));
                 unhideButton.addActionListener(e -> unhideChatBox());
 
+                moreButton = new JButton("More");
+                moreButton.setBackground(BUTTON_COLOR);
+                moreButton.setFont(new Font("Arial", Font.BOLD, 14));
+                moreButton.addActionListener(e -> client.queueMessage(
+                        new AskChatBoxSummaries(chatBoxListModel.size(), SUMMARY_PAGE_SIZE)));
+
                 closeButton = new JButton("Close");
                 closeButton.setBackground(BUTTON_COLOR);
                 closeButton.setFont(new Font("Arial", Font.BOLD, 14));
@@ -1159,28 +1359,34 @@ public class Gui {
                 buttonPanel.setBackground(BACKGROUND_COLOR);
                 buttonPanel.add(hideButton);
                 buttonPanel.add(unhideButton);
+                buttonPanel.add(moreButton);
                 buttonPanel.add(closeButton);
 
                 add(new JScrollPane(chatBoxList), BorderLayout.CENTER);
                 add(buttonPanel, BorderLayout.SOUTH);
 
-                setSize(400, 300);
+                setSize(600, 300);
                 setLocationRelativeTo(adminOptionsWindow);
             }
 
+            // Shows the chatbox summaries loaded so far (on the event dispatch thread)
+            public void showSummaries(List<ChatBoxSummary> summaries, int total) {
+                fillSummaryList(chatBoxList, chatBoxListModel, moreButton, summaries, total);
+            }
+
             private void hideChatBox() {
-                ChatBox selectedChatBox = chatBoxList.getSelectedValue();
+                ChatBoxSummary selectedChatBox = chatBoxList.getSelectedValue();
                 if (selectedChatBox != null) {
-                    client.queueMessage(new HideChatBox(selectedChatBox.getChatBoxID()));
+                    client.queueMessage(new HideChatBox(selectedChatBox.chatBoxID()));
                 } else {
                     JOptionPane.showMessageDialog(this, "Please select a chatbox to hide.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
 
             private void unhideChatBox() {
-                ChatBox selectedChatBox = chatBoxList.getSelectedValue();
+                ChatBoxSummary selectedChatBox = chatBoxList.getSelectedValue();
                 if (selectedChatBox != null) {
-                    client.queueMessage(new UnhideChatBox(selectedChatBox.getChatBoxID()));
+                    client.queueMessage(new UnhideChatBox(selectedChatBox.chatBoxID()));
                 } else {
                     JOptionPane.showMessageDialog(this, "Please select a chatbox to unhide.", "Error", JOptionPane.ERROR_MESSAGE);
                 }
@@ -1235,6 +1441,11 @@ public class Gui {
             createUserButton.setFont(new Font("Arial", Font.BOLD, 14));
             createUserButton.addActionListener(new CreateUserButtonListener());
 
+            serverMetricsButton = new JButton("Server Metrics");
+            serverMetricsButton.setBackground(BUTTON_COLOR);
+            serverMetricsButton.setFont(new Font("Arial", Font.BOLD, 14));
+            serverMetricsButton.addActionListener(e -> client.queueMessage(new AskServerMetrics()));
+
             comboPanel.add(banUserButton);
             comboPanel.add(Box.createRigidArea(new Dimension(10, 0)));
             comboPanel.add(unbanUserButton);
@@ -1246,6 +1457,8 @@ public class Gui {
             comboPanel.add(manageChatBoxButton);
             comboPanel.add(Box.createRigidArea(new Dimension(10, 0)));
             comboPanel.add(createUserButton);
+            comboPanel.add(Box.createRigidArea(new Dimension(10, 0)));
+            comboPanel.add(serverMetricsButton);
 
             return comboPanel;
         }
@@ -1332,33 +1545,24 @@ public class Gui {
         // Handles when user clicks on View Chat Logs button
         public class ViewChatLogButtonListener implements ActionListener {
             public void actionPerformed(ActionEvent e) {
-                client.queueMessage(new AskChatBoxList());
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ex) {
-                    throw new RuntimeException(ex);
-                }
-                adminOptionsWindow.showChatLogDialog(allChatBox);
+                // Opens with the summaries loaded before; the first page refreshes the list when it arrives
+                client.queueMessage(new AskChatBoxSummaries(0, SUMMARY_PAGE_SIZE));
+                adminOptionsWindow.showChatLogDialog();
             }
         }
 
         // ManageChatBoxButtonListener inner class
         private class ManageChatBoxButtonListener implements ActionListener {
             public void actionPerformed(ActionEvent e) {
-                client.queueMessage(new AskChatBoxList());
-                try {
-                    Thread.sleep(100);
-                } catch (InterruptedException ex) {
-                    throw new RuntimeException(ex);
-                }
-                adminOptionsWindow.showChatBoxListDialog(allChatBox);
+                client.queueMessage(new AskChatBoxSummaries(0, SUMMARY_PAGE_SIZE));
+                adminOptionsWindow.showChatBoxListDialog();
             }
         }
 
         // UnhideChatBoxButtonListener inner class
         private class UnhideChatBoxButtonListener implements ActionListener {
             public void actionPerformed(ActionEvent e) {
-                client.queueMessage(new AskChatBoxList());
+                client.queueMessage(new AskChatBoxSummaries(0, SUMMARY_PAGE_SIZE));
             }
         }
 
@@ -1473,6 +1677,9 @@ public class Gui {
 
             if (value instanceof User user) {
                 String displayName = user.getUsername();
+                if (user.isOnline()) {
+                    displayName += " (online)";
+                }
                 if (user.isBanned()) {
                     displayName += " (banned)";
                     label.setForeground(Color.RED);
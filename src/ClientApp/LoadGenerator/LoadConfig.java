@@ -0,0 +1,208 @@
+package ClientApp.LoadGenerator;
+
+import java.util.Random;
+
+/**
+ * LoadConfig holds the options of a load run. Values are read from system
+ * properties (e.g. -Dload.sessions=5000), like the server's own options.
+ * Chatbox sizes are drawn from a weighted distribution written as
+ * size:weight pairs, e.g. "2:60,5:25,20:10,100:5".
+ */
+public class LoadConfig {
+
+    // Attributes (initialised to the defaults)
+    private String host = "127.0.0.1";
+    private int port = 1234;
+    private String adminUsername = "Bob Admin";
+    private String adminPassword = "BobPass";
+    private String userPrefix = "load-user-"; // Generated users are named <prefix><index>
+    private String userPassword = "load-password";
+    private int sessions = 1000;
+    private int chatBoxes = 250;
+    private int[] chatBoxSizes = {2, 5, 20, 100};
+    private int[] chatBoxSizeWeights = {60, 25, 10, 5};
+    private double messagesPerSecond = 1000; // Across all sessions
+    private long warmupSeconds = 5; // Sent, but left out of the report
+    private long durationSeconds = 30;
+    private long setupTimeoutSeconds = 120; // Longest wait for the users, logins or chatboxes of the setup
+    private long seed = 42;
+
+    // Builds a configuration from system properties, using defaults for missing values
+    // INPUT: none
+    // OUTPUT: LoadConfig
+    public static LoadConfig fromSystemProperties() {
+        LoadConfig config = new LoadConfig();
+        config.setHost(System.getProperty("load.host", config.getHost()));
+        config.setPort(Integer.getInteger("load.port", config.getPort()));
+        config.setAdminUsername(System.getProperty("load.adminUsername", config.getAdminUsername()));
+        config.setAdminPassword(System.getProperty("load.adminPassword", config.getAdminPassword()));
+        config.setUserPrefix(System.getProperty("load.userPrefix", config.getUserPrefix()));
+        config.setUserPassword(System.getProperty("load.userPassword", config.getUserPassword()));
+        config.setSessions(Integer.getInteger("load.sessions", config.getSessions()));
+        config.setChatBoxes(Integer.getInteger("load.chatBoxes", Math.max(1, config.getSessions() / 4)));
+        String sizes = System.getProperty("load.chatBoxSizes");
+        if (sizes != null) {
+            config.setChatBoxSizeDistribution(sizes);
+        }
+        config.setMessagesPerSecond(Double.parseDouble(System.getProperty("load.rate",
+                String.valueOf(config.getMessagesPerSecond()))));
+        config.setWarmupSeconds(Long.getLong("load.warmupSeconds", config.getWarmupSeconds()));
+        config.setDurationSeconds(Long.getLong("load.durationSeconds", config.getDurationSeconds()));
+        config.setSetupTimeoutSeconds(Long.getLong("load.setupTimeoutSeconds", config.getSetupTimeoutSeconds()));
+        config.setSeed(Long.getLong("load.seed", config.getSeed()));
+        return config;
+    }
+
+    // *Parses a chatbox size distribution such as "2:60,5:25,20:10,100:5" (a size without a weight weighs 1)*
+    // INPUT: distribution (String)
+    // OUTPUT: none, throws IllegalArgumentException if a size or weight is not a positive number
+    public void setChatBoxSizeDistribution(String distribution) {
+        String[] entries = distribution.split(",");
+        int[] sizes = new int[entries.length];
+        int[] weights = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            String[] pair = entries[i].trim().split(":");
+            try {
+                sizes[i] = Integer.parseInt(pair[0].trim());
+                weights[i] = pair.length > 1 ? Integer.parseInt(pair[1].trim()) : 1;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid chatbox size entry: " + entries[i]);
+            }
+            if (sizes[i] < 1 || weights[i] < 1) {
+                throw new IllegalArgumentException("Invalid chatbox size entry: " + entries[i]);
+            }
+        }
+        this.chatBoxSizes = sizes;
+        this.chatBoxSizeWeights = weights;
+    }
+
+    // Returns the distribution in the form it is parsed from
+    public String getChatBoxSizeDistribution() {
+        StringBuilder distribution = new StringBuilder();
+        for (int i = 0; i < chatBoxSizes.length; i++) {
+            distribution.append(i > 0 ? "," : "").append(chatBoxSizes[i]).append(':').append(chatBoxSizeWeights[i]);
+        }
+        return distribution.toString();
+    }
+
+    // *Draws a chatbox size from the distribution, at most the number of sessions*
+    // INPUT: random (Random)
+    // OUTPUT: int, the number of participants including the creator
+    public int sampleChatBoxSize(Random random) {
+        int total = 0;
+        for (int weight : chatBoxSizeWeights) {
+            total += weight;
+        }
+        int draw = random.nextInt(total);
+        int i = 0;
+        while (draw >= chatBoxSizeWeights[i]) {
+            draw -= chatBoxSizeWeights[i];
+            i++;
+        }
+        return Math.min(chatBoxSizes[i], sessions);
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public String getAdminUsername() {
+        return adminUsername;
+    }
+
+    public void setAdminUsername(String adminUsername) {
+        this.adminUsername = adminUsername;
+    }
+
+    public String getAdminPassword() {
+        return adminPassword;
+    }
+
+    public void setAdminPassword(String adminPassword) {
+        this.adminPassword = adminPassword;
+    }
+
+    public String getUserPrefix() {
+        return userPrefix;
+    }
+
+    public void setUserPrefix(String userPrefix) {
+        this.userPrefix = userPrefix;
+    }
+
+    public String getUserPassword() {
+        return userPassword;
+    }
+
+    public void setUserPassword(String userPassword) {
+        this.userPassword = userPassword;
+    }
+
+    public int getSessions() {
+        return sessions;
+    }
+
+    public void setSessions(int sessions) {
+        this.sessions = Math.max(1, sessions);
+    }
+
+    public int getChatBoxes() {
+        return chatBoxes;
+    }
+
+    public void setChatBoxes(int chatBoxes) {
+        this.chatBoxes = Math.max(1, chatBoxes);
+    }
+
+    public double getMessagesPerSecond() {
+        return messagesPerSecond;
+    }
+
+    public void setMessagesPerSecond(double messagesPerSecond) {
+        this.messagesPerSecond = messagesPerSecond;
+    }
+
+    public long getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public void setWarmupSeconds(long warmupSeconds) {
+        this.warmupSeconds = Math.max(0, warmupSeconds);
+    }
+
+    public long getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(long durationSeconds) {
+        this.durationSeconds = Math.max(1, durationSeconds);
+    }
+
+    public long getSetupTimeoutSeconds() {
+        return setupTimeoutSeconds;
+    }
+
+    public void setSetupTimeoutSeconds(long setupTimeoutSeconds) {
+        this.setupTimeoutSeconds = setupTimeoutSeconds;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -0,0 +1,229 @@
+package ClientApp.LoadGenerator;
+
+import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.Messages.CreateUser;
+import Common.Messages.SendMessage;
+import Common.User.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * LoadGenerator drives a server with many headless sessions to size hardware
+ * for it. A run has four steps:
+ *  1. the admin account creates the generated users (existing ones are reused),
+ *  2. one loopback session per user connects and logs in,
+ *  3. sessions create chatboxes whose sizes follow the configured distribution,
+ *  4. messages are sent at the configured rate, each by a random participant
+ *     of a random chatbox, for the warmup and then the measured period.
+ * It then reports throughput and the send-to-receive latency of every
+ * delivery of the measured messages (see LoadRecorder).
+ *
+ * Usage: java -Dload.sessions=5000 -Dload.rate=2000 ClientApp.LoadGenerator.LoadGenerator
+ * (see LoadConfig for the other options)
+ */
+public class LoadGenerator {
+
+    private static final long DRAIN_SECONDS = 10; // Longest wait for the last deliveries once sending stops
+
+    // A chatbox of the run and the sessions taking part in it
+    private record LoadChatBox(int chatBoxID, LoadSession[] participants) {
+    }
+
+    // Attributes
+    private final LoadConfig config;
+    private final LoadRecorder recorder;
+    private final Random random;
+    private final String runID; // Keeps the chatbox names of a run apart from earlier runs
+    private final List<LoadSession> sessions;
+    private final List<LoadChatBox> chatBoxes;
+
+    // Constructor
+    // INPUT: config (LoadConfig)
+    public LoadGenerator(LoadConfig config) {
+        this.config = config;
+        this.recorder = new LoadRecorder();
+        this.random = new Random(config.getSeed());
+        this.runID = Long.toString(System.currentTimeMillis(), 36);
+        this.sessions = new ArrayList<>();
+        this.chatBoxes = new ArrayList<>();
+    }
+
+    // *Runs the whole load: setup, sending, and the report*
+    // INPUT: none
+    // OUTPUT: String report, throws IOException if the setup cannot be completed
+    public String run() throws IOException, InterruptedException {
+        try {
+            createUsers();
+            connectSessions();
+            createChatBoxes();
+            double seconds = sendMessages();
+            return describeRun() + recorder.report(seconds);
+        } finally {
+            sessions.forEach(LoadSession::close);
+        }
+    }
+
+    // Has the admin account create the generated users
+    private void createUsers() throws IOException, InterruptedException {
+        LoadSession admin = new LoadSession(config.getHost(), config.getPort(), config.getAdminUsername(), recorder);
+        try {
+            User adminUser = await(admin.login(config.getAdminPassword()));
+            if (adminUser == null) {
+                throw new IOException("Admin login failed for " + config.getAdminUsername());
+            }
+            for (int i = 0; i < config.getSessions(); i++) {
+                admin.send(new CreateUser(usernameOf(i), config.getUserPassword(), false));
+            }
+            int created = 0;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getSetupTimeoutSeconds());
+            for (int answered = 0; answered < config.getSessions(); answered++) {
+                String notification = admin.getNotifications().poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (notification == null) {
+                    throw new IOException("Timed out creating users (" + answered + " answered)");
+                }
+                if (notification.startsWith("User created")) {
+                    created++;
+                }
+            }
+            System.out.println("Users: " + created + " created, " + (config.getSessions() - created) + " reused.");
+        } finally {
+            admin.close();
+        }
+    }
+
+    // Connects a session per generated user and logs it in
+    private void connectSessions() throws IOException, InterruptedException {
+        List<CompletableFuture<User>> logins = new ArrayList<>();
+        for (int i = 0; i < config.getSessions(); i++) {
+            LoadSession session = new LoadSession(config.getHost(), config.getPort(), usernameOf(i), recorder);
+            sessions.add(session);
+            logins.add(session.login(config.getUserPassword()));
+        }
+        int refused = 0;
+        for (int i = logins.size() - 1; i >= 0; i--) {
+            if (await(logins.get(i)) == null) {
+                sessions.remove(i).close(); // Banned, or still logged in from an earlier run
+                refused++;
+            }
+        }
+        if (sessions.isEmpty()) {
+            throw new IOException("No session could log in");
+        }
+        System.out.println("Sessions: " + sessions.size() + " logged in" + (refused > 0 ? ", " + refused + " refused." : "."));
+    }
+
+    // Creates the chatboxes, each from a random session with participants drawn at random
+    private void createChatBoxes() throws IOException, InterruptedException {
+        List<LoadSession[]> members = new ArrayList<>();
+        List<CompletableFuture<ChatBox>> creations = new ArrayList<>();
+        for (int k = 0; k < config.getChatBoxes(); k++) {
+            int size = Math.min(config.sampleChatBoxSize(random), sessions.size());
+            Set<LoadSession> participants = new LinkedHashSet<>();
+            while (participants.size() < size) {
+                participants.add(sessions.get(random.nextInt(sessions.size())));
+            }
+            LoadSession[] participantArray = participants.toArray(new LoadSession[0]);
+            List<String> others = new ArrayList<>();
+            for (int i = 1; i < participantArray.length; i++) {
+                others.add(participantArray[i].getUsername());
+            }
+            members.add(participantArray);
+            creations.add(participantArray[0].createChatBox(others, "load-" + runID + "-" + k));
+        }
+        for (int k = 0; k < creations.size(); k++) {
+            ChatBox chatBox = await(creations.get(k));
+            if (chatBox != null) {
+                chatBoxes.add(new LoadChatBox(chatBox.getChatBoxID(), members.get(k)));
+            }
+        }
+        if (chatBoxes.isEmpty()) {
+            throw new IOException("No chatbox could be created");
+        }
+        System.out.println("Chatboxes: " + chatBoxes.size() + " created.");
+    }
+
+    // *Sends messages on schedule through the warmup and the measured period, then waits for the deliveries*
+    // INPUT: none
+    // OUTPUT: double, the length of the measured period in seconds
+    private double sendMessages() throws InterruptedException {
+        long intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / config.getMessagesPerSecond()));
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(config.getWarmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        recorder.startMeasuring(measureFrom);
+        System.out.println("Sending " + config.getMessagesPerSecond() + " messages/s for " + config.getWarmupSeconds()
+                + "s of warmup and " + config.getDurationSeconds() + "s measured...");
+        // Each message is due at a fixed time; when sending falls behind, it catches up without waiting
+        for (long due = start; due < end; due += intervalNanos) {
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            LoadChatBox chatBox = chatBoxes.get(random.nextInt(chatBoxes.size()));
+            LoadSession sender = chatBox.participants()[random.nextInt(chatBox.participants().length)];
+            recorder.recordSend(due, chatBox.participants().length);
+            try {
+                sender.send(new SendMessage(new Message(sender.getUserID(), LoadRecorder.contentOf(due)),
+                        chatBox.chatBoxID()));
+            } catch (IOException e) {
+                recorder.recordFailure();
+            }
+        }
+        long drainDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DRAIN_SECONDS);
+        while (recorder.getDelivered() < recorder.getExpected() && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        return (end - measureFrom) / 1e9;
+    }
+
+    // Describes the setup of the run
+    private String describeRun() {
+        long participants = 0;
+        for (LoadChatBox chatBox : chatBoxes) {
+            participants += chatBox.participants().length;
+        }
+        return String.format(Locale.ROOT, "%d sessions, %d chatboxes (sizes %s, mean %.1f participants), %s:%d%n",
+                sessions.size(), chatBoxes.size(), config.getChatBoxSizeDistribution(),
+                (double) participants / chatBoxes.size(), config.getHost(), config.getPort());
+    }
+
+    // Returns the username of the i-th generated user
+    private String usernameOf(int i) {
+        return config.getUserPrefix() + i;
+    }
+
+    // Waits for a reply of the server during the setup
+    private <T> T await(CompletableFuture<T> reply) throws IOException, InterruptedException {
+        try {
+            return reply.get(config.getSetupTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for the server");
+        }
+    }
+
+    public static void main(String[] args) {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        try {
+            System.out.print(new LoadGenerator(config).run());
+        } catch (IOException e) {
+            System.err.println("Load run failed: " + e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
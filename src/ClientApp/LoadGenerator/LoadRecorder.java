@@ -0,0 +1,111 @@
+package ClientApp.LoadGenerator;
+
+import Common.LatencyHistogram.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LoadRecorder counts what a load run sends and receives. Every generated
+ * message carries the time it was due to be sent, so a delivery is timed from
+ * that moment to the moment a session reads it; a send that falls behind its
+ * schedule therefore shows up as latency instead of being hidden. Only
+ * messages due after the warmup are counted.
+ */
+public class LoadRecorder {
+
+    static final String CONTENT_PREFIX = "load "; // Followed by the due time of the message (System.nanoTime)
+
+    // Attributes
+    private final LatencyHistogram latency;
+    private final LongAdder sent;
+    private final LongAdder expected; // Deliveries the measured sends should cause, one per participant
+    private final LongAdder delivered;
+    private final LongAdder failed; // Sends the server refused
+    private volatile long measureFromNanos = Long.MAX_VALUE; // Until set, nothing is measured
+
+    // Constructor
+    public LoadRecorder() {
+        this.latency = new LatencyHistogram();
+        this.sent = new LongAdder();
+        this.expected = new LongAdder();
+        this.delivered = new LongAdder();
+        this.failed = new LongAdder();
+    }
+
+    // Measures the messages due from a given time on (the end of the warmup)
+    public void startMeasuring(long fromNanos) {
+        this.measureFromNanos = fromNanos;
+    }
+
+    // Returns the content of a generated message due at a given time
+    static String contentOf(long dueNanos) {
+        return CONTENT_PREFIX + dueNanos;
+    }
+
+    // Records a message sent to a chatbox
+    // INPUT: dueNanos (long), recipients (int) the participants of the chatbox, the sender included
+    // OUTPUT: none
+    public void recordSend(long dueNanos, int recipients) {
+        if (dueNanos >= measureFromNanos) {
+            sent.increment();
+            expected.add(recipients);
+        }
+    }
+
+    // *Records a message read by a session, if it is one of the generated messages*
+    // INPUT: content (String), receivedNanos (long)
+    // OUTPUT: none
+    public void recordDelivery(String content, long receivedNanos) {
+        if (content == null || !content.startsWith(CONTENT_PREFIX)) {
+            return;
+        }
+        long dueNanos;
+        try {
+            dueNanos = Long.parseLong(content.substring(CONTENT_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return; // Sent by someone else
+        }
+        if (dueNanos >= measureFromNanos) {
+            delivered.increment();
+            latency.record(receivedNanos - dueNanos);
+        }
+    }
+
+    // Records a send the server refused
+    public void recordFailure() {
+        failed.increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getSent() {
+        return sent.sum();
+    }
+
+    public long getExpected() {
+        return expected.sum();
+    }
+
+    public long getDelivered() {
+        return delivered.sum();
+    }
+
+    public long getFailed() {
+        return failed.sum();
+    }
+
+    // *Formats the throughput and send-to-receive latency of the measured period*
+    // INPUT: seconds (double) the measured period lasted
+    // OUTPUT: String, a few lines
+    public String report(double seconds) {
+        double period = Math.max(1e-9, seconds);
+        return String.format(Locale.ROOT, "sent %d messages in %.1fs: %.1f messages/s (%d refused)%n", getSent(),
+                seconds, getSent() / period, getFailed())
+                + String.format(Locale.ROOT, "delivered %d of %d expected: %.1f deliveries/s%n", getDelivered(),
+                getExpected(), getDelivered() / period)
+                + "send-to-receive latency " + latency.summarize() + System.lineSeparator();
+    }
+}
@@ -0,0 +1,166 @@
+package ClientApp.LoadGenerator;
+
+import Common.ChatBox.ChatBox;
+import Common.MessageInterface;
+import Common.Messages.*;
+import Common.Protocol.WireProtocol;
+import Common.User.User;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * LoadSession is one headless client connection of a load run. It speaks the
+ * binary wire protocol, is read by its own virtual thread, answers the
+ * server's pings, and hands every pushed message to the LoadRecorder. Frames
+ * are encoded by the sending thread and written whole, so any thread may send.
+ */
+public class LoadSession {
+
+    // Attributes
+    private final String username;
+    private final LoadRecorder recorder;
+    private final Socket socket;
+    private final OutputStream out;
+    private final DataInputStream in;
+    private final CompletableFuture<User> login; // Completed with the user, or null if refused
+    private final ConcurrentHashMap<String, CompletableFuture<ChatBox>> pendingChatBoxes; // By chatbox name
+    private final BlockingQueue<String> notifications;
+    private volatile int userID;
+    private volatile boolean closed;
+
+    // Constructor: connects to the server and starts reading
+    // INPUT: host (String), port (int), username (String), recorder (LoadRecorder)
+    public LoadSession(String host, int port, String username, LoadRecorder recorder) throws IOException {
+        this.username = username;
+        this.recorder = recorder;
+        this.login = new CompletableFuture<>();
+        this.pendingChatBoxes = new ConcurrentHashMap<>();
+        this.notifications = new LinkedBlockingQueue<>();
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.out = socket.getOutputStream();
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream handshake = new DataOutputStream(out);
+        WireProtocol.writeHandshake(handshake, WireProtocol.CODEC_BINARY);
+        Thread.ofVirtual().name("load-session-" + username).start(this::receive);
+    }
+
+    // Sends a message to the server
+    // INPUT: message (MessageInterface)
+    // OUTPUT: none, throws IOException if the connection is broken
+    public void send(MessageInterface message) throws IOException {
+        byte[] frame = WireProtocol.encodeFrame(message, WireProtocol.CODEC_BINARY);
+        synchronized (out) {
+            out.write(frame);
+        }
+    }
+
+    // *Logs in with the session's username*
+    // INPUT: password (String)
+    // OUTPUT: CompletableFuture completed with the user, or with null if the server refused the login
+    public CompletableFuture<User> login(String password) throws IOException {
+        send(new Login(username, password));
+        return login;
+    }
+
+    // *Creates a chatbox with this session's user and the given participants*
+    // INPUT: participants (list of usernames), name (String) unique to the run
+    // OUTPUT: CompletableFuture completed with the chatbox the server created
+    public CompletableFuture<ChatBox> createChatBox(List<String> participants, String name) throws IOException {
+        CompletableFuture<ChatBox> created = new CompletableFuture<>();
+        pendingChatBoxes.put(name, created);
+        List<User> users = new ArrayList<>(participants.size());
+        for (String participant : participants) {
+            users.add(new User(0, participant, "", false)); // The server looks participants up by username
+        }
+        send(new CreateChat(users, name));
+        return created;
+    }
+
+    // Reads frames until the connection closes
+    private void receive() {
+        try {
+            while (!closed) {
+                MessageInterface message = WireProtocol.readFrame(in, WireProtocol.CODEC_BINARY);
+                long receivedNanos = System.nanoTime();
+                switch (message.getType()) {
+                    case SEND_MESSAGE -> recorder.recordDelivery(((SendMessage) message).message().getContent(),
+                            receivedNanos);
+                    case PING -> send(new Pong(((Ping) message).sentNanos()));
+                    case LOGIN_RESPONSE -> {
+                        User user = ((LoginResponse) message).user();
+                        if (user != null) {
+                            userID = user.getUserID();
+                        }
+                        login.complete(user);
+                    }
+                    case RETURN_CHATBOX -> {
+                        ChatBox chatBox = ((SendChatBox) message).chatBox();
+                        CompletableFuture<ChatBox> created = pendingChatBoxes.remove(chatBox.getName());
+                        if (created != null) {
+                            created.complete(chatBox);
+                        }
+                    }
+                    case NOTIFICATION -> {
+                        String text = ((Notification) message).text();
+                        if (text.startsWith("Failed to send message")) {
+                            recorder.recordFailure();
+                        }
+                        if (!login.isDone()) {
+                            login.complete(null); // Banned users are told so instead of getting a login response
+                        }
+                        notifications.add(text);
+                    }
+                    default -> { } // Chatbox updates and the like are not part of the load
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Load session " + username + " lost its connection: " + e.getMessage());
+            }
+        } finally {
+            login.complete(null);
+            pendingChatBoxes.values().forEach(created -> created.complete(null));
+            close();
+        }
+    }
+
+    // Returns the notifications received, oldest first (the admin session waits on them)
+    public BlockingQueue<String> getNotifications() {
+        return notifications;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    // The user ID given by the server at login (0 before)
+    public int getUserID() {
+        return userID;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Closes the connection; the server logs the user out
+    public void close() {
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Already closed
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package Common.Admin;
 
 import Common.User.User;
-import ServerApp.AuthenticationSystem.AuthenticationSystem;
-import ServerApp.MessageHandler.MessageHandler;
 
 import java.io.Serial;
 
@@ -10,17 +8,24 @@ public class Admin extends User {
     @Serial
     private static final long serialVersionUID = 1L;
     // Attributes
-    private transient MessageHandler messageHandler;
-    private transient AuthenticationSystem authenticationSystem;
+    private transient ChatModeration messageHandler;
+    private transient UserAdministration authenticationSystem;
 
     // Constructor
-    // INPUT: username (String), password (String), messageHandler (MessageHandler), authenticationSystem (AuthenticationSystem)
-    public Admin(String username, String password, MessageHandler messageHandler, AuthenticationSystem authenticationSystem) {
+    // INPUT: username (String), password (String), messageHandler (ChatModeration), authenticationSystem (UserAdministration)
+    //        (the server's MessageHandler and AuthenticationSystem)
+    public Admin(String username, String password, ChatModeration messageHandler, UserAdministration authenticationSystem) {
         super(username, password);
         this.messageHandler = messageHandler;
         this.authenticationSystem = authenticationSystem;
     }
 
+    // Constructor for an admin decoded from the wire (keeps the existing ID, no server components)
+    // INPUT: userID (int), username (String), password (String), isBanned (boolean)
+    public Admin(int userID, String username, String password, boolean isBanned) {
+        super(userID, username, password, isBanned);
+    }
+
     // Bans a user from the system
     // INPUT: userID (int)
     // OUTPUT: true if ban was successful, false otherwise
@@ -80,10 +85,10 @@ public class Admin extends User {
     }
 
     // Hides a specific message in a chatbox using MessageHandler
-    // INPUT: chatBoxID (int), messageID (int)
+    // INPUT: chatBoxID (int), sequenceNumber (long) of the message in the chatbox
     // OUTPUT: true if message was hidden successfully, false otherwise
-    public boolean hideChatMessage(int chatBoxID, int messageID) {
-        return messageHandler.hideMessage(chatBoxID, messageID);
+    public boolean hideChatMessage(int chatBoxID, long sequenceNumber) {
+        return messageHandler.hideMessage(chatBoxID, sequenceNumber);
     }
 
     // Hides a specific chatbox using MessageHandler
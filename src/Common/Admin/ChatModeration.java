@@ -0,0 +1,18 @@
+package Common.Admin;
+
+/**
+ * ChatModeration is the part of the server's message handling an Admin acts
+ * on. It is implemented by ServerApp's MessageHandler, so Common does not
+ * depend on the server.
+ */
+public interface ChatModeration {
+
+    // Sends a message to a single user
+    boolean sendMessageToUser(int userID, String content);
+
+    // Hides one message of a chatbox, found by its sequence number
+    boolean hideMessage(int chatBoxID, long sequenceNumber);
+
+    // Hides a whole chatbox
+    boolean hideChatBox(int chatBoxID);
+}
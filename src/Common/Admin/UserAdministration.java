@@ -0,0 +1,31 @@
+package Common.Admin;
+
+import Common.User.User;
+
+import java.util.Collection;
+
+/**
+ * UserAdministration is the part of the server's user store an Admin acts on.
+ * It is implemented by ServerApp's AuthenticationSystem, so Common does not
+ * depend on the server.
+ */
+public interface UserAdministration {
+
+    // Returns the user with an ID, or null
+    User findUser(int userID);
+
+    // Saves a changed user
+    boolean updateUser(User user);
+
+    // Adds a new user
+    boolean registerUser(User user);
+
+    // Removes a user
+    boolean deleteUser(int userID);
+
+    // Sets a new password for a user
+    boolean resetPassword(int userID, String newPassword);
+
+    // Returns every user
+    Collection<User> getAllUsers();
+}
@@ -2,7 +2,12 @@ package Common.ChatBox;
 
 import Common.User.User;
 import Common.Message.Message;
+import Common.Protocol.LegacyObjectOutputStream;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serial;
 import java.time.LocalDateTime;
 import java.util.*;
@@ -21,17 +26,38 @@ public class ChatBox implements Serializable {
         chatBoxIdGenerator.set(0);
     }
 
+    // Continues chatBoxID generation after the highest stored ID (never moves the generator back)
+    public static void advanceChatBoxIdGenerator(int lastChatBoxID) {
+        chatBoxIdGenerator.accumulateAndGet(lastChatBoxID, Math::max);
+    }
+
     // Attributes
     private int chatBoxID;
-    private final String name;
-    private Collection<User> participants;
-    private final SortedSet<Message> messages;
+    private String name;
+    private int[] participantIDs; // Sorted userIDs of the participants; null for the system chatbox (every user)
+    private transient List<Message> messages; // Append-only, in sequence number order
+    private transient Map<Integer, Message> messagesByID; // First message with each messageID
     private boolean isHidden;
+    private long lastSequenceNumber; // Highest message sequence number in this chatbox
     LocalDateTime creationTime;
 
-    // Serializable Comparator
-    private static final Comparator<Message> MESSAGE_TIMESTAMP_COMPARATOR = new SerializableComparator();
-
+    // Serialized form: chatbox files written before messages were indexed by sequence number hold a
+    // TreeSet in "messages"; newer files hold the list in "messageList". Files written before
+    // participants were stored by ID hold User objects in "participants"; newer files hold "participantIDs"
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("chatBoxID", int.class),
+            new ObjectStreamField("name", String.class),
+            new ObjectStreamField("participants", Collection.class),
+            new ObjectStreamField("participantIDs", int[].class),
+            new ObjectStreamField("messages", SortedSet.class),
+            new ObjectStreamField("messageList", List.class),
+            new ObjectStreamField("isHidden", boolean.class),
+            new ObjectStreamField("lastSequenceNumber", long.class),
+            new ObjectStreamField("creationTime", LocalDateTime.class)
+    };
+
+    // Comparator of the TreeSet in older chatbox files and legacy client streams
     private static class SerializableComparator implements Comparator<Message>, Serializable {
         @Serial
         private static final long serialVersionUID = 1L;
@@ -45,8 +71,9 @@ public class ChatBox implements Serializable {
     // Default Constructor
     public ChatBox() {
         this.chatBoxID = chatBoxIdGenerator.incrementAndGet();
-        this.participants = new HashSet<>();
-        this.messages = new TreeSet<>(MESSAGE_TIMESTAMP_COMPARATOR);
+        this.participantIDs = new int[0];
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
         this.isHidden = false;
         this.name = "ChatBox " + this.chatBoxID;
         this.creationTime = LocalDateTime.now();
@@ -55,8 +82,9 @@ public class ChatBox implements Serializable {
     // Constructor with custom name
     public ChatBox(String name) {
         this.chatBoxID = chatBoxIdGenerator.incrementAndGet();
-        this.participants = new HashSet<>();
-        this.messages = new TreeSet<>(MESSAGE_TIMESTAMP_COMPARATOR);
+        this.participantIDs = new int[0];
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
         this.isHidden = false;
         this.name = name;
         this.creationTime = LocalDateTime.now();
@@ -64,16 +92,18 @@ public class ChatBox implements Serializable {
 
     public ChatBox(Collection<User> participants) {
         this.chatBoxID = chatBoxIdGenerator.incrementAndGet();
-        this.participants = new HashSet<>(participants);
-        this.messages = new TreeSet<>(MESSAGE_TIMESTAMP_COMPARATOR);
+        this.participantIDs = idsOf(participants);
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
         this.isHidden = false;
         this.name =  "ChatBox " + this.chatBoxID;
         this.creationTime = LocalDateTime.now();
     }
     public ChatBox(Collection<User> participants, String name){
         this.chatBoxID = chatBoxIdGenerator.incrementAndGet();
-        this.participants = new HashSet<>(participants);
-        this.messages = new TreeSet<>(MESSAGE_TIMESTAMP_COMPARATOR);
+        this.participantIDs = idsOf(participants);
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
         this.isHidden = false;
         this.name = name;
         this.creationTime = LocalDateTime.now();
@@ -81,25 +111,56 @@ public class ChatBox implements Serializable {
 
     private ChatBox(boolean t){
         this.chatBoxID = 0;
-        this.participants = null;
-        this.messages = new TreeSet<>(MESSAGE_TIMESTAMP_COMPARATOR);
+        this.participantIDs = null; // Every user
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
         this.isHidden = false;
         this.name = "System Notifications";
         this.creationTime = LocalDateTime.now();
     }
 
+    // Constructor for a chatbox decoded from the wire (keeps the existing ID)
+    private ChatBox(int chatBoxID, String name, int[] participantIDs, boolean isHidden, LocalDateTime creationTime) {
+        this.chatBoxID = chatBoxID;
+        this.participantIDs = participantIDs == null ? null : sortedCopy(participantIDs);
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
+        this.isHidden = isHidden;
+        this.name = name;
+        this.creationTime = creationTime;
+    }
+
+    // Rebuilds a chatbox from decoded fields without consuming a new chatBoxID
+    // INPUT: chatBoxID (int), name (String), participantIDs (int[], null for every user), messages (Collection<Message>),
+    //        isHidden (boolean), creationTime (LocalDateTime, may be null)
+    // OUTPUT: ChatBox
+    public static ChatBox restore(int chatBoxID, String name, int[] participantIDs, Collection<Message> messages,
+                                  boolean isHidden, LocalDateTime creationTime) {
+        ChatBox chatBox = new ChatBox(chatBoxID, name, participantIDs, isHidden, creationTime);
+        for (Message message : messages) {
+            chatBox.addMessage(message);
+        }
+        return chatBox;
+    }
+
+    // Returns the creation time of the ChatBox (may be null for older chatboxes)
+    public LocalDateTime getCreationTime() {
+        return creationTime;
+    }
+
     // **New Constructor with participants**
     // Initializes a ChatBox with a unique ID, optional name, and participants
     public ChatBox(List<User> participantsList) {
         this.chatBoxID = chatBoxIdGenerator.incrementAndGet();
-        this.participants = new HashSet<>(participantsList);
-        this.messages = new TreeSet<>(MESSAGE_TIMESTAMP_COMPARATOR);
+        this.participantIDs = idsOf(participantsList);
+        this.messages = new ArrayList<>();
+        this.messagesByID = new HashMap<>();
         this.isHidden = false;
         this.name = "ChatBox " + this.chatBoxID;
     }
     
-    public void setParticipants(Collection<User> participants) {
-        this.participants = participants;
+    public synchronized void setParticipants(Collection<User> participants) {
+        this.participantIDs = participants == null ? null : idsOf(participants);
     }
 
     // Getters
@@ -117,14 +178,31 @@ public class ChatBox implements Serializable {
         return new ChatBox(true);
     }
 
-    // Returns the set of participants in the ChatBox
-    public Collection<User> getParticipants() {
-        return participants;
+    // Returns the sorted userIDs of the participants (a copy), or null if every user takes part
+    public synchronized int[] getParticipantIDs() {
+        return participantIDs == null ? null : participantIDs.clone();
+    }
+
+    // Returns true if every user takes part in the ChatBox (the system chatbox)
+    public synchronized boolean includesEveryone() {
+        return participantIDs == null;
+    }
+
+    // Returns true if a user takes part in the ChatBox
+    // INPUT: userID (int)
+    // OUTPUT: boolean
+    public synchronized boolean hasParticipant(int userID) {
+        return participantIDs == null || Arrays.binarySearch(participantIDs, userID) >= 0;
     }
 
-    // Returns the set of messages in the ChatBox
-    public SortedSet<Message> getMessages() {
-        return messages;
+    // Returns the number of participants (0 for the system chatbox, whose participants are not listed)
+    public synchronized int getParticipantCount() {
+        return participantIDs == null ? 0 : participantIDs.length;
+    }
+
+    // Returns the messages of the ChatBox in sequence number order (read-only view)
+    public List<Message> getMessages() {
+        return Collections.unmodifiableList(messages);
     }
 
     // Returns the hidden status of the ChatBox
@@ -132,25 +210,136 @@ public class ChatBox implements Serializable {
         return isHidden;
     }
     
-    public void setHidden(boolean hidden) {
+    public synchronized void setHidden(boolean hidden) {
         this.isHidden = hidden;
     }
 
 
     // Methods
 
-    // Adds a message to the ChatBox
+    // Adds a message to the ChatBox, keeping its sequence number (a message without one is numbered
+    // after the last message); a message whose sequence number is already held is ignored
     // INPUT: message (Message)
     // OUTPUT: none
     public void addMessage(Message message) {
-        messages.add(message);
+        if (message.getSequenceNumber() == 0) {
+            message.setSequenceNumber(lastSequenceNumber + 1);
+        }
+        long sequenceNumber = message.getSequenceNumber();
+        if (sequenceNumber > lastSequenceNumber) {
+            messages.add(message); // The usual case: appended in order
+            lastSequenceNumber = sequenceNumber;
+        } else {
+            int index = indexAfter(sequenceNumber - 1);
+            if (index < messages.size() && messages.get(index).getSequenceNumber() == sequenceNumber) {
+                return;
+            }
+            messages.add(index, message); // Older history fetched after newer messages (client side)
+        }
+        messagesByID.putIfAbsent(message.getMessageID(), message);
+    }
+
+    // Assigns the next sequence number to a new message and adds it (server side)
+    // INPUT: message (Message)
+    // OUTPUT: the assigned sequence number
+    public synchronized long appendMessage(Message message) {
+        message.setSequenceNumber(lastSequenceNumber + 1);
+        addMessage(message);
+        return message.getSequenceNumber();
+    }
+
+    // Returns the highest sequence number this ChatBox holds (0 if none)
+    public long getLastSequenceNumber() {
+        return lastSequenceNumber;
+    }
+
+    // Finds a message by its messageID through the index
+    // INPUT: messageID (int)
+    // OUTPUT: Message or null if not found
+    public synchronized Message findMessage(int messageID) {
+        return messagesByID.get(messageID);
+    }
+
+    // Finds a message by its sequence number, which unlike the messageID is unique in the chatbox across restarts
+    // INPUT: sequenceNumber (long)
+    // OUTPUT: Message or null if not found
+    public synchronized Message findMessageBySequenceNumber(long sequenceNumber) {
+        int index = indexAfter(sequenceNumber - 1);
+        if (index < messages.size() && messages.get(index).getSequenceNumber() == sequenceNumber) {
+            return messages.get(index);
+        }
+        return null;
+    }
+
+    // Hides or shows a message found by its sequence number
+    // INPUT: sequenceNumber (long), hidden (boolean)
+    // OUTPUT: true if the message was found
+    public synchronized boolean setMessageHidden(long sequenceNumber, boolean hidden) {
+        Message message = findMessageBySequenceNumber(sequenceNumber);
+        if (message == null) {
+            return false;
+        }
+        message.setHidden(hidden);
+        return true;
+    }
+
+    // Returns a page of messages next to a sequence number, oldest first, in O(log n + limit)
+    // INPUT: cursor (long) sequence number the page starts after or ends before (0 = the newest messages when older is true),
+    //        older (boolean) true for the messages before the cursor, limit (int) maximum number of messages
+    // OUTPUT: List of messages
+    public synchronized List<Message> getMessagePage(long cursor, boolean older, int limit) {
+        int from;
+        int to;
+        if (older) {
+            to = cursor > 0 ? indexAfter(cursor - 1) : messages.size();
+            from = Math.max(0, to - limit);
+        } else {
+            from = indexAfter(cursor);
+            to = (int) Math.min(messages.size(), (long) from + limit);
+        }
+        return new ArrayList<>(messages.subList(from, to));
+    }
+
+    // Returns the index of the first message with a sequence number above the given one (binary search)
+    private int indexAfter(long sequenceNumber) {
+        int low = 0;
+        int high = messages.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (messages.get(middle).getSequenceNumber() <= sequenceNumber) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
 
     // Adds a participant to the ChatBox
     // INPUT: user (User)
     // OUTPUT: true if user added successfully, false otherwise
     public boolean addParticipant(User user) {
-        return participants.add(user); // Adds the user if not already present in the set
+        return user != null && addParticipant(user.getUserID());
+    }
+
+    // Adds a participant to the ChatBox by userID
+    // INPUT: userID (int)
+    // OUTPUT: true if the user was added, false if already a participant
+    public synchronized boolean addParticipant(int userID) {
+        if (participantIDs == null) {
+            return false; // Every user already takes part
+        }
+        int index = Arrays.binarySearch(participantIDs, userID);
+        if (index >= 0) {
+            return false;
+        }
+        int insertAt = -index - 1;
+        int[] added = new int[participantIDs.length + 1];
+        System.arraycopy(participantIDs, 0, added, 0, insertAt);
+        added[insertAt] = userID;
+        System.arraycopy(participantIDs, insertAt, added, insertAt + 1, participantIDs.length - insertAt);
+        participantIDs = added;
+        return true;
     }
 
     // Returns a list of all messages in the ChatBox
@@ -160,23 +349,31 @@ public class ChatBox implements Serializable {
         return new ArrayList<>(messages);
     }
 
-    // Returns a list of all participants in the ChatBox
-    // INPUT: none
-    // OUTPUT: List of participants
-    public List<User> getParticipantsList() {
-        return new ArrayList<>(participants);
-    }
-
     // Removes a participant from the ChatBox
     // INPUT: user (User)
     // OUTPUT: true if user removed successfully, false otherwise
     public boolean removeParticipant(User user) {
-        return participants.remove(user); // Removes the user if present in the set
+        return user != null && removeParticipant(user.getUserID());
+    }
+
+    // Removes a participant from the ChatBox by userID
+    // INPUT: userID (int)
+    // OUTPUT: true if the user was removed, false if not a participant
+    public synchronized boolean removeParticipant(int userID) {
+        int index = participantIDs == null ? -1 : Arrays.binarySearch(participantIDs, userID);
+        if (index < 0) {
+            return false;
+        }
+        int[] removed = new int[participantIDs.length - 1];
+        System.arraycopy(participantIDs, 0, removed, 0, index);
+        System.arraycopy(participantIDs, index + 1, removed, index, removed.length - index);
+        participantIDs = removed;
+        return true;
     }
 
     public LocalDateTime lastUpdated() {
         if(!messages.isEmpty()) {
-            return messages.last().getTimestamp();
+            return messages.get(messages.size() - 1).getTimestamp();
         }
         return creationTime;
     }
@@ -184,7 +381,7 @@ public class ChatBox implements Serializable {
     // Hides the ChatBox from users
     // INPUT: none
     // OUTPUT: none
-    public void hideChatBox() {
+    public synchronized void hideChatBox() {
         this.isHidden = true;
     }
 
@@ -197,12 +394,90 @@ public class ChatBox implements Serializable {
     public ChatBox getEmpty() {
         ChatBox empty = new ChatBox(this.name);
         empty.chatBoxID = this.chatBoxID; // Keep the same chatBoxID
-        empty.participants = new HashSet<>(this.participants);
+        empty.participantIDs = getParticipantIDs();
         empty.isHidden = this.isHidden;
         // Do not copy messages
         return empty;
     }
 
+    // Writes the chatbox in the serialized form declared by serialPersistentFields; a legacy client
+    // stream also gets the participants as users and the messages as a timestamp-ordered set
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("chatBoxID", chatBoxID);
+        fields.put("name", name);
+        fields.put("participantIDs", participantIDs);
+        fields.put("messageList", messages);
+        if (out instanceof LegacyObjectOutputStream legacy) {
+            SortedSet<Message> messageSet = new TreeSet<>(new SerializableComparator());
+            messageSet.addAll(messages);
+            fields.put("messages", messageSet);
+            if (participantIDs != null) { // null for the system chatbox, as before
+                Collection<User> participants = new HashSet<>();
+                for (int userID : participantIDs) {
+                    User participant = legacy.getParticipant(userID);
+                    if (participant != null) {
+                        participants.add(participant);
+                    }
+                }
+                fields.put("participants", participants);
+            }
+        }
+        fields.put("isHidden", isHidden);
+        fields.put("lastSequenceNumber", lastSequenceNumber);
+        fields.put("creationTime", creationTime);
+        out.writeFields();
+    }
+
+    // Reads a chatbox of either serialized form and rebuilds the message index; messages saved before
+    // sequence numbers existed are numbered in timestamp order
+    @Serial
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        chatBoxID = fields.get("chatBoxID", 0);
+        name = (String) fields.get("name", null);
+        participantIDs = (int[]) fields.get("participantIDs", null);
+        Collection<User> participants = (Collection<User>) fields.get("participants", null);
+        if (participantIDs == null && participants != null && chatBoxID != 0) {
+            participantIDs = idsOf(participants); // Older file: User objects
+        }
+        if (participantIDs == null && chatBoxID != 0) {
+            participantIDs = new int[0];
+        }
+        isHidden = fields.get("isHidden", false);
+        creationTime = (LocalDateTime) fields.get("creationTime", null);
+        lastSequenceNumber = 0; // Recomputed from the messages
+        messages = new ArrayList<>();
+        messagesByID = new HashMap<>();
+        Collection<Message> stored = (Collection<Message>) fields.get("messageList", null);
+        if (stored == null) {
+            stored = (Collection<Message>) fields.get("messages", null);
+        }
+        if (stored != null) {
+            List<Message> unnumbered = new ArrayList<>();
+            for (Message message : stored) {
+                if (message.getSequenceNumber() == 0) {
+                    unnumbered.add(message);
+                } else {
+                    addMessage(message);
+                }
+            }
+            unnumbered.forEach(this::addMessage);
+        }
+        lastSequenceNumber = Math.max(lastSequenceNumber, fields.get("lastSequenceNumber", 0L));
+    }
+
+    // Returns the sorted, distinct userIDs of some users
+    private static int[] idsOf(Collection<User> users) {
+        return users.stream().mapToInt(User::getUserID).sorted().distinct().toArray();
+    }
+
+    private static int[] sortedCopy(int[] userIDs) {
+        return Arrays.stream(userIDs).sorted().distinct().toArray();
+    }
+
     // Implement equals and hashCode based on chatBoxID
     @Override
     public boolean equals(Object obj) {
@@ -0,0 +1,14 @@
+package Common.ChatBoxSummary;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// What the admin chatbox lists show of a chatbox, instead of the chatbox with its participants and messages
+public record ChatBoxSummary(int chatBoxID, String name, boolean hidden, int participantCount, long messageCount,
+                             LocalDateTime lastUpdated) implements Serializable {
+
+    @Override
+    public String toString() {
+        return name + " (ID: " + chatBoxID + ")";
+    }
+}
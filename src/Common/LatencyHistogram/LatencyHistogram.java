@@ -0,0 +1,137 @@
+package Common.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts durations in log-linear buckets, in the manner of an
+ * HDR histogram: every power of two is split into 32 buckets, so a recorded
+ * value is known to within about 3% from a nanosecond up to about half an hour,
+ * in a fixed array of counters. Recording is a few arithmetic operations and
+ * one atomic increment, and may be done by any number of threads; reading it
+ * while it is recorded into gives a close but not exact snapshot.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // Values below this are counted exactly
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int MAX_EXPONENT = 40; // Longer durations are counted in the last bucket
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 3) * HALF_SUB_BUCKETS;
+
+    // Attributes
+    private final AtomicLongArray counts;
+    private final LongAdder count;
+    private final LongAdder total;
+    private final LongAccumulator max;
+
+    // Constructor
+    public LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKETS);
+        this.count = new LongAdder();
+        this.total = new LongAdder();
+        this.max = new LongAccumulator(Math::max, 0);
+    }
+
+    // Records a duration
+    // INPUT: nanos (long), negative values count as 0
+    // OUTPUT: none
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    // Returns the bucket that counts a value
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        // (value >>> shift) is in [HALF_SUB_BUCKETS, SUB_BUCKETS): the top bits of the value
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    // Returns the largest value counted by a bucket
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKETS - 1;
+        long subBucket = bucket - shift * HALF_SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    // Number of values recorded
+    public long getCount() {
+        return count.sum();
+    }
+
+    // Largest value recorded
+    public long getMax() {
+        return max.get();
+    }
+
+    // Mean of the values recorded, 0 if none
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) total.sum() / n;
+    }
+
+    // Returns the value below which a percentage of the recorded values fall (to the bucket's precision)
+    // INPUT: percentile (double) between 0 and 100
+    // OUTPUT: long, 0 if nothing was recorded
+    public long getValueAtPercentile(double percentile) {
+        long recorded = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            recorded += snapshot[i];
+        }
+        if (recorded == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * recorded));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return i == BUCKETS - 1 ? getMax() : Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    // *Formats the count, mean, usual percentiles and maximum on one line*
+    // INPUT: none
+    // OUTPUT: String such as "n=10 mean=12us p50=11us p90=20us p99=31us p99.9=31us max=31us"
+    public String summarize() {
+        return String.format(Locale.ROOT, "n=%d mean=%s p50=%s p90=%s p99=%s p99.9=%s max=%s", getCount(),
+                formatNanos((long) getMean()), formatNanos(getValueAtPercentile(50)),
+                formatNanos(getValueAtPercentile(90)), formatNanos(getValueAtPercentile(99)),
+                formatNanos(getValueAtPercentile(99.9)), formatNanos(getMax()));
+    }
+
+    // Formats a duration with a unit that keeps it short
+    public static String formatNanos(long nanos) {
+        if (nanos < TimeUnit.MICROSECONDS.toNanos(10)) {
+            return nanos + "ns";
+        }
+        if (nanos < TimeUnit.MILLISECONDS.toNanos(10)) {
+            return nanos / 1_000 + "us";
+        }
+        if (nanos < TimeUnit.SECONDS.toNanos(10)) {
+            return nanos / 1_000_000 + "ms";
+        }
+        return nanos / 1_000_000_000 + "s";
+    }
+}
@@ -3,21 +3,23 @@ package Common.Message;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Message implements Serializable {
 	@Serial
     private static final long serialVersionUID = 1L;
 	// Attributes
-	private static int count = 0;
+	private static final AtomicInteger count = new AtomicInteger(0);
     private final int messageID;
     private final int senderID;
     private final String content;
     private final LocalDateTime timestamp; // immutable once set
     private boolean hidden;
+    private long sequenceNumber; // Position in its chatbox, assigned by the server (0 = not assigned)
 
     // Constructor
     public Message(int senderID, String content) {
-        this.messageID = ++count;
+        this.messageID = count.incrementAndGet();
         this.senderID = senderID;
         this.content = content;
         this.timestamp = LocalDateTime.now(); // this creates a timestamp during creation of message that can NOT be changed 
@@ -25,13 +27,29 @@ public class Message implements Serializable {
     }
 
     public Message(Message message) {
-        this.messageID = ++count;
+        this(message, message.timestamp);
+    }
+
+    // Constructor for the stored copy of a received message, stamped with the time the server received it
+    public Message(Message message, LocalDateTime timestamp) {
+        this.messageID = count.incrementAndGet();
         this.senderID = message.senderID;
         this.content = message.content;
-        this.timestamp = message.timestamp; // this creates a timestamp during creation of message that can NOT be changed
+        this.timestamp = timestamp;
         this.hidden = message.hidden;
     }
 
+    // Constructor for a message decoded from the wire (keeps the existing ID and timestamp)
+    public Message(int messageID, int senderID, String content, LocalDateTime timestamp, boolean hidden,
+                   long sequenceNumber) {
+        this.messageID = messageID;
+        this.senderID = senderID;
+        this.content = content;
+        this.timestamp = timestamp;
+        this.hidden = hidden;
+        this.sequenceNumber = sequenceNumber;
+    }
+
     // Getters and Setters
     // NOTE: we ONLY have getters for messageID, senderID, content + timestamp since they are immutable once created 
     // only "hidden" can be changed 
@@ -60,6 +78,14 @@ public class Message implements Serializable {
         this.hidden = hidden;
     }
 
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    public void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
     @Override
     public String toString() {
         return  content;
@@ -20,5 +20,18 @@ public enum MessageType {
     REQUEST_CHATBOX_LIST,
     RETURN_CHATBOX_LIST,
     HIDE_CHATBOX,
-    UNHIDE_CHATBOX;
+    UNHIDE_CHATBOX,
+    REQUEST_MESSAGE_PAGE,
+    RETURN_MESSAGE_PAGE,
+    REQUEST_CHATBOX_LOG_CHUNK,
+    RETURN_CHATBOX_LOG_CHUNK,
+    EXPORT_CHATBOX_LOG,
+    REQUEST_CHATBOX_SUMMARIES,
+    RETURN_CHATBOX_SUMMARIES,
+    REQUEST_USER_CHANGES,
+    RETURN_USER_CHANGES,
+    PING,
+    PONG,
+    REQUEST_SERVER_METRICS,
+    RETURN_SERVER_METRICS;
 }
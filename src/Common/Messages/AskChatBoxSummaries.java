@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Asks for a page of chatbox summaries, most recently active first
+public record AskChatBoxSummaries(int offset, int limit) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.REQUEST_CHATBOX_SUMMARIES;
+
+    public MessageType getType() {
+        return type;
+    }
+}
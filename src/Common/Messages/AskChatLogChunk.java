@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Asks for the next chunk of a chat log; cursor is the nextCursor of the previous chunk (0 for the first)
+public record AskChatLogChunk(int chatBoxID, long cursor) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.REQUEST_CHATBOX_LOG_CHUNK;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,16 @@
+package Common.Messages;
+
+import java.io.Serializable;
+
+import Common.MessageInterface;
+import Common.MessageType;
+
+// Asks for up to limit messages of a chatbox before (older) or after the cursor sequence number;
+// a cursor of 0 with older set asks for the newest messages
+public record AskMessagePage(int chatBoxID, long cursor, boolean older, int limit) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.REQUEST_MESSAGE_PAGE;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,13 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+public record AskServerMetrics() implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.REQUEST_SERVER_METRICS;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Asks for the users changed since the version of the client's user directory (epoch 0 asks for all users)
+public record AskUserChanges(long epoch, long sinceVersion) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.REQUEST_USER_CHANGES;
+
+    public MessageType getType() {
+        return type;
+    }
+}
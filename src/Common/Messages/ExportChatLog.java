@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Asks the server to write the chat log of a chatbox to a file on the server; answered with a Notification
+public record ExportChatLog(int chatBoxID) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.EXPORT_CHATBOX_LOG;
+
+    public MessageType getType() {
+        return type;
+    }
+}
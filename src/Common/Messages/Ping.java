@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Heartbeat sent to an idle client; the client answers with a Pong carrying the same value
+public record Ping(long sentNanos) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.PING;
+
+    public MessageType getType() {
+        return type;
+    }
+}
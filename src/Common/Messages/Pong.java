@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Answer to a Ping
+public record Pong(long sentNanos) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.PONG;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -3,11 +3,18 @@ package Common.Messages;
 import Common.MessageInterface;
 import Common.MessageType;
 import Common.ChatBox.ChatBox;
+import Common.UserSummary.UserSummary;
 import java.io.Serializable;
+import java.util.List;
 
-public record SendChatBox(ChatBox chatBox) implements MessageInterface,Serializable {
+// The chatbox refers to users by ID; users holds the summaries needed to show its participants and messages
+public record SendChatBox(ChatBox chatBox, List<UserSummary> users) implements MessageInterface,Serializable {
     private static final MessageType type = MessageType.RETURN_CHATBOX;
 
+    public SendChatBox(ChatBox chatBox) {
+        this(chatBox, List.of());
+    }
+
     public MessageType getType() {
         return type;
     }
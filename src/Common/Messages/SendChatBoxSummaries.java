@@ -0,0 +1,17 @@
+package Common.Messages;
+
+import Common.ChatBoxSummary.ChatBoxSummary;
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+import java.util.List;
+
+// A page of chatbox summaries starting at offset; total is the number of chatboxes on the server
+public record SendChatBoxSummaries(List<ChatBoxSummary> summaries, int offset, int total)
+        implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.RETURN_CHATBOX_SUMMARIES;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,16 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// One chunk of a chat log: the lines of the messages after cursor, up to nextCursor (the sequence
+// number of the last message in the chunk); complete is true on the last chunk
+public record SendChatLogChunk(int chatBoxID, long cursor, String chatLog, long nextCursor, boolean complete)
+        implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.RETURN_CHATBOX_LOG_CHUNK;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,19 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import Common.ChatBox.ChatBox;
+import Common.UserSummary.UserSummary;
+import java.io.Serializable;
+import java.util.List;
+
+// A page of messages: the chatbox holds only the messages of the page, and the cursor and
+// direction are those of the request; users holds the summaries needed to show the page
+public record SendMessagePage(ChatBox chatBox, long cursor, boolean older, boolean hasMore, List<UserSummary> users)
+        implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.RETURN_MESSAGE_PAGE;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,14 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import java.io.Serializable;
+
+// Snapshot of the server's request metrics and connection gauges, as text
+public record SendServerMetrics(String report) implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.RETURN_SERVER_METRICS;
+
+    public MessageType getType() {
+        return type;
+    }
+}
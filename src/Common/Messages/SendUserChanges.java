@@ -0,0 +1,18 @@
+package Common.Messages;
+
+import Common.MessageInterface;
+import Common.MessageType;
+import Common.UserSummary.UserSummary;
+import java.io.Serializable;
+import java.util.List;
+
+// The users added or changed since the requested version and the IDs of the users removed; when full is
+// true, users is the whole directory and replaces the client's copy
+public record SendUserChanges(long epoch, long version, boolean full, List<UserSummary> users, int[] removedUserIDs)
+        implements MessageInterface, Serializable {
+    private static final MessageType type = MessageType.RETURN_USER_CHANGES;
+
+    public MessageType getType() {
+        return type;
+    }
+}
@@ -0,0 +1,443 @@
+package Common.Protocol;
+
+import Common.Admin.Admin;
+import Common.ChatBox.ChatBox;
+import Common.ChatBoxSummary.ChatBoxSummary;
+import Common.Message.Message;
+import Common.MessageInterface;
+import Common.MessageType;
+import Common.Messages.*;
+import Common.User.User;
+import Common.UserSummary.UserSummary;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * BinaryCodec is the compact alternative to Java serialization for framed
+ * connections. A payload starts with the MessageType ordinal followed by the
+ * fields of the matching record in Common.Messages, written with hand-written
+ * encoders. MessageType constants must therefore only ever be appended.
+ */
+public final class BinaryCodec {
+
+    private static final MessageType[] TYPES = MessageType.values();
+
+    private static final byte USER = 0;
+    private static final byte ADMIN = 1;
+
+    // Smallest encoding of the items of a list, used to check counts before allocating
+    private static final int MIN_USER_BYTES = 1; // null
+    private static final int MIN_USER_SUMMARY_BYTES = 10;
+    private static final int MIN_CHATBOX_SUMMARY_BYTES = 22;
+    private static final int MIN_MESSAGE_BYTES = 22;
+    private static final int MIN_CHATBOX_BYTES = 18;
+
+    private BinaryCodec() {
+    }
+
+    // Encodes a message
+    // INPUT: message (MessageInterface), out (DataOutputStream)
+    // OUTPUT: none
+    public static void encode(MessageInterface message, DataOutputStream out) throws IOException {
+        MessageType type = message.getType();
+        out.writeByte(type.ordinal());
+        switch (type) {
+            case LOGIN -> {
+                Login login = (Login) message;
+                writeString(out, login.username());
+                writeString(out, login.password());
+            }
+            case LOGIN_RESPONSE -> {
+                LoginResponse response = (LoginResponse) message;
+                writeUser(out, response.user());
+                writeChatBoxes(out, response.chatBoxList());
+            }
+            case LOGOUT, LOGOUT_RESPONSE, REQUEST_USER_LIST, REQUEST_CHATBOX_LIST, REQUEST_SERVER_METRICS -> {
+                // No fields
+            }
+            case CREATE_USER -> {
+                CreateUser createUser = (CreateUser) message;
+                writeString(out, createUser.username());
+                writeString(out, createUser.password());
+                out.writeBoolean(createUser.isAdmin());
+            }
+            case BAN_USER -> out.writeInt(((BanUser) message).userID());
+            case UNBAN_USER -> out.writeInt(((UnbanUser) message).userID());
+            case NOTIFICATION -> writeString(out, ((Notification) message).text());
+            case REQUEST_CHATBOX -> out.writeInt(((AskChatBox) message).chatBoxID());
+            case VIEW_CHATBOX_LOG -> out.writeInt(((AskChatLog) message).chatBoxID());
+            case HIDE_CHATBOX -> out.writeInt(((HideChatBox) message).chatBoxID());
+            case UNHIDE_CHATBOX -> out.writeInt(((UnhideChatBox) message).chatBoxID());
+            case RETURN_CHATBOX -> {
+                SendChatBox sendChatBox = (SendChatBox) message;
+                writeChatBox(out, sendChatBox.chatBox());
+                writeUserSummaries(out, sendChatBox.users());
+            }
+            case RETURN_USER_LIST -> writeUsers(out, ((SendUserList) message).userList());
+            case SEND_MESSAGE -> {
+                SendMessage sendMessage = (SendMessage) message;
+                writeMessage(out, sendMessage.message());
+                out.writeInt(sendMessage.chatBoxID());
+            }
+            case RETURN_CHATBOX_LOG -> writeString(out, ((SendChatLog) message).chatBoxLog());
+            case CREATE_CHATBOX -> {
+                CreateChat createChat = (CreateChat) message;
+                writeUsers(out, createChat.participants());
+                writeString(out, createChat.name());
+            }
+            case RETURN_CHATBOX_LIST -> writeChatBoxes(out, ((SendChatBoxList) message).getChatBoxes());
+            case REQUEST_MESSAGE_PAGE -> {
+                AskMessagePage askPage = (AskMessagePage) message;
+                out.writeInt(askPage.chatBoxID());
+                out.writeLong(askPage.cursor());
+                out.writeBoolean(askPage.older());
+                out.writeInt(askPage.limit());
+            }
+            case RETURN_MESSAGE_PAGE -> {
+                SendMessagePage page = (SendMessagePage) message;
+                writeChatBox(out, page.chatBox());
+                out.writeLong(page.cursor());
+                out.writeBoolean(page.older());
+                out.writeBoolean(page.hasMore());
+                writeUserSummaries(out, page.users());
+            }
+            case REQUEST_CHATBOX_LOG_CHUNK -> {
+                AskChatLogChunk askChunk = (AskChatLogChunk) message;
+                out.writeInt(askChunk.chatBoxID());
+                out.writeLong(askChunk.cursor());
+            }
+            case RETURN_CHATBOX_LOG_CHUNK -> {
+                SendChatLogChunk chunk = (SendChatLogChunk) message;
+                out.writeInt(chunk.chatBoxID());
+                out.writeLong(chunk.cursor());
+                writeString(out, chunk.chatLog());
+                out.writeLong(chunk.nextCursor());
+                out.writeBoolean(chunk.complete());
+            }
+            case EXPORT_CHATBOX_LOG -> out.writeInt(((ExportChatLog) message).chatBoxID());
+            case REQUEST_CHATBOX_SUMMARIES -> {
+                AskChatBoxSummaries askSummaries = (AskChatBoxSummaries) message;
+                out.writeInt(askSummaries.offset());
+                out.writeInt(askSummaries.limit());
+            }
+            case RETURN_CHATBOX_SUMMARIES -> {
+                SendChatBoxSummaries summaries = (SendChatBoxSummaries) message;
+                writeChatBoxSummaries(out, summaries.summaries());
+                out.writeInt(summaries.offset());
+                out.writeInt(summaries.total());
+            }
+            case REQUEST_USER_CHANGES -> {
+                AskUserChanges askChanges = (AskUserChanges) message;
+                out.writeLong(askChanges.epoch());
+                out.writeLong(askChanges.sinceVersion());
+            }
+            case RETURN_USER_CHANGES -> {
+                SendUserChanges changes = (SendUserChanges) message;
+                out.writeLong(changes.epoch());
+                out.writeLong(changes.version());
+                out.writeBoolean(changes.full());
+                writeUserSummaries(out, changes.users());
+                writeUserIDs(out, changes.removedUserIDs());
+            }
+            case PING -> out.writeLong(((Ping) message).sentNanos());
+            case PONG -> out.writeLong(((Pong) message).sentNanos());
+            case RETURN_SERVER_METRICS -> writeString(out, ((SendServerMetrics) message).report());
+            default -> throw new IOException("No binary encoding for message type " + type);
+        }
+    }
+
+    // Decodes a message
+    // INPUT: in (DataInputStream)
+    // OUTPUT: MessageInterface
+    public static MessageInterface decode(DataInputStream in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TYPES.length) {
+            throw new IOException("Unknown message type " + ordinal);
+        }
+        return switch (TYPES[ordinal]) {
+            case LOGIN -> new Login(readString(in), readString(in));
+            case LOGIN_RESPONSE -> new LoginResponse(readUser(in), readChatBoxes(in));
+            case LOGOUT -> new Logout();
+            case LOGOUT_RESPONSE -> new LogoutResponse();
+            case REQUEST_USER_LIST -> new AskUserList();
+            case REQUEST_CHATBOX_LIST -> new AskChatBoxList();
+            case CREATE_USER -> new CreateUser(readString(in), readString(in), in.readBoolean());
+            case BAN_USER -> new BanUser(in.readInt());
+            case UNBAN_USER -> new UnbanUser(in.readInt());
+            case NOTIFICATION -> new Notification(readString(in));
+            case REQUEST_CHATBOX -> new AskChatBox(in.readInt());
+            case VIEW_CHATBOX_LOG -> new AskChatLog(in.readInt());
+            case HIDE_CHATBOX -> new HideChatBox(in.readInt());
+            case UNHIDE_CHATBOX -> new UnhideChatBox(in.readInt());
+            case RETURN_CHATBOX -> new SendChatBox(readChatBox(in), readUserSummaries(in));
+            case RETURN_USER_LIST -> new SendUserList(readUsers(in));
+            case SEND_MESSAGE -> {
+                Message message = readMessage(in);
+                yield new SendMessage(message, in.readInt());
+            }
+            case RETURN_CHATBOX_LOG -> new SendChatLog(readString(in));
+            case CREATE_CHATBOX -> {
+                List<User> participants = readUsers(in);
+                yield new CreateChat(participants, readString(in));
+            }
+            case RETURN_CHATBOX_LIST -> new SendChatBoxList(readChatBoxes(in));
+            case REQUEST_MESSAGE_PAGE -> new AskMessagePage(in.readInt(), in.readLong(), in.readBoolean(), in.readInt());
+            case RETURN_MESSAGE_PAGE -> {
+                ChatBox chatBox = readChatBox(in);
+                yield new SendMessagePage(chatBox, in.readLong(), in.readBoolean(), in.readBoolean(), readUserSummaries(in));
+            }
+            case REQUEST_CHATBOX_LOG_CHUNK -> new AskChatLogChunk(in.readInt(), in.readLong());
+            case RETURN_CHATBOX_LOG_CHUNK ->
+                    new SendChatLogChunk(in.readInt(), in.readLong(), readString(in), in.readLong(), in.readBoolean());
+            case EXPORT_CHATBOX_LOG -> new ExportChatLog(in.readInt());
+            case REQUEST_CHATBOX_SUMMARIES -> new AskChatBoxSummaries(in.readInt(), in.readInt());
+            case RETURN_CHATBOX_SUMMARIES -> new SendChatBoxSummaries(readChatBoxSummaries(in), in.readInt(), in.readInt());
+            case REQUEST_USER_CHANGES -> new AskUserChanges(in.readLong(), in.readLong());
+            case RETURN_USER_CHANGES ->
+                    new SendUserChanges(in.readLong(), in.readLong(), in.readBoolean(), readUserSummaries(in), readUserIDs(in));
+            case PING -> new Ping(in.readLong());
+            case PONG -> new Pong(in.readLong());
+            case REQUEST_SERVER_METRICS -> new AskServerMetrics();
+            case RETURN_SERVER_METRICS -> new SendServerMetrics(readString(in));
+            default -> throw new IOException("No binary decoding for message type " + TYPES[ordinal]);
+        };
+    }
+
+    // *Checks a length or count read from the payload before anything is allocated for it*
+    // INPUT: in (DataInputStream), count (int), minItemBytes (int) smallest encoding of one item
+    // OUTPUT: count, or IOException if it is negative or more than the rest of the payload can hold
+    private static int checkCount(DataInputStream in, int count, int minItemBytes) throws IOException {
+        if (count < 0 || (long) count * minItemBytes > in.available()) {
+            throw new IOException("Invalid length " + count + " with " + in.available() + " bytes left");
+        }
+        return count;
+    }
+
+    // Field encoders
+
+    // Strings are length-prefixed UTF-8 (-1 for null) so chat logs are not limited to 64KB like writeUTF
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[checkCount(in, length, 1)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeBoolean(time != null);
+        if (time != null) {
+            out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(time.getNano());
+        }
+    }
+
+    public static LocalDateTime readTime(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        long seconds = in.readLong();
+        return LocalDateTime.ofEpochSecond(seconds, in.readInt(), ZoneOffset.UTC);
+    }
+
+    public static void writeUser(DataOutputStream out, User user) throws IOException {
+        out.writeBoolean(user != null);
+        if (user != null) {
+            out.writeByte(user instanceof Admin ? ADMIN : USER);
+            out.writeInt(user.getUserID());
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            out.writeBoolean(user.isBanned());
+        }
+    }
+
+    public static User readUser(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte kind = in.readByte();
+        int userID = in.readInt();
+        String username = readString(in);
+        String password = readString(in);
+        boolean banned = in.readBoolean();
+        return kind == ADMIN ? new Admin(userID, username, password, banned)
+                             : new User(userID, username, password, banned);
+    }
+
+    public static void writeUsers(DataOutputStream out, Collection<User> users) throws IOException {
+        if (users == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(users.size());
+        for (User user : users) {
+            writeUser(out, user);
+        }
+    }
+
+    public static List<User> readUsers(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == -1) {
+            return null;
+        }
+        List<User> users = new ArrayList<>(checkCount(in, count, MIN_USER_BYTES));
+        for (int i = 0; i < count; i++) {
+            users.add(readUser(in));
+        }
+        return users;
+    }
+
+    // userIDs are written as a count (-1 for null) followed by the IDs
+    public static void writeUserIDs(DataOutputStream out, int[] userIDs) throws IOException {
+        if (userIDs == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(userIDs.length);
+        for (int userID : userIDs) {
+            out.writeInt(userID);
+        }
+    }
+
+    public static int[] readUserIDs(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == -1) {
+            return null;
+        }
+        int[] userIDs = new int[checkCount(in, count, Integer.BYTES)];
+        for (int i = 0; i < count; i++) {
+            userIDs[i] = in.readInt();
+        }
+        return userIDs;
+    }
+
+    public static void writeUserSummaries(DataOutputStream out, List<UserSummary> users) throws IOException {
+        out.writeInt(users == null ? 0 : users.size());
+        if (users != null) {
+            for (UserSummary user : users) {
+                out.writeInt(user.userID());
+                writeString(out, user.username());
+                out.writeBoolean(user.banned());
+                out.writeBoolean(user.online());
+            }
+        }
+    }
+
+    public static List<UserSummary> readUserSummaries(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<UserSummary> users = new ArrayList<>(checkCount(in, count, MIN_USER_SUMMARY_BYTES));
+        for (int i = 0; i < count; i++) {
+            users.add(new UserSummary(in.readInt(), readString(in), in.readBoolean(), in.readBoolean()));
+        }
+        return users;
+    }
+
+    public static void writeChatBoxSummaries(DataOutputStream out, List<ChatBoxSummary> summaries) throws IOException {
+        out.writeInt(summaries.size());
+        for (ChatBoxSummary summary : summaries) {
+            out.writeInt(summary.chatBoxID());
+            writeString(out, summary.name());
+            out.writeBoolean(summary.hidden());
+            out.writeInt(summary.participantCount());
+            out.writeLong(summary.messageCount());
+            writeTime(out, summary.lastUpdated());
+        }
+    }
+
+    public static List<ChatBoxSummary> readChatBoxSummaries(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<ChatBoxSummary> summaries = new ArrayList<>(checkCount(in, count, MIN_CHATBOX_SUMMARY_BYTES));
+        for (int i = 0; i < count; i++) {
+            summaries.add(new ChatBoxSummary(in.readInt(), readString(in), in.readBoolean(), in.readInt(), in.readLong(),
+                    readTime(in)));
+        }
+        return summaries;
+    }
+
+    public static void writeMessage(DataOutputStream out, Message message) throws IOException {
+        out.writeInt(message.getMessageID());
+        out.writeInt(message.getSenderID());
+        writeString(out, message.getContent());
+        writeTime(out, message.getTimestamp());
+        out.writeBoolean(message.isHidden());
+        out.writeLong(message.getSequenceNumber());
+    }
+
+    public static Message readMessage(DataInputStream in) throws IOException {
+        int messageID = in.readInt();
+        int senderID = in.readInt();
+        String content = readString(in);
+        LocalDateTime timestamp = readTime(in);
+        boolean hidden = in.readBoolean();
+        return new Message(messageID, senderID, content, timestamp, hidden, in.readLong());
+    }
+
+    public static void writeChatBox(DataOutputStream out, ChatBox chatBox) throws IOException {
+        out.writeInt(chatBox.getChatBoxID());
+        writeString(out, chatBox.getName());
+        out.writeBoolean(chatBox.isHidden());
+        writeTime(out, chatBox.getCreationTime());
+        writeUserIDs(out, chatBox.getParticipantIDs());
+        Collection<Message> messages = chatBox.getMessages();
+        out.writeInt(messages.size());
+        for (Message message : messages) {
+            writeMessage(out, message);
+        }
+    }
+
+    public static ChatBox readChatBox(DataInputStream in) throws IOException {
+        int chatBoxID = in.readInt();
+        String name = readString(in);
+        boolean hidden = in.readBoolean();
+        LocalDateTime creationTime = readTime(in);
+        int[] participantIDs = readUserIDs(in);
+        int count = in.readInt();
+        List<Message> messages = new ArrayList<>(checkCount(in, count, MIN_MESSAGE_BYTES));
+        for (int i = 0; i < count; i++) {
+            messages.add(readMessage(in));
+        }
+        return ChatBox.restore(chatBoxID, name, participantIDs,
+                messages, hidden, creationTime);
+    }
+
+    public static void writeChatBoxes(DataOutputStream out, List<ChatBox> chatBoxes) throws IOException {
+        out.writeInt(chatBoxes == null ? -1 : chatBoxes.size());
+        if (chatBoxes != null) {
+            for (ChatBox chatBox : chatBoxes) {
+                writeChatBox(out, chatBox);
+            }
+        }
+    }
+
+    public static List<ChatBox> readChatBoxes(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count == -1) {
+            return null;
+        }
+        List<ChatBox> chatBoxes = new ArrayList<>(checkCount(in, count, MIN_CHATBOX_BYTES));
+        for (int i = 0; i < count; i++) {
+            chatBoxes.add(readChatBox(in));
+        }
+        return chatBoxes;
+    }
+}
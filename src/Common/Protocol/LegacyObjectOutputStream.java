@@ -0,0 +1,41 @@
+package Common.Protocol;
+
+import Common.User.User;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.function.IntFunction;
+
+/**
+ * LegacyObjectOutputStream is the object stream written to clients that connect
+ * without a WireProtocol handshake. Such a client may be built from the classes
+ * the protocol started with, so classes whose serialized form has changed also
+ * write their old fields when they are written to this stream (see ChatBox).
+ * Fields and classes an old client does not know are skipped by its reader.
+ */
+public class LegacyObjectOutputStream extends ObjectOutputStream {
+
+    // Attributes
+    private final IntFunction<User> userLookup;
+
+    // Constructor
+    // INPUT: out (OutputStream), userLookup (IntFunction<User>) finding a user by ID (null if unknown)
+    public LegacyObjectOutputStream(OutputStream out, IntFunction<User> userLookup) throws IOException {
+        super(out);
+        this.userLookup = userLookup;
+    }
+
+    // Returns a participant as older chatboxes held it, without the password, or null if the user is unknown
+    // INPUT: userID (int)
+    // OUTPUT: User
+    public User getParticipant(int userID) {
+        User user = userLookup.apply(userID);
+        if (user == null) {
+            return null;
+        }
+        User participant = new User(user.getUserID(), user.getUsername(), null, user.isBanned());
+        participant.setOnline(user.isOnline());
+        return participant;
+    }
+}
@@ -0,0 +1,107 @@
+package Common.Protocol;
+
+import Common.MessageInterface;
+
+import java.io.*;
+
+/**
+ * WireProtocol defines the framed connection format. A framed connection starts
+ * with a handshake (MAGIC followed by a one byte codec id), after which every
+ * message is sent as a 4 byte length prefix followed by the encoded payload.
+ * Clients that open a plain Java object stream instead (header 0xACED) are
+ * still accepted by the blocking transport.
+ */
+public final class WireProtocol {
+
+    // "CHAT" - cannot be confused with the 0xACED header of a Java object stream
+    public static final int MAGIC = 0x43484154;
+    public static final int HANDSHAKE_LENGTH = 5;
+    public static final byte CODEC_SERIALIZED = 0;
+    public static final byte CODEC_BINARY = 1;
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    private WireProtocol() {
+    }
+
+    // Returns true if the codec id is one this build understands
+    public static boolean isSupportedCodec(byte codec) {
+        return codec == CODEC_SERIALIZED || codec == CODEC_BINARY;
+    }
+
+    // Encodes a message into a complete frame (length prefix + payload)
+    // INPUT: message (MessageInterface), codec (byte)
+    // OUTPUT: byte[] frame
+    public static byte[] encodeFrame(MessageInterface message, byte codec) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(codec == CODEC_BINARY ? 64 : 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // Placeholder for the length prefix
+        if (codec == CODEC_BINARY) {
+            BinaryCodec.encode(message, out);
+            out.flush();
+        } else {
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeObject(message);
+            }
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - 4;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+
+    // Decodes the payload of a single frame
+    // INPUT: payload (byte[]), offset (int), length (int), codec (byte)
+    // OUTPUT: MessageInterface
+    public static MessageInterface decodePayload(byte[] payload, int offset, int length, byte codec) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(payload, offset, length);
+        if (codec == CODEC_BINARY) {
+            return BinaryCodec.decode(new DataInputStream(bytes));
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(bytes)) {
+            return (MessageInterface) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IOException("Malformed frame payload", e);
+        }
+    }
+
+    // Writes the connection handshake
+    // INPUT: out (DataOutputStream), codec (byte)
+    // OUTPUT: none
+    public static void writeHandshake(DataOutputStream out, byte codec) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(codec);
+        out.flush();
+    }
+
+    // Writes a single frame to a blocking stream
+    // INPUT: out (OutputStream), message (MessageInterface), codec (byte)
+    // OUTPUT: none
+    public static void writeFrame(OutputStream out, MessageInterface message, byte codec) throws IOException {
+        out.write(encodeFrame(message, codec));
+        out.flush();
+    }
+
+    // Reads a single frame from a blocking stream
+    // INPUT: in (DataInputStream), codec (byte)
+    // OUTPUT: MessageInterface
+    public static MessageInterface readFrame(DataInputStream in, byte codec) throws IOException {
+        byte[] payload = readPayload(in);
+        return decodePayload(payload, 0, payload.length, codec);
+    }
+
+    // Reads the payload of a single frame from a blocking stream, without decoding it
+    // INPUT: in (DataInputStream)
+    // OUTPUT: byte[]
+    public static byte[] readPayload(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+}
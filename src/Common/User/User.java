@@ -25,6 +25,15 @@ public class User implements Serializable {
         this.isBanned = false;
     }
     
+    // Constructor for a user decoded from the wire (keeps the existing ID)
+    public User(int userID, String username, String password, boolean isBanned) {
+        this.userID = userID;
+        this.username = username;
+        this.password = password;
+        this.isOnline = false;
+        this.isBanned = isBanned;
+    }
+
     public static void setUserIdGenerator(int value) {
         userIdGenerator.set(value);
     }
@@ -0,0 +1,91 @@
+package Common.UserDirectory;
+
+import Common.UserSummary.UserSummary;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * UserDirectory is a shared cache of user summaries by userID. Chatboxes only
+ * hold the IDs of their participants; names and ban state are looked up here
+ * when messages are rendered, and the cache is refreshed from the summaries the
+ * server sends along with chatboxes and message pages. The directory also
+ * remembers the version of the server's user directory it was last synced to,
+ * so it only asks for the users changed since.
+ */
+public class UserDirectory {
+
+    // Attributes
+    private final ConcurrentHashMap<Integer, UserSummary> users;
+    private long epoch; // Run of the server the directory was synced with (0 before the first sync)
+    private long version; // Version of the server's directory it was synced to
+
+    // Constructor
+    public UserDirectory() {
+        this.users = new ConcurrentHashMap<>();
+    }
+
+    // Adds or replaces the summary of a user
+    // INPUT: user (UserSummary)
+    // OUTPUT: none
+    public void put(UserSummary user) {
+        users.put(user.userID(), user);
+    }
+
+    // Adds or replaces the summaries of several users
+    // INPUT: users (Collection<UserSummary>, may be null)
+    // OUTPUT: none
+    public void putAll(Collection<UserSummary> users) {
+        if (users != null) {
+            users.forEach(this::put);
+        }
+    }
+
+    // Returns the summary of a user
+    // INPUT: userID (int)
+    // OUTPUT: UserSummary or null if the user is not known
+    public UserSummary get(int userID) {
+        return users.get(userID);
+    }
+
+    // Applies the users changed on the server; a full set of users replaces every user known
+    // INPUT: epoch (long), version (long), full (boolean), changed (Collection<UserSummary>), removedUserIDs (int[])
+    // OUTPUT: none
+    public synchronized void applyChanges(long epoch, long version, boolean full, Collection<UserSummary> changed,
+                                          int[] removedUserIDs) {
+        if (full) {
+            users.clear();
+        }
+        putAll(changed);
+        if (removedUserIDs != null) {
+            for (int userID : removedUserIDs) {
+                users.remove(userID);
+            }
+        }
+        this.epoch = epoch;
+        this.version = version;
+    }
+
+    public synchronized long getEpoch() {
+        return epoch;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    // Returns every user known, by userID
+    public List<UserSummary> getUsers() {
+        List<UserSummary> all = new ArrayList<>(users.values());
+        all.sort(Comparator.comparingInt(UserSummary::userID));
+        return all;
+    }
+
+    // Returns the number of users known
+    public int size() {
+        return users.size();
+    }
+}
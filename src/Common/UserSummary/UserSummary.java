@@ -0,0 +1,22 @@
+package Common.UserSummary;
+
+import Common.User.User;
+
+import java.io.Serializable;
+
+// What a client needs to show a user: chatboxes and frames refer to users by ID and carry these
+// instead of full User objects (which include the password)
+public record UserSummary(int userID, String username, boolean banned, boolean online) implements Serializable {
+
+    // Constructor for a summary without the online state
+    public UserSummary(int userID, String username, boolean banned) {
+        this(userID, username, banned, false);
+    }
+
+    // Builds the summary of a user
+    // INPUT: user (User)
+    // OUTPUT: UserSummary
+    public static UserSummary of(User user) {
+        return new UserSummary(user.getUserID(), user.getUsername(), user.isBanned(), user.isOnline());
+    }
+}
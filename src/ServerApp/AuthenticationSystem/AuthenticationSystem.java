@@ -1,30 +1,76 @@
 package ServerApp.AuthenticationSystem;
 
 import Common.Admin.Admin;
+import Common.Admin.UserAdministration;
 import Common.User.User;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+import ServerApp.UserChangeLog.UserChangeLog;
 
 import java.io.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+import java.util.Locale;
 import java.nio.file.*;
 
 /**
  * AuthenticationSystem manages user authentication and user-related operations.
  */
-public class AuthenticationSystem {
+public class AuthenticationSystem implements UserAdministration {
     // Attributes
     public static ConcurrentHashMap<Integer, User> userDB;
+    // Case-normalized username -> userID, and the reverse for renames; maintained alongside userDB
+    private final ConcurrentHashMap<String, Integer> usernameIndex;
+    private final ConcurrentHashMap<Integer, String> indexedUsernames;
     private final String usersDirectory;
+    // A ReentrantLock rather than synchronized so virtual threads do not pin their carrier during file I/O
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final PersistenceQueue persistenceQueue; // Writes user files off the caller's thread unless in SYNC mode
+    private final UserChangeLog userChanges; // Versions the user directory for incremental client syncs
+    private static final int USER_CHANGES_KEPT = 4096;
+    private long loadNanos; // Startup timings
+    private long indexNanos;
 
     // Constructor
     // Initializes AuthenticationSystem and loads existing users from files
     public AuthenticationSystem() {
-        this.usersDirectory = "users"; // Directory to store user files
+        this(new PersistenceQueue());
+    }
+
+    // Constructor
+    // *Initializes AuthenticationSystem with the persistence queue shared with StorageManager*
+    // INPUT: persistenceQueue (PersistenceQueue)
+    public AuthenticationSystem(PersistenceQueue persistenceQueue) {
+        this(persistenceQueue, "users"); // Directory to store user files
+    }
+
+    // Constructor
+    // *Initializes AuthenticationSystem with its user files in a given directory*
+    // INPUT: persistenceQueue (PersistenceQueue), usersDirectory (String)
+    public AuthenticationSystem(PersistenceQueue persistenceQueue, String usersDirectory) {
+        this.persistenceQueue = persistenceQueue;
+        this.usersDirectory = usersDirectory;
         this.userDB = new ConcurrentHashMap<>();
+        this.usernameIndex = new ConcurrentHashMap<>();
+        this.indexedUsernames = new ConcurrentHashMap<>();
+        this.userChanges = new UserChangeLog(USER_CHANGES_KEPT);
         createUsersDirectory();
         loadUsersFromFiles(); // Load existing users from files
     }
 
+    // Startup timings: reading the user files, and building the username index
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    public long getIndexNanos() {
+        return indexNanos;
+    }
+
     // Creates the users directory if it doesn't exist
     private void createUsersDirectory() {
         File directory = new File(usersDirectory);
@@ -42,6 +88,7 @@ public class AuthenticationSystem {
         User userToBan = userDB.get(userID);
         if (userToBan != null && !userToBan.isBanned()) {
             userToBan.setBanned(true);
+            userChanges.record(userID);
             return true;
         }
         return false;
@@ -51,6 +98,7 @@ public class AuthenticationSystem {
         User userToUnban = userDB.get(userID);
         if (userToUnban != null && userToUnban.isBanned()) {
             userToUnban.setBanned(false);
+            userChanges.record(userID);
             return true;
         }
         return false;
@@ -62,47 +110,97 @@ public class AuthenticationSystem {
     }
 
     
+    // Normalizes a username for the index (usernames are case-insensitive)
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+
+    // Adds a user to the username index
+    // OUTPUT: false if another user already holds the username
+    private boolean indexUsername(User user) {
+        String key = normalize(user.getUsername());
+        Integer existing = usernameIndex.putIfAbsent(key, user.getUserID());
+        if (existing != null && existing != user.getUserID()) {
+            return false;
+        }
+        indexedUsernames.put(user.getUserID(), key);
+        return true;
+    }
+
+    // Removes a user from the username index
+    private void unindexUsername(int userID) {
+        String key = indexedUsernames.remove(userID);
+        if (key != null) {
+            usernameIndex.remove(key, userID);
+        }
+    }
+
     // Registers a user in the system
     public boolean registerUser(User user) {
-        if (user != null && !usernameExists(user.getUsername())) {
+        if (user != null && indexUsername(user)) { // Claims the username atomically
             userDB.put(user.getUserID(), user);
             saveUserToFile(user); // Save the user to its individual file
+            userChanges.record(user.getUserID());
             return true;
         }
         return false;
     }
 
-    // Finds a user by username
+    // Finds a user by username (case-insensitive)
     public User findUserByUsername(String username) {
-        return userDB.values().stream()
-            .filter(u -> u.getUsername().equals(username))
-            .findFirst()
-            .orElse(null);
+        if (username == null) {
+            return null;
+        }
+        Integer userID = usernameIndex.get(normalize(username));
+        return userID != null ? userDB.get(userID) : null;
     }
 
-    // Checks if a username already exists
+    // Checks if a username already exists (case-insensitive)
     private boolean usernameExists(String username) {
-        return userDB.values().stream().anyMatch(u -> u.getUsername().equals(username));
+        return usernameIndex.containsKey(normalize(username));
     }
 
     // Validates user credentials during login
     public User validateCredentials(String username, String password) {
-        for (User user : userDB.values()) {
-            if (user.getUsername().equalsIgnoreCase(username) && user.getPassword().equals(password)) {
+        User user = findUserByUsername(username);
+        if (user != null && user.getPassword().equals(password)) {
 //            	 If the user is online already, reject double login
-            	if (user.isOnline()) {
-            		return null;
-            	}
-                if(!user.isBanned()) {
-                    user.setOnline(true);
-                    saveUserToFile(user);// Save updated user to file
-                }
-                return user;
+            if (user.isOnline()) {
+                return null;
+            }
+            if(!user.isBanned()) {
+                user.setOnline(true);
+                saveUserToFile(user);// Save updated user to file
+                userChanges.record(user.getUserID());
             }
+            return user;
         }
         return null;
     }
 
+    // Renames a user, keeping the username index in sync
+    // INPUT: userID (int), newUsername (String)
+    // OUTPUT: true if renamed, false if the user does not exist or the name is taken
+    public boolean renameUser(int userID, String newUsername) {
+        User user = userDB.get(userID);
+        if (user == null || newUsername == null) {
+            return false;
+        }
+        String newKey = normalize(newUsername);
+        Integer existing = usernameIndex.putIfAbsent(newKey, userID);
+        if (existing != null && existing != userID) {
+            return false;
+        }
+        String oldKey = indexedUsernames.put(userID, newKey);
+        if (oldKey != null && !oldKey.equals(newKey)) {
+            usernameIndex.remove(oldKey, userID);
+        }
+        user.setUsername(newUsername);
+        saveUserToFile(user); // Save updated user to file
+        userChanges.record(userID);
+        return true;
+    }
+
     // Resets user password
     public boolean resetPassword(int userID, String newPassword) {
         User user = userDB.get(userID);
@@ -118,7 +216,9 @@ public class AuthenticationSystem {
     public boolean deleteUser(int userID) {
         if (userDB.containsKey(userID)) {
             userDB.remove(userID);
+            unindexUsername(userID);
             deleteUserFile(userID); // Delete user's file
+            userChanges.record(userID);
             return true;
         }
         return false;
@@ -130,6 +230,7 @@ public class AuthenticationSystem {
         if (user != null && user.isOnline()) {
             user.setOnline(false);
             saveUserToFile(user); // Save updated user to file
+            userChanges.record(userID);
             return true;
         }
         return false;
@@ -143,8 +244,16 @@ public class AuthenticationSystem {
     // Updates a user's information in the system
     public boolean updateUser(User user) {
         if (user != null && userDB.containsKey(user.getUserID())) {
+            if (!normalize(user.getUsername()).equals(indexedUsernames.get(user.getUserID()))) {
+                // The username was changed on the object: move its index entry
+                unindexUsername(user.getUserID());
+                if (!indexUsername(user)) {
+                    return false;
+                }
+            }
             userDB.put(user.getUserID(), user);
             saveUserToFile(user); // Save updated user to file
+            userChanges.record(user.getUserID());
             return true;
         }
         return false;
@@ -155,62 +264,91 @@ public class AuthenticationSystem {
         return userDB.values();
     }
 
+    // Retrieves the versions of the changes to users
+    public UserChangeLog getUserChanges() {
+        return userChanges;
+    }
+
     // Retrieves the user database
     public ConcurrentHashMap<Integer, User> getUserDB() {
         return userDB;
     }
 
-    // Saves a single user to its individual file
+    // Saves a single user to its individual file. The user is serialized on the caller's thread;
+    // the file is written by the persistence queue (later writes of the same file win)
     private void saveUserToFile(User user) {
-        synchronized (this) { // Ensure thread safety during save
-            String fileName = usersDirectory + File.separator + user.getUserID(); // Filename is userID
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-                oos.writeObject(user);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        Path path = Paths.get(usersDirectory, String.valueOf(user.getUserID())); // Filename is userID
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(user);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
         }
+        persistenceQueue.submit(path, () -> {
+            PersistenceQueue.writeFile(path, bytes.toByteArray());
+            return null;
+        });
     }
 
-    // Deletes a user's file
+    // Deletes a user's file (queued behind any pending save of the same file)
     private void deleteUserFile(int userID) {
-        String fileName = usersDirectory + File.separator + userID;
-        File file = new File(fileName);
-        if (file.exists()) {
-            boolean deleted = file.delete();
-            if (!deleted) {
-                System.err.println("Failed to delete user file: " + fileName);
-            }
-        }
+        Path path = Paths.get(usersDirectory, String.valueOf(userID));
+        persistenceQueue.submit(path, () -> {
+            PersistenceQueue.deleteFile(path);
+            return null;
+        });
     }
 
-    // Loads users from individual files into memory
+    // Loads users from individual files into memory. The files are read in parallel;
+    // the users are then indexed in userID order so duplicate usernames resolve deterministically
     private void loadUsersFromFiles() {
-        synchronized (this) {
-            int maxUserId = 0;
-            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Paths.get(usersDirectory))) {
-                for (Path path : directoryStream) {
-                	if (Files.isDirectory(path) || !path.getFileName().toString().matches("\\d+")) {
-                        continue;
-                    }
-                    try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path.toFile()))) {
-                        User user = (User) ois.readObject();
-                        userDB.put(user.getUserID(), user);
-                        if (user.getUserID() > maxUserId) {
-                            maxUserId = user.getUserID();
-                        }
-                    } catch (IOException | ClassNotFoundException e) {
-                        System.err.println("Error loading user from file: " + path.getFileName());
-                        e.printStackTrace();
-                    }
-                }
-                // **Update userIdGenerator**
-                User.setUserIdGenerator(maxUserId);
-                System.out.println("Loaded " + userDB.size() + " users from files.");
+        fileLock.lock();
+        try {
+            long start = System.nanoTime();
+            List<User> users;
+            try (Stream<Path> paths = Files.list(Paths.get(usersDirectory))) {
+                users = paths.filter(path -> Files.isRegularFile(path) && path.getFileName().toString().matches("\\d+"))
+                             .toList()
+                             .parallelStream()
+                             .map(this::loadUserFromFile)
+                             .filter(Objects::nonNull)
+                             .sorted(Comparator.comparingInt(User::getUserID))
+                             .toList();
             } catch (IOException e) {
                 System.err.println("Error reading user files from directory: " + usersDirectory);
                 e.printStackTrace();
+                return;
             }
+            loadNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int maxUserId = 0;
+            for (User user : users) {
+                user.setOnline(false); // No session survives a restart, so nobody is locked out after a crash
+                if (!indexUsername(user)) {
+                    System.err.println("Duplicate username ignored in index: " + user.getUsername());
+                }
+                userDB.put(user.getUserID(), user);
+                maxUserId = Math.max(maxUserId, user.getUserID());
+            }
+            // **Update userIdGenerator**
+            User.setUserIdGenerator(maxUserId);
+            indexNanos = System.nanoTime() - start;
+            System.out.println("Loaded " + userDB.size() + " users from files.");
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    // Reads a single user file, or returns null if it cannot be read
+    private User loadUserFromFile(Path path) {
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return (User) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error loading user from file: " + path.getFileName());
+            e.printStackTrace();
+            return null;
         }
     }
 }
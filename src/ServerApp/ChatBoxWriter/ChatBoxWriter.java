@@ -0,0 +1,129 @@
+package ServerApp.ChatBoxWriter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * ChatBoxWriter gives every chatbox a single owner thread. Chatboxes are spread
+ * over a fixed number of shards by chatBoxID, and every change to a chatbox runs
+ * on the thread of its shard in the order it was submitted, so a chatbox is only
+ * ever changed by one thread while chatboxes on different shards are changed in
+ * parallel. A change must not wait for a change to another chatbox.
+ */
+public class ChatBoxWriter {
+
+    // Attributes
+    private final List<ExecutorService> shards;
+    private final ThreadLocal<Integer> currentShard; // Shard owned by the calling thread, if any
+
+    // Constructor
+    // *Starts one daemon thread per shard*
+    // INPUT: shardCount (int)
+    public ChatBoxWriter(int shardCount) {
+        this.currentShard = new ThreadLocal<>();
+        this.shards = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, shardCount); i++) {
+            int shard = i;
+            shards.add(Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(() -> {
+                    currentShard.set(shard);
+                    task.run();
+                }, "chatbox-writer-" + shard);
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+    }
+
+    // Runs a change on the owner of a chatbox
+    // INPUT: chatBoxID (int), change (Supplier<T>)
+    // OUTPUT: CompletableFuture completed with the result of the change, or failed with a
+    //         RejectedExecutionException once the writer is closed
+    public <T> CompletableFuture<T> submit(int chatBoxID, Supplier<T> change) {
+        int shard = shardOf(chatBoxID);
+        Integer current = currentShard.get();
+        if (current != null && current == shard) {
+            return CompletableFuture.completedFuture(change.get()); // Already on the owner
+        }
+        try {
+            return CompletableFuture.supplyAsync(change, shards.get(shard));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e); // Closed: running it here could race another caller
+        }
+    }
+
+    // Runs a task on the owner of a chatbox once a stage has completed, without holding the owner
+    // while it waits (used to push a change only after it has been persisted)
+    // INPUT: chatBoxID (int), stage (CompletableFuture<?>), task (Runnable)
+    // OUTPUT: none
+    public void executeAfter(int chatBoxID, CompletableFuture<?> stage, Runnable task) {
+        Integer current = currentShard.get();
+        if (stage.isDone() && current != null && current == shardOf(chatBoxID)) {
+            task.run(); // Nothing to wait for
+            return;
+        }
+        try {
+            stage.whenCompleteAsync((result, error) -> task.run(), shards.get(shardOf(chatBoxID)));
+        } catch (RejectedExecutionException e) {
+            System.err.println("Chatbox writer closed: task for chatbox " + chatBoxID + " dropped.");
+        }
+    }
+
+    // Runs a change on the owner of a chatbox and waits for it
+    // INPUT: chatBoxID (int), change (Supplier<T>)
+    // OUTPUT: the result of the change
+    public <T> T call(int chatBoxID, Supplier<T> change) {
+        return join(submit(chatBoxID, change));
+    }
+
+    // Waits for a submitted change, rethrowing what it threw
+    // INPUT: future (CompletableFuture<T>)
+    // OUTPUT: the result of the change
+    public static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // Returns the shard that owns a chatbox
+    public int shardOf(int chatBoxID) {
+        return Math.floorMod(chatBoxID, shards.size());
+    }
+
+    // Returns the number of shards
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // Runs the changes already submitted and stops the shard threads
+    public void close() {
+        for (ExecutorService shard : shards) {
+            shard.shutdown();
+        }
+        for (ExecutorService shard : shards) {
+            try {
+                if (!shard.awaitTermination(5, TimeUnit.SECONDS)) {
+                    System.err.println("Chatbox writer did not finish its pending changes.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
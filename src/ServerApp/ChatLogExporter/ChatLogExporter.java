@@ -0,0 +1,166 @@
+package ServerApp.ChatLogExporter;
+
+import Common.Message.Message;
+import Common.Messages.SendChatLogChunk;
+import ServerApp.MessageHandler.MessageHandler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatLogExporter reads the chat log of a chatbox a bounded chunk at a time.
+ * The log is sent to the client as a series of chunks, each carrying the
+ * sequence number to continue from, or written to a file on the server by a
+ * dedicated thread. Either way only one chunk of the log is held in memory and
+ * the chatbox's owner thread is only held while a chunk is copied.
+ */
+public class ChatLogExporter {
+
+    public static final int CHUNK_MESSAGES = 500; // Most messages in one chunk
+    public static final int CHUNK_CHARACTERS = 64 * 1024; // Characters after which a chunk is closed
+    private static final int BUFFER_SIZE = 64 * 1024; // Bytes written to an export file at once
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    // Attributes
+    private final MessageHandler messageHandler;
+    private final Path exportDirectory;
+    private final ExecutorService exportThread;
+
+    // Constructor
+    // INPUT: messageHandler (MessageHandler), exportDirectory (Path)
+    public ChatLogExporter(MessageHandler messageHandler, Path exportDirectory) {
+        this.messageHandler = messageHandler;
+        this.exportDirectory = exportDirectory;
+        this.exportThread = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "chatlog-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Formats one line of a chat log
+    // INPUT: message (Message), line (StringBuilder)
+    // OUTPUT: none
+    public static void appendLine(Message message, StringBuilder line) {
+        line.append(message.getTimestamp()).append(" - ")
+            .append(message.getSenderID()).append(": ")
+            .append(message.toString()).append("\n");
+    }
+
+    // Reads the chunk of a chat log that follows a cursor
+    // INPUT: chatBoxID (int), cursor (long)
+    // OUTPUT: SendChatLogChunk, or null if the chatbox does not exist
+    public SendChatLogChunk readChunk(int chatBoxID, long cursor) {
+        // One extra message tells whether this is the last chunk
+        List<Message> messages = messageHandler.withChatBox(chatBoxID,
+                chatBox -> chatBox.getMessagePage(cursor, false, CHUNK_MESSAGES + 1));
+        if (messages == null) {
+            return null;
+        }
+        StringBuilder chatLog = new StringBuilder();
+        long nextCursor = cursor;
+        int count = 0;
+        for (Message message : messages) {
+            if (count == CHUNK_MESSAGES || (count > 0 && chatLog.length() >= CHUNK_CHARACTERS)) {
+                break; // A chunk always holds at least one message, so the log always advances
+            }
+            appendLine(message, chatLog);
+            nextCursor = message.getSequenceNumber();
+            count++;
+        }
+        return new SendChatLogChunk(chatBoxID, cursor, chatLog.toString(), nextCursor, count == messages.size());
+    }
+
+    // *Writes the chat log of a chatbox to a new file in the export directory, on the export thread*
+    // INPUT: chatBoxID (int)
+    // OUTPUT: CompletableFuture completed with the file written, or with null if the chatbox does not exist
+    public CompletableFuture<Path> export(int chatBoxID) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return writeLog(chatBoxID);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, exportThread);
+    }
+
+    // Pages through the chat log and writes it through one reused buffer
+    private Path writeLog(int chatBoxID) throws IOException {
+        if (!messageHandler.chatBoxExists(chatBoxID)) {
+            return null;
+        }
+        Files.createDirectories(exportDirectory);
+        Path file = exportDirectory.resolve("chatbox-" + chatBoxID + "-" + LocalDateTime.now().format(FILE_TIME) + ".log");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            StringBuilder line = new StringBuilder();
+            long cursor = 0;
+            List<Message> messages;
+            do {
+                long from = cursor;
+                messages = messageHandler.withChatBox(chatBoxID, chatBox -> chatBox.getMessagePage(from, false, CHUNK_MESSAGES));
+                if (messages == null) {
+                    break; // Deleted while it was exported
+                }
+                for (Message message : messages) {
+                    line.setLength(0);
+                    appendLine(message, line);
+                    write(channel, buffer, line.toString().getBytes(StandardCharsets.UTF_8));
+                    cursor = message.getSequenceNumber();
+                }
+            } while (messages.size() == CHUNK_MESSAGES);
+            flush(channel, buffer);
+            channel.force(true);
+        }
+        return file;
+    }
+
+    // Adds bytes to the buffer, writing the buffer out whenever it fills up
+    private static void write(FileChannel channel, ByteBuffer buffer, byte[] bytes) throws IOException {
+        if (bytes.length > buffer.remaining()) {
+            flush(channel, buffer);
+        }
+        if (bytes.length > buffer.capacity()) {
+            ByteBuffer large = ByteBuffer.wrap(bytes); // Longer than the buffer: written as is
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+            return;
+        }
+        buffer.put(bytes);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Finishes the exports already started and stops the export thread
+    public void close() {
+        exportThread.shutdown();
+        try {
+            if (!exportThread.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Chat log export did not finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,64 +4,67 @@ import ServerApp.Server.Server;
 import ServerApp.MessageHandler.MessageHandler;
 import Common.Admin.Admin;
 import ServerApp.AuthenticationSystem.AuthenticationSystem;
+import ServerApp.IdleReaper.IdleReaper;
+import ServerApp.Transport.Connection;
+import ServerApp.Transport.SocketConnection;
+import ServerApp.Transport.EncodedMessage;
+import ServerApp.UserChangeLog.UserChangeLog;
 import Common.ChatBox.ChatBox;
 import Common.Message.Message;
 import Common.User.User;
+import Common.UserSummary.UserSummary;
 import Common.MessageInterface;
 import Common.Messages.*;
 
-import java.net.Socket;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.Set;
 
-public class ClientHandler implements Runnable {
+public class ClientHandler implements Runnable, IdleReaper.Session {
 
     // Attributes
-    private final Socket clientSocket;
+    private final Connection connection;
     private final Server server;
     private final MessageHandler messageHandler;
     private final AuthenticationSystem authenticationSystem;
     private User user;
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
     private volatile boolean isRunning;
+    private volatile long lastActivityNanos; // When the client last sent a message, read by the idle reaper
+
+    private static final int MAX_PAGE_SIZE = 500; // Largest page of messages or chatbox summaries sent at once
 
     // Constructor
-    public ClientHandler(Socket clientSocket, Server server, MessageHandler messageHandler,
+    // *The connection is either a blocking SocketConnection (serviced by run()) or an
+    // event-loop connection that calls handleMessage directly*
+    public ClientHandler(Connection connection, Server server, MessageHandler messageHandler,
             AuthenticationSystem authenticationSystem) {
-        this.clientSocket = clientSocket;
+        this.connection = connection;
         this.server = server;
         this.messageHandler = messageHandler;
         this.authenticationSystem = authenticationSystem;
         this.isRunning = true;
-        try {
-            this.output = new ObjectOutputStream(clientSocket.getOutputStream());
-            this.input = new ObjectInputStream(clientSocket.getInputStream());
-        } catch (IOException e) {
-            e.printStackTrace();
-            closeConnection();
-        }
+        this.lastActivityNanos = System.nanoTime();
     }
 
-    // Handles client communication and requests
+    // Handles client communication and requests (blocking transport only)
     @Override
     public void run() {
+        if (!(connection instanceof SocketConnection socketConnection)) {
+            throw new IllegalStateException("Only blocking connections are serviced by a dedicated thread.");
+        }
         try {
             // Authentication Loop
             while (isRunning && user == null) {
-                MessageInterface request = (MessageInterface) input.readObject();
-                handleMessage(request);
+                MessageInterface request = socketConnection.receive();
+                handleMessage(request, socketConnection.getLastDecodeNanos());
             }
 
             // Main communication loop
             while (isRunning) {
-                MessageInterface request = (MessageInterface) input.readObject();
-                handleMessage(request);
+                MessageInterface request = socketConnection.receive();
+                handleMessage(request, socketConnection.getLastDecodeNanos());
             }
 
         } catch (IOException | ClassNotFoundException e) {
@@ -72,7 +75,23 @@ public class ClientHandler implements Runnable {
     }
 
     // Handles different message types
-    private void handleMessage(MessageInterface message) {
+    public void handleMessage(MessageInterface message) {
+        handleMessage(message, -1);
+    }
+
+    // Handles a message and records its decode and handle times under its type
+    // INPUT: message (MessageInterface), decodeNanos (long, negative if not measured)
+    public void handleMessage(MessageInterface message, long decodeNanos) {
+        long start = System.nanoTime();
+        lastActivityNanos = start; // Any message, a Pong included, shows the client is alive
+        try {
+            dispatch(message);
+        } finally {
+            messageHandler.getRequestMetrics().recordRequest(message.getType(), decodeNanos, System.nanoTime() - start);
+        }
+    }
+
+    private void dispatch(MessageInterface message) {
         switch (message.getType()) {
             case LOGIN -> handleLogin((Login) message);
             case CREATE_USER -> handleCreateUser((CreateUser) message);
@@ -81,12 +100,20 @@ public class ClientHandler implements Runnable {
             case BAN_USER -> handleBanUser((BanUser) message);
             case UNBAN_USER -> handleUnbanUser((UnbanUser) message);
             case REQUEST_USER_LIST -> handleRequestUserList();
+            case REQUEST_USER_CHANGES -> handleRequestUserChanges((AskUserChanges) message);
             case REQUEST_CHATBOX -> handleRequestChatBox((AskChatBox) message);
             case CREATE_CHATBOX -> handleCreateChatBox((CreateChat) message);
             case REQUEST_CHATBOX_LIST -> handleRequestChatBoxList();
             case VIEW_CHATBOX_LOG -> handleViewChatBoxLog((AskChatLog) message);
             case HIDE_CHATBOX -> handleHideChatBox((HideChatBox) message);
             case UNHIDE_CHATBOX -> handleUnhideChatBox((UnhideChatBox) message);
+            case REQUEST_MESSAGE_PAGE -> handleRequestMessagePage((AskMessagePage) message);
+            case REQUEST_CHATBOX_LOG_CHUNK -> handleRequestChatLogChunk((AskChatLogChunk) message);
+            case EXPORT_CHATBOX_LOG -> handleExportChatLog((ExportChatLog) message);
+            case REQUEST_CHATBOX_SUMMARIES -> handleRequestChatBoxSummaries((AskChatBoxSummaries) message);
+            case PING -> sendMessage(new Pong(((Ping) message).sentNanos()));
+            case PONG -> { } // Already recorded as activity
+            case REQUEST_SERVER_METRICS -> handleRequestServerMetrics();
             default -> sendNotification("Unknown message type received.");
         }
     }
@@ -123,36 +150,70 @@ public class ClientHandler implements Runnable {
             return;
         }
 
-        Collection<ChatBox> chatBoxes = server.getChatBoxes().values();
-        List<ChatBox> chatBoxList = new ArrayList<>(chatBoxes);
+        List<ChatBox> chatBoxList = messageHandler.getAllChatBoxes(); // Without messages; the list only shows names
         SendChatBoxList response = new SendChatBoxList(chatBoxList);
         sendMessage(response);
     }
+
+    // Handle RequestServerMetrics: sends the same report as the local metrics endpoint
+    private void handleRequestServerMetrics() {
+        if (!authenticationSystem.isAdmin(user.getUserID())) {
+            sendNotification("Access denied. Admin privileges required to view server metrics.");
+            return;
+        }
+        sendMessage(new SendServerMetrics(server.getMetricsReport()));
+    }
+
+    // Handle RequestChatBoxSummaries: sends a page of the chatbox catalog, most recently active first
+    private void handleRequestChatBoxSummaries(AskChatBoxSummaries askSummaries) {
+        if (!authenticationSystem.isAdmin(user.getUserID())) {
+            sendNotification("Access denied. Admin privileges required to view chatbox list.");
+            return;
+        }
+        int offset = Math.max(0, askSummaries.offset());
+        int limit = Math.max(1, Math.min(askSummaries.limit(), MAX_PAGE_SIZE));
+        sendMessage(new SendChatBoxSummaries(messageHandler.getChatBoxSummaries(offset, limit), offset,
+                messageHandler.getChatBoxCount()));
+    }
     
     private void handleViewChatBoxLog(AskChatLog askChatLog) {
+        // The log is sent in chunks; the client asks for each next chunk with the cursor of the previous one
+        handleRequestChatLogChunk(new AskChatLogChunk(askChatLog.chatBoxID(), 0));
+    }
+
+    // Handle RequestChatLogChunk: sends the part of a chat log that follows the cursor
+    private void handleRequestChatLogChunk(AskChatLogChunk askChunk) {
         if (!authenticationSystem.isAdmin(user.getUserID())) {
             sendNotification("Access denied. Admin privileges required to view chat logs.");
             return;
         }
-
-        int chatBoxID = askChatLog.chatBoxID();
-        ChatBox chatBox = messageHandler.getChatBox(chatBoxID);
-
-        if (chatBox != null) {
-            StringBuilder chatLogBuilder = new StringBuilder();
-            for (Message message : chatBox.getMessages()) {
-                chatLogBuilder.append(message.getTimestamp()).append(" - ")
-                              .append(message.getSenderID()).append(": ")
-                              .append(message.toString()).append("\n");
-            }
-            String chatLog = chatLogBuilder.toString();
-            SendChatLog response = new SendChatLog(chatLog);
-            sendMessage(response);
+        SendChatLogChunk chunk = server.getChatLogExporter().readChunk(askChunk.chatBoxID(), askChunk.cursor());
+        if (chunk != null) {
+            sendMessage(chunk);
         } else {
             sendNotification("ChatBox not found.");
         }
     }
 
+    // Handle ExportChatLog: writes the chat log to a file on the server and reports where
+    private void handleExportChatLog(ExportChatLog exportChatLog) {
+        if (!authenticationSystem.isAdmin(user.getUserID())) {
+            sendNotification("Access denied. Admin privileges required to export chat logs.");
+            return;
+        }
+        int chatBoxID = exportChatLog.chatBoxID();
+        server.getChatLogExporter().export(chatBoxID).whenComplete((file, error) -> {
+            if (error != null) {
+                System.err.println("Error exporting chat log of chatbox " + chatBoxID + ": " + error.getMessage());
+                sendNotification("Failed to export chat log.");
+            } else if (file == null) {
+                sendNotification("ChatBox not found.");
+            } else {
+                sendNotification("Chat log exported to " + file.toAbsolutePath() + " on the server.");
+            }
+        });
+    }
+
 
     public boolean isAdmin(int userID) {
         User user = AuthenticationSystem.userDB.get(userID);
@@ -174,11 +235,11 @@ public class ClientHandler implements Runnable {
 
 			// Successful login
 			this.user = authenticatedUser;
+			server.getSessionRegistry().register(user.getUserID(), this);
 			System.out.println("User logged in: " + user.getUsername());
 
 			// Retrieve all ChatBoxes the user is part of
-			List<ChatBox> userChatBoxes = server.getChatBoxes().values().stream()
-					.filter(chatBox -> chatBox.getParticipants().contains(user)).map(ChatBox::getEmpty).toList();
+			List<ChatBox> userChatBoxes = messageHandler.getChatBoxesOf(user); // From metadata, without loading messages
 
 			// Create and send LoginResponse
 			LoginResponse loginResponse = new LoginResponse(user, userChatBoxes);
@@ -240,10 +301,16 @@ public class ClientHandler implements Runnable {
 	
 	// Handle SendMessage
 	private void handleSendMessage(SendMessage sendMessage) {
-		boolean success = messageHandler.sendMessage(sendMessage.chatBoxID(), sendMessage.message());
-		if (!success) {
+		if (!messageHandler.isParticipant(user.getUserID(), sendMessage.chatBoxID())) {
 			sendNotification("Failed to send message.");
+			return;
 		}
+		// The sender sees its message when it is pushed back, so the connection goes on to the next request
+		messageHandler.sendMessageAsync(sendMessage.chatBoxID(), sendMessage.message()).thenAccept(success -> {
+			if (!success) {
+				sendNotification("Failed to send message.");
+			}
+		});
 	}
 
 	// Handle Logout
@@ -290,6 +357,31 @@ public class ClientHandler implements Runnable {
         sendMessage(response);
     }
 
+    // Handle RequestUserChanges: sends the users changed since the client's version of the directory,
+    // or the whole directory on the first sync (or when the client is too far behind)
+    private void handleRequestUserChanges(AskUserChanges askChanges) {
+        UserChangeLog userChanges = authenticationSystem.getUserChanges();
+        long version = userChanges.getVersion(); // Read first: the changes listed below include every later one
+        Set<Integer> changed = askChanges.epoch() == userChanges.getEpoch()
+                ? userChanges.changedSince(askChanges.sinceVersion()) : null;
+        List<UserSummary> users = new ArrayList<>();
+        List<Integer> removed = new ArrayList<>();
+        if (changed == null) {
+            authenticationSystem.getAllUsers().forEach(user -> users.add(UserSummary.of(user)));
+        } else {
+            for (int userID : changed) {
+                User changedUser = authenticationSystem.findUser(userID);
+                if (changedUser != null) {
+                    users.add(UserSummary.of(changedUser));
+                } else {
+                    removed.add(userID);
+                }
+            }
+        }
+        sendMessage(new SendUserChanges(userChanges.getEpoch(), version, changed == null, users,
+                removed.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
     // Handle RequestChatBox
     private void handleRequestChatBox(AskChatBox askChatBox) {
         int chatBoxID;
@@ -300,29 +392,52 @@ public class ClientHandler implements Runnable {
             return;
         }
 
-        ChatBox chatBox = messageHandler.getChatBox(chatBoxID);
-        if (chatBox != null) {
-            if (chatBox.getParticipants().contains(user)) {
-                // Update participants with up-to-date User objects
-                HashSet<User> updatedParticipants = new HashSet<>();
-                for (User participant : chatBox.getParticipants()) {
-                    User updatedUser = authenticationSystem.findUser(participant.getUserID());
-                    if (updatedUser != null) {
-                        updatedParticipants.add(updatedUser);
-                    }
-                }
-                chatBox.setParticipants(updatedParticipants);
-
-                SendChatBox response = new SendChatBox(chatBox);
-                sendMessage(response);
-            } else {
-                sendNotification("Access denied. You are not a participant of this chatbox.");
-            }
-        } else {
+        if (!messageHandler.chatBoxExists(chatBoxID)) {
+            sendNotification("ChatBox not found.");
+            return;
+        }
+        if (!messageHandler.isParticipant(user.getUserID(), chatBoxID)) {
+            // Checked against the membership index, so a chatbox is never loaded for a non-participant
+            sendNotification("Access denied. You are not a participant of this chatbox.");
+            return;
+        }
+        // Runs on the chatbox's owner thread, so the chatbox is encoded while nothing changes it
+        Boolean found = messageHandler.withChatBox(chatBoxID, chatBox -> {
+            // Participants are IDs; the current names and ban state travel as summaries
+            SendChatBox response = new SendChatBox(chatBox, messageHandler.getUserSummaries(chatBox));
+            sendMessage(response);
+            return true;
+        });
+        if (found == null) {
             sendNotification("ChatBox not found.");
         }
     }
 
+    // Handle RequestMessagePage: sends one page of a chatbox's history instead of all of it
+    private void handleRequestMessagePage(AskMessagePage askPage) {
+        if (messageHandler.chatBoxExists(askPage.chatBoxID())
+                && !messageHandler.isParticipant(user.getUserID(), askPage.chatBoxID())) {
+            sendNotification("Access denied. You are not a participant of this chatbox.");
+            return;
+        }
+        MessageInterface response = messageHandler.withChatBox(askPage.chatBoxID(), chatBox -> pageOf(chatBox, askPage));
+        sendMessage(response != null ? response : new Notification("ChatBox not found."));
+    }
+
+    // Builds the response to a RequestMessagePage (on the chatbox's owner thread)
+    private MessageInterface pageOf(ChatBox chatBox, AskMessagePage askPage) {
+        int limit = Math.max(1, Math.min(askPage.limit(), MAX_PAGE_SIZE));
+        // One extra message tells whether there is more history in that direction
+        List<Message> messages = chatBox.getMessagePage(askPage.cursor(), askPage.older(), limit + 1);
+        boolean hasMore = messages.size() > limit;
+        if (hasMore) {
+            messages = askPage.older() ? messages.subList(1, messages.size()) : messages.subList(0, limit);
+        }
+        ChatBox page = ChatBox.restore(chatBox.getChatBoxID(), chatBox.getName(), chatBox.getParticipantIDs(), messages,
+                chatBox.isHidden(), chatBox.getCreationTime());
+        return new SendMessagePage(page, askPage.cursor(), askPage.older(), hasMore, messageHandler.getUserSummaries(page));
+    }
+
     // Handle CreateChatBox
     private void handleCreateChatBox(CreateChat createChat) {
         List<User> participants = createChat.participants();
@@ -356,12 +471,7 @@ public class ClientHandler implements Runnable {
 	
 	// Send a message to the client
 	private void sendMessage(MessageInterface message) {
-		try {
-			output.reset();
-			output.writeObject(message);
-		} catch (IOException e) {
-			System.err.println("Error sending message to client: " + e.getMessage());
-		}
+		connection.send(message);
 	}
 
 	// Send a notification to the client
@@ -372,27 +482,49 @@ public class ClientHandler implements Runnable {
 
 	// Closes the client connection and cleans up resources
 	public void closeConnection() {
+		if (!isRunning) {
+			return; // Already closed (logout followed by the transport noticing the close)
+		}
 		isRunning = false;
 		try {
-			if (input != null)
-				input.close();
-			if (output != null)
-				output.close();
-			if (clientSocket != null && !clientSocket.isClosed())
-				clientSocket.close();
-		} catch (IOException e) {
-			System.err.println("Error closing client connection: " + e.getMessage());
+			connection.close();
 		} finally {
 			server.removeClientHandler(this);
 			if (user != null) {
+				server.getSessionRegistry().unregister(user.getUserID(), this);
 				authenticationSystem.logout(user.getUserID());
 			}
 		}
 	}
 
-	// Retrieves the client socket
-	public Socket getClientSocket() {
-		return clientSocket;
+	@Override
+	public long getLastActivityNanos() {
+		return lastActivityNanos;
+	}
+
+	@Override
+	public boolean isActive() {
+		return isRunning;
+	}
+
+	// Sends a heartbeat the client answers with a Pong
+	@Override
+	public void sendPing(long nowNanos) {
+		sendMessage(new Ping(nowNanos));
+	}
+
+	// Closes a session the client has stopped answering, without waiting for queued output
+	@Override
+	public void closeIdle() {
+		System.out.println("Closing idle session of client " + connection.getRemoteAddress()
+				+ (user != null ? " (" + user.getUsername() + ")" : ""));
+		connection.abort();
+		closeConnection();
+	}
+
+	// Retrieves the client connection
+	public Connection getConnection() {
+		return connection;
 	}
 
 	// Retrieves the user associated with this client
@@ -410,4 +542,14 @@ public class ClientHandler implements Runnable {
         SendChatBox response = new SendChatBox(chatBox);
         sendMessage(response);
     }
+
+    // Sends a single new chatbox message to the client
+    public void sendMessageUpdate(int chatBoxID, Message message) {
+        sendMessage(new SendMessage(message, chatBoxID));
+    }
+
+    // Sends a message that is being broadcast to many clients, reusing its encoded frame
+    public void sendBroadcast(EncodedMessage message) {
+        connection.send(message);
+    }
 }
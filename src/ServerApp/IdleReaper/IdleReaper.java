@@ -0,0 +1,201 @@
+package ServerApp.IdleReaper;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IdleReaper closes client sessions that have stopped talking to the server.
+ * A session only records the time of its last message, so activity costs one
+ * write. The reaper keeps one timeout per session in a hashed timer wheel
+ * turned by a single thread: when a timeout comes due, the session is sent a
+ * Ping if it has been quiet for the heartbeat interval, closed if it has been
+ * quiet for the idle timeout, and otherwise rescheduled from its last activity.
+ * Scheduling and expiring a timeout are O(1) whatever the number of sessions.
+ */
+public class IdleReaper {
+
+    private static final int WHEEL_SIZE = 512; // Slots in the wheel; later deadlines wait whole turns
+
+    // A session watched by the reaper
+    public interface Session {
+
+        // Time of the last message received from the client (System.nanoTime)
+        long getLastActivityNanos();
+
+        // Returns false once the session has been closed
+        boolean isActive();
+
+        // Asks the client to answer, proving it is still there
+        void sendPing(long nowNanos);
+
+        // Closes the session without waiting for the client
+        void closeIdle();
+    }
+
+    // The pending timeout of one session (reaper thread only)
+    private static class Timeout {
+        private final Session session;
+        private long deadlineNanos;
+        private long remainingRounds;
+        private long lastPingNanos;
+        private boolean pinged;
+
+        private Timeout(Session session, long deadlineNanos) {
+            this.session = session;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    // Attributes
+    private final long tickNanos;
+    private final long pingAfterNanos; // 0 sends no pings
+    private final long closeAfterNanos; // 0 closes no sessions
+    private final long originNanos; // Start of tick 0
+    private final ArrayDeque<Timeout>[] wheel;
+    private final ConcurrentLinkedQueue<Timeout> added; // Registered sessions not yet in the wheel
+    private final LongAdder sessions;
+    private final LongAdder pings;
+    private final LongAdder reaped;
+    private long tick; // Next tick to expire (reaper thread only)
+    private ScheduledExecutorService timer;
+
+    // Constructor
+    // INPUT: tickNanos (long), pingAfterNanos (long), closeAfterNanos (long), originNanos (long) from System.nanoTime
+    @SuppressWarnings("unchecked")
+    public IdleReaper(long tickNanos, long pingAfterNanos, long closeAfterNanos, long originNanos) {
+        this.tickNanos = Math.max(1, tickNanos);
+        this.pingAfterNanos = Math.max(0, pingAfterNanos);
+        this.closeAfterNanos = Math.max(0, closeAfterNanos);
+        this.originNanos = originNanos;
+        this.wheel = (ArrayDeque<Timeout>[]) new ArrayDeque<?>[WHEEL_SIZE];
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.added = new ConcurrentLinkedQueue<>();
+        this.sessions = new LongAdder();
+        this.pings = new LongAdder();
+        this.reaped = new LongAdder();
+    }
+
+    // Returns true if the reaper sends pings or closes sessions
+    public boolean isEnabled() {
+        return pingAfterNanos > 0 || closeAfterNanos > 0;
+    }
+
+    // Starts the thread that turns the wheel
+    public void start() {
+        if (!isEnabled() || timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "idle-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleAtFixedRate(() -> expire(System.nanoTime()), tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Watches a new session, from any thread
+    // INPUT: session (Session)
+    // OUTPUT: none
+    public void register(Session session) {
+        if (!isEnabled()) {
+            return;
+        }
+        long firstCheck = pingAfterNanos > 0 ? pingAfterNanos : closeAfterNanos;
+        added.add(new Timeout(session, session.getLastActivityNanos() + firstCheck));
+        sessions.increment();
+    }
+
+    // *Expires every tick that has ended by a given time (reaper thread only)*
+    // INPUT: nowNanos (long)
+    // OUTPUT: none
+    public void expire(long nowNanos) {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            schedule(timeout);
+        }
+        while (originNanos + (tick + 1) * tickNanos <= nowNanos) {
+            ArrayDeque<Timeout> slot = wheel[(int) (tick % WHEEL_SIZE)];
+            tick++;
+            for (int remaining = slot.size(); remaining > 0; remaining--) {
+                timeout = slot.poll();
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--; // Due in a later turn of the wheel
+                    slot.add(timeout);
+                } else {
+                    check(timeout, nowNanos);
+                }
+            }
+        }
+    }
+
+    // Pings, closes or reschedules a session whose timeout has come due
+    private void check(Timeout timeout, long nowNanos) {
+        Session session = timeout.session;
+        if (!session.isActive()) {
+            sessions.decrement(); // Closed meanwhile: its timeout is simply dropped
+            return;
+        }
+        long lastActivity = session.getLastActivityNanos();
+        long idle = nowNanos - lastActivity;
+        if (closeAfterNanos > 0 && idle >= closeAfterNanos) {
+            sessions.decrement();
+            reaped.increment();
+            try {
+                session.closeIdle();
+            } catch (RuntimeException e) {
+                System.err.println("Error closing idle session: " + e.getMessage());
+            }
+            return;
+        }
+        long firstCheck = pingAfterNanos > 0 ? pingAfterNanos : closeAfterNanos;
+        timeout.deadlineNanos = lastActivity + firstCheck;
+        if (pingAfterNanos > 0 && idle >= pingAfterNanos) {
+            if (!timeout.pinged || nowNanos - timeout.lastPingNanos >= pingAfterNanos) {
+                timeout.pinged = true;
+                timeout.lastPingNanos = nowNanos;
+                pings.increment();
+                session.sendPing(nowNanos);
+            }
+            timeout.deadlineNanos = timeout.lastPingNanos + pingAfterNanos;
+            if (closeAfterNanos > 0) {
+                timeout.deadlineNanos = Math.min(timeout.deadlineNanos, lastActivity + closeAfterNanos);
+            }
+        }
+        schedule(timeout);
+    }
+
+    // Puts a timeout in the slot of its deadline, or of the next tick if it is already due
+    private void schedule(Timeout timeout) {
+        long deadlineTick = Math.max(tick, Math.floorDiv(timeout.deadlineNanos - originNanos, tickNanos));
+        timeout.remainingRounds = (deadlineTick - tick) / WHEEL_SIZE;
+        wheel[(int) (deadlineTick % WHEEL_SIZE)].add(timeout);
+    }
+
+    // Number of sessions watched
+    public long getSessionCount() {
+        return sessions.sum();
+    }
+
+    // Number of pings sent to quiet sessions
+    public long getPingCount() {
+        return pings.sum();
+    }
+
+    // Number of sessions closed for being idle
+    public long getReapedCount() {
+        return reaped.sum();
+    }
+
+    // Stops the reaper thread
+    public void close() {
+        if (timer != null) {
+            timer.shutdownNow();
+        }
+    }
+}
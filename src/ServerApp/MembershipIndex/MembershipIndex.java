@@ -0,0 +1,76 @@
+package ServerApp.MembershipIndex;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MembershipIndex maps a userID to the IDs of the chatboxes that user takes part
+ * in. It is kept up to date as chatbox participants change, so finding a user's
+ * chatboxes or checking whether a user may read a chatbox does not scan every
+ * chatbox on the server.
+ */
+public class MembershipIndex {
+
+    // Attributes
+    private final ConcurrentHashMap<Integer, Set<Integer>> memberships;
+
+    // Constructor
+    public MembershipIndex() {
+        this.memberships = new ConcurrentHashMap<>();
+    }
+
+    // Records a change of the participants of a chatbox
+    // INPUT: chatBoxID (int), before (int[] userIDs, null for a new chatbox), after (int[] userIDs)
+    // OUTPUT: none
+    public void update(int chatBoxID, int[] before, int[] after) {
+        Set<Integer> left = userIDsOf(before);
+        Set<Integer> joined = userIDsOf(after);
+        for (int userID : joined) {
+            if (!left.remove(userID)) {
+                add(userID, chatBoxID);
+            }
+        }
+        for (int userID : left) {
+            remove(userID, chatBoxID);
+        }
+    }
+
+    // Adds a chatbox to a user's memberships
+    public void add(int userID, int chatBoxID) {
+        memberships.computeIfAbsent(userID, id -> ConcurrentHashMap.newKeySet()).add(chatBoxID);
+    }
+
+    // Removes a chatbox from a user's memberships
+    public void remove(int userID, int chatBoxID) {
+        memberships.computeIfPresent(userID, (id, chatBoxIDs) -> {
+            chatBoxIDs.remove(chatBoxID);
+            return chatBoxIDs.isEmpty() ? null : chatBoxIDs;
+        });
+    }
+
+    // Returns the IDs of the chatboxes a user takes part in (empty if none)
+    // INPUT: userID (int)
+    // OUTPUT: Set<Integer>, a live view
+    public Set<Integer> getChatBoxIDs(int userID) {
+        Set<Integer> chatBoxIDs = memberships.get(userID);
+        return chatBoxIDs != null ? Collections.unmodifiableSet(chatBoxIDs) : Collections.emptySet();
+    }
+
+    // Returns true if the user takes part in the chatbox
+    public boolean isMember(int userID, int chatBoxID) {
+        Set<Integer> chatBoxIDs = memberships.get(userID);
+        return chatBoxIDs != null && chatBoxIDs.contains(chatBoxID);
+    }
+
+    private static Set<Integer> userIDsOf(int[] users) {
+        Set<Integer> userIDs = new HashSet<>();
+        if (users != null) {
+            for (int userID : users) {
+                userIDs.add(userID);
+            }
+        }
+        return userIDs;
+    }
+}
@@ -1,61 +1,117 @@
 package ServerApp.MessageHandler;
 
 import Common.Admin.Admin;
+import Common.Admin.ChatModeration;
 import ServerApp.StorageManager.StorageManager;
+import ServerApp.StorageManager.ChatBoxMetadata;
+import ServerApp.ChatBoxWriter.ChatBoxWriter;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+import ServerApp.Metrics.RequestMetrics;
+import Common.MessageType;
 import Common.ChatBox.ChatBox;
+import Common.ChatBoxSummary.ChatBoxSummary;
 import Common.Message.Message;
 import Common.User.User;
+import Common.UserSummary.UserSummary;
 import ServerApp.ClientHandler.ClientHandler;
 import ServerApp.Server.Server;
+import ServerApp.SessionRegistry.SessionRegistry;
+import ServerApp.Transport.EncodedMessage;
+import Common.Messages.SendChatBox;
+import Common.Messages.SendMessage;
 
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.List;
+import java.util.function.Function;
 
 /**
  * MessageHandler manages message-related operations, acting as an intermediary
- * between ClientHandler and other components.
+ * between ClientHandler and other components. Every change to a chatbox, and
+ * every read that needs a consistent view of one, runs on the chatbox's owner
+ * thread in the ChatBoxWriter.
  */
-public class MessageHandler {
+public class MessageHandler implements ChatModeration {
 
     // Attributes
-    private final StorageManager storageManager; // Manages storage operations for chatboxes
-    private final ConcurrentHashMap<Integer, ChatBox> chatBoxes; // In-memory chatboxes
+    private final StorageManager storageManager; // Manages storage operations for chatboxes (loads them on demand)
     private final ConcurrentHashMap<Integer, User> userDB; // In-memory users
     private final Server server; // Reference to the Server instance
+    private final SessionRegistry sessionRegistry; // Routes user IDs to their online sessions
+    private final ChatBoxWriter chatBoxWriter; // Owner thread of each chatbox
     private final ChatBox systemChatBox;
+    private final RequestMetrics requestMetrics; // Per message type counts and stage timings
     // Constructor
     // *Initializes MessageHandler with storageManager, chatBoxes, userDB, and server*
-    // INPUT: storageManager (StorageManager), chatBoxes (ConcurrentHashMap<Integer, ChatBox>), userDB (ConcurrentHashMap<Integer, User>), server (Server)
+    // INPUT: storageManager (StorageManager), chatBoxes (ConcurrentHashMap<Integer, ChatBox>) stored in addition to the
+    //        chatboxes storageManager already holds, userDB (ConcurrentHashMap<Integer, User>), server (Server)
     public MessageHandler(StorageManager storageManager, ConcurrentHashMap<Integer, ChatBox> chatBoxes, ConcurrentHashMap<Integer, User> userDB, Server server) {
+        this(storageManager, userDB, server);
+        chatBoxes.values().forEach(storageManager::storeChatBox);
+    }
+
+    // Constructor
+    // *Initializes MessageHandler with storageManager, userDB, and server, with one chatbox writer shard per core*
+    // INPUT: storageManager (StorageManager), userDB (ConcurrentHashMap<Integer, User>), server (Server)
+    public MessageHandler(StorageManager storageManager, ConcurrentHashMap<Integer, User> userDB, Server server) {
+        this(storageManager, new ChatBoxWriter(Runtime.getRuntime().availableProcessors()), userDB, server);
+    }
+
+    // Constructor
+    // *Initializes MessageHandler with storageManager, chatBoxWriter, userDB, and server*
+    // INPUT: storageManager (StorageManager), chatBoxWriter (ChatBoxWriter), userDB (ConcurrentHashMap<Integer, User>),
+    //        server (Server)
+    public MessageHandler(StorageManager storageManager, ChatBoxWriter chatBoxWriter, ConcurrentHashMap<Integer, User> userDB,
+                          Server server) {
         ChatBox systemChatBoxTemp;
         this.storageManager = storageManager;
-        this.chatBoxes = chatBoxes;
+        this.chatBoxWriter = chatBoxWriter;
         this.userDB = userDB;
         this.server = server;
+        this.requestMetrics = new RequestMetrics();
+        this.sessionRegistry = server != null ? server.getSessionRegistry() : new SessionRegistry();
+        storageManager.pinChatBox(0); // Every user takes part, so it is always in use
         systemChatBoxTemp = getChatBox(0);
         if(systemChatBoxTemp == null) {
             systemChatBoxTemp = ChatBox.getSystemChatBox();
-            chatBoxes.put(0, systemChatBoxTemp);
+            storeChatBox(systemChatBoxTemp);
+        } else if (!systemChatBoxTemp.includesEveryone()) {
+            systemChatBoxTemp.setParticipants(null); // Stored with a list of users: takes in every user from now on
             storeChatBox(systemChatBoxTemp);
         }
-            systemChatBoxTemp.setParticipants(userDB.values());
             systemChatBox = systemChatBoxTemp;
     }
 
-    // *Finds the ClientHandler for a given user ID*
+    // Returns the registry of online sessions messages are pushed to
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    // Returns the per message type counters and timings
+    public RequestMetrics getRequestMetrics() {
+        return requestMetrics;
+    }
+
+    // *Finds the online sessions of a given user ID*
     // INPUT: userID (int)
-    // OUTPUT: ClientHandler or null if not found
-    private ClientHandler findClientHandler(int userID) {
-        return server.getClientHandlers().stream()
-                .filter(handler -> handler.getUser() != null && handler.getUser().getUserID() == userID)
-                .findFirst()
-                .orElse(null);
+    // OUTPUT: Collection of ClientHandlers (empty if the user is offline)
+    private Collection<ClientHandler> findClientHandlers(int userID) {
+        return sessionRegistry.getSessions(userID);
     }
 
+    // *Logs out every session of a user*
+    // INPUT: userID (int)
+    // OUTPUT: none
     public void forceLogout(int userID){
-        ClientHandler clientHandler = findClientHandler(userID);
-        if(clientHandler != null){clientHandler.handleLogout();}
-
+        for (ClientHandler clientHandler : List.copyOf(findClientHandlers(userID))) {
+            clientHandler.handleLogout();
+        }
     }
 
     // *Creates a new chatbox with specified participants*
@@ -64,8 +120,9 @@ public class MessageHandler {
 
     public ChatBox createChatBox(List<User> participants, String name) {
         ChatBox chatBox = new ChatBox(participants, name);
-        chatBoxes.put(chatBox.getChatBoxID(), chatBox);
+        long start = System.nanoTime();
         storeChatBox(chatBox);
+        requestMetrics.recordPersist(MessageType.CREATE_CHATBOX, System.nanoTime() - start);
         return chatBox;
     }
 
@@ -74,46 +131,197 @@ public class MessageHandler {
     // INPUT: chatBoxID (int)
     // OUTPUT: ChatBox object or null if not found
     public ChatBox getChatBox(int chatBoxID) {
-        return chatBoxes.get(chatBoxID);
+        return storageManager.retrieveChatBox(chatBoxID);
+    }
+
+    // *Runs a function on a chatbox on its owner thread, so the chatbox does not change while it runs*
+    // INPUT: chatBoxID (int), reader (Function<ChatBox, T>)
+    // OUTPUT: the result of reader, or null if the chatbox does not exist or the server is stopping
+    public <T> T withChatBox(int chatBoxID, Function<ChatBox, T> reader) {
+        try {
+            return chatBoxWriter.call(chatBoxID, () -> {
+                ChatBox chatBox = getChatBox(chatBoxID);
+                return chatBox != null ? reader.apply(chatBox) : null;
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Chatbox " + chatBoxID + " not changed: the server is stopping.");
+            return null;
+        }
+    }
+
+    // *Lists the chatboxes a user takes part in, without their messages*
+    // INPUT: user (User)
+    // OUTPUT: List of chatboxes
+    public List<ChatBox> getChatBoxesOf(User user) {
+        return storageManager.getEmptyChatBoxes(user);
     }
 
-    // *Updates all participants in the chatbox with the latest chatbox state*
+    // *Checks whether a user takes part in a chatbox, without loading the chatbox*
+    // INPUT: userID (int), chatBoxID (int)
+    // OUTPUT: true if the user is a participant
+    public boolean isParticipant(int userID, int chatBoxID) {
+        return storageManager.isParticipant(userID, chatBoxID);
+    }
+
+    // *Checks whether a chatbox exists, resident or not*
     // INPUT: chatBoxID (int)
+    // OUTPUT: true if the chatbox exists
+    public boolean chatBoxExists(int chatBoxID) {
+        return storageManager.getChatBoxIDs().contains(chatBoxID);
+    }
+
+    // *Lists all chatboxes, without their messages*
+    // INPUT: none
+    // OUTPUT: List of chatboxes
+    public List<ChatBox> getAllChatBoxes() {
+        return storageManager.getEmptyChatBoxes(null);
+    }
+
+    // *Lists a page of chatbox summaries, most recently active first, from the in-memory catalog*
+    // INPUT: offset (int), limit (int)
+    // OUTPUT: List of ChatBoxSummary
+    public List<ChatBoxSummary> getChatBoxSummaries(int offset, int limit) {
+        List<ChatBoxSummary> summaries = new ArrayList<>();
+        for (ChatBoxMetadata metadata : storageManager.getChatBoxesByActivity(offset, limit)) {
+            summaries.add(metadata.toSummary(userDB.size()));
+        }
+        return summaries;
+    }
+
+    // *Returns the number of chatboxes on the server*
+    public int getChatBoxCount() {
+        return storageManager.getChatBoxCount();
+    }
+
+    // *Updates all participants in the chatbox with the latest chatbox state (on the chatbox's owner thread)*
+    // INPUT: chatBox (ChatBox)
     // OUTPUT: none
-    private void updateParticipants(int chatBoxID) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
-            for (User participant : chatBox.getParticipants()) {
-                ClientHandler clientHandler = findClientHandler(participant.getUserID());
-                if (clientHandler != null) {
-                    clientHandler.sendChatBoxUpdate(chatBox); // Send the updated chatbox to the client via the client handler
-                }
+    private void updateParticipants(ChatBox chatBox) {
+        // Encoded once for all participants
+        broadcast(chatBox, new EncodedMessage(new SendChatBox(chatBox, getUserSummaries(chatBox))));
+    }
+
+    // *Pushes a single new message to all online participants of a chatbox (on the chatbox's owner thread)*
+    // INPUT: chatBox (ChatBox), message (Message) carrying its sequence number
+    // OUTPUT: none
+    private void pushMessage(ChatBox chatBox, Message message) {
+        broadcast(chatBox, new EncodedMessage(new SendMessage(message, chatBox.getChatBoxID())));
+    }
+
+    // *Sends the same encoded message to every online participant of a chatbox*
+    // INPUT: chatBox (ChatBox), message (EncodedMessage)
+    // OUTPUT: none
+    private void broadcast(ChatBox chatBox, EncodedMessage message) {
+        long start = System.nanoTime();
+        int recipients = 0;
+        int[] participantIDs = chatBox.getParticipantIDs();
+        if (participantIDs == null) {
+            // Every user takes part: only the online ones have a session to send to
+            participantIDs = sessionRegistry.getOnlineUserIDs().stream().mapToInt(Integer::intValue).toArray();
+        }
+        for (int userID : participantIDs) {
+            for (ClientHandler clientHandler : findClientHandlers(userID)) {
+                clientHandler.sendBroadcast(message);
+                recipients++;
+            }
+        }
+        requestMetrics.recordFanOut(message.getMessage().getType(), System.nanoTime() - start, recipients);
+    }
+
+    // *Builds the summaries of the users a chatbox refers to: its participants and the senders of its messages*
+    // INPUT: chatBox (ChatBox), which may hold only a page of messages
+    // OUTPUT: List of user summaries (users no longer known are left out)
+    public List<UserSummary> getUserSummaries(ChatBox chatBox) {
+        Set<Integer> userIDs = new LinkedHashSet<>();
+        int[] participantIDs = chatBox.getParticipantIDs();
+        if (participantIDs != null) {
+            for (int userID : participantIDs) {
+                userIDs.add(userID);
             }
         }
+        for (Message message : chatBox.getMessages()) {
+            userIDs.add(message.getSenderID());
+        }
+        List<UserSummary> summaries = new ArrayList<>(userIDs.size());
+        for (int userID : userIDs) {
+            User user = userDB.get(userID);
+            if (user != null) {
+                summaries.add(UserSummary.of(user));
+            }
+        }
+        return summaries;
     }
 
     // *Sends a message to a specific chatbox*
     // INPUT: chatBoxID (int), message (Message)
     // OUTPUT: true if successful, false otherwise
     public boolean sendMessage(int chatBoxID, Message message) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null && (chatBoxID!=0 || userDB.get(message.getSenderID() )instanceof Admin)) {
-            chatBox.addMessage(new Message(message));
-            storeChatBox(chatBox); // Store updated chatbox in persistent storage
-            updateParticipants(chatBoxID); // Update all participants with the new chatbox
-            return true;
+        return sendMessageAsync(chatBoxID, message).join();
+    }
+
+    // *Sends a message to a specific chatbox without waiting for it to be persisted*
+    // INPUT: chatBoxID (int), message (Message)
+    // OUTPUT: CompletableFuture completed with true once the message is persisted, false if it was refused
+    public CompletableFuture<Boolean> sendMessageAsync(int chatBoxID, Message message) {
+        if (chatBoxID == 0 && !(userDB.get(message.getSenderID()) instanceof Admin)) {
+            return CompletableFuture.completedFuture(false);
         }
-        return false;
+        CompletableFuture<Void> persisted = withChatBox(chatBoxID, chatBox -> {
+            Message storedMessage = new Message(message, LocalDateTime.now()); // Stamped with the server receive time
+            return appendMessage(chatBox, storedMessage);
+        });
+        if (persisted == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        // Neither the owner thread nor the connection waits for the disk
+        return persisted.handle((result, error) -> {
+            if (error != null) {
+                System.err.println("Persistence write failed: " + error);
+            }
+            return error == null;
+        });
+    }
+
+    // *Numbers and persists a new message, and pushes it once persisted (on the chatbox's owner thread)*
+    // INPUT: chatBox (ChatBox), message (Message)
+    // OUTPUT: CompletableFuture completed when the message may be acknowledged
+    private CompletableFuture<Void> appendMessage(ChatBox chatBox, Message message) {
+        chatBox.appendMessage(message); // Assigns the chatbox sequence number
+        long start = System.nanoTime();
+        CompletableFuture<Void> persisted = storageManager.recordMessage(chatBox, message); // Persist only the new message
+        persisted.whenComplete((result, error) ->
+                requestMetrics.recordPersist(MessageType.SEND_MESSAGE, System.nanoTime() - start));
+        // Send only the new message to the participants, back on the owner once it is durable
+        chatBoxWriter.executeAfter(chatBox.getChatBoxID(), persisted, () -> pushMessage(chatBox, message));
+        return persisted;
+    }
+
+    // *Updates the participants of a chatbox once a change to it is persisted (on the chatbox's owner thread)*
+    // INPUT: chatBox (ChatBox), persisted (CompletableFuture<Void>) of the change
+    // OUTPUT: the same future, for the requesting thread to wait on
+    private CompletableFuture<Void> updateParticipantsAfter(ChatBox chatBox, CompletableFuture<Void> persisted) {
+        chatBoxWriter.executeAfter(chatBox.getChatBoxID(), persisted, () -> updateParticipants(chatBox));
+        return persisted;
     }
 
     // *Sends a message to all chatboxes*
     // INPUT: message (Message)
     // OUTPUT: none
     public void sendMessageToAllChatBoxes(Message message) {
-        for (ChatBox chatBox : chatBoxes.values()) {
-            chatBox.addMessage(message);
-            storeChatBox(chatBox); // Store updated chatbox in persistent storage
-            updateParticipants(chatBox.getChatBoxID()); // Update all participants with the new chatbox
+        LocalDateTime receivedTime = LocalDateTime.now();
+        List<CompletableFuture<CompletableFuture<Void>>> sends = new ArrayList<>();
+        for (int chatBoxID : List.copyOf(storageManager.getChatBoxIDs())) {
+            // Submitted to every owner before waiting, so the shards append in parallel
+            sends.add(chatBoxWriter.submit(chatBoxID, () -> {
+                ChatBox chatBox = getChatBox(chatBoxID);
+                if (chatBox == null) {
+                    return CompletableFuture.<Void>completedFuture(null);
+                }
+                return appendMessage(chatBox, new Message(message, receivedTime)); // Each chatbox numbers its own copy
+            }));
+        }
+        for (CompletableFuture<CompletableFuture<Void>> send : sends) {
+            PersistenceQueue.await(ChatBoxWriter.join(send));
         }
     }
 
@@ -140,56 +348,41 @@ public class MessageHandler {
     // INPUT: chatBoxID (int), clientHandler (ClientHandler)
     // OUTPUT: true if user added successfully, false otherwise
     public boolean addParticipantToChatBox(int chatBoxID, ClientHandler clientHandler) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
-            boolean added = chatBox.addParticipant(clientHandler.getUser());
-            if (added) {
-                storeChatBox(chatBox); // Store updated chatbox to reflect the new participant
-                return true;
+        CompletableFuture<Void> persisted = withChatBox(chatBoxID, chatBox -> {
+            int userID = clientHandler.getUser().getUserID();
+            if (chatBox.addParticipant(userID)) {
+                return storageManager.recordParticipantAdded(chatBox, userID); // Persist the new participant
             }
-        }
-        return false;
+            return null;
+        });
+        return persisted != null && PersistenceQueue.await(persisted); // Waited for here, not on the owner
     }
 
     // *Removes a user from a specific chatbox*
     // INPUT: chatBoxID (int), userID (int)
     // OUTPUT: true if user removed successfully, false otherwise
     public boolean removeParticipantFromChatBox(int chatBoxID, int userID) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
-            User userToRemove = chatBox.getParticipants().stream()
-                .filter(user -> user.getUserID() == userID)
-                .findFirst()
-                .orElse(null);
-            boolean removed = chatBox.removeParticipant(userToRemove);
-            if (removed) {
-                storeChatBox(chatBox); // Store updated chatbox to reflect the removed participant
-                return true;
+        CompletableFuture<Void> persisted = withChatBox(chatBoxID, chatBox -> {
+            if (chatBox.removeParticipant(userID)) {
+                return storageManager.recordParticipantRemoved(chatBox, userID); // Persist the removed participant
             }
-        }
-        return false;
+            return null;
+        });
+        return persisted != null && PersistenceQueue.await(persisted);
     }
 
     // *Retrieves all messages for a specific chatbox*
     // INPUT: chatBoxID (int)
     // OUTPUT: List of messages or null if chatbox not found
     public List<Message> getMessages(int chatBoxID) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
-            return chatBox.getMessagesList();
-        }
-        return null;
+        return withChatBox(chatBoxID, ChatBox::getMessagesList);
     }
 
     // *Loads a chatbox into memory from storage*
     // INPUT: chatBoxID (int)
     // OUTPUT: Loaded ChatBox or null if not found
     public ChatBox loadChatBox(int chatBoxID) {
-        ChatBox chatBox = storageManager.retrieveChatBox(chatBoxID);
-        if (chatBox != null) {
-            chatBoxes.put(chatBoxID, chatBox); // Add the chatbox to the in-memory collection
-        }
-        return chatBox;
+        return storageManager.retrieveChatBox(chatBoxID); // Loads it into memory if it is not resident
     }
 
     // *Stores a chatbox in persistent storage*
@@ -197,44 +390,38 @@ public class MessageHandler {
     // OUTPUT: true if stored successfully, false otherwise
     public boolean storeChatBox(ChatBox chatBox) {
         if (chatBox != null) {
-            chatBoxes.put(chatBox.getChatBoxID(), chatBox); // Update the in-memory collection
-            return storageManager.storeChatBox(chatBox); // Store the chatbox in persistent storage
+            return storageManager.storeChatBox(chatBox); // Store the chatbox in memory and persistent storage
         }
         return false;
     }
 
     // *Hides a specific message in a chatbox*
-    // INPUT: chatBoxID (int), messageID (int)
+    // INPUT: chatBoxID (int), sequenceNumber (long) of the message in the chatbox
     // OUTPUT: true if message hidden successfully, false otherwise
-    public boolean hideMessage(int chatBoxID, int messageID) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
-            Message messageToHide = chatBox.getMessages().stream()
-                .filter(message -> message.getMessageID() == messageID)
-                .findFirst()
-                .orElse(null);
-            if (messageToHide != null) {
-                messageToHide.setHidden(true);
-                storeChatBox(chatBox); // Store updated chatbox to reflect hidden message
-                updateParticipants(chatBoxID); // Update all participants with the latest chatbox state
-                return true;
+    public boolean hideMessage(int chatBoxID, long sequenceNumber) {
+        CompletableFuture<Void> persisted = withChatBox(chatBoxID, chatBox -> {
+            if (chatBox.setMessageHidden(sequenceNumber, true)) {
+                // Persist the hidden message, then update all participants with the latest chatbox state
+                return updateParticipantsAfter(chatBox, storageManager.recordMessageHidden(chatBox, sequenceNumber, true));
             }
-        }
-        return false;
+            return null;
+        });
+        return persisted != null && PersistenceQueue.await(persisted);
     }
 
     // *Hides an entire chatbox*
     // INPUT: chatBoxID (int)
     // OUTPUT: true if chatbox hidden successfully, false otherwise
     public boolean hideChatBox(int chatBoxID) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
+        CompletableFuture<Void> persisted = withChatBox(chatBoxID, chatBox -> {
             chatBox.hideChatBox(); // Set chatbox to hidden
-            storeChatBox(chatBox); // Store updated chatbox to reflect hidden status
-            updateParticipants(chatBoxID); // Update all participants with the latest chatbox state
-            return true;
-        }
-        return false;
+            long start = System.nanoTime();
+            CompletableFuture<Void> written = storageManager.recordChatBoxHidden(chatBox, true); // Persist the hidden status
+            written.whenComplete((result, error) ->
+                    requestMetrics.recordPersist(MessageType.HIDE_CHATBOX, System.nanoTime() - start));
+            return updateParticipantsAfter(chatBox, written); // Update all participants with the latest chatbox state
+        });
+        return persisted != null && PersistenceQueue.await(persisted);
     }
 
     // *Helper method to retrieve or create a private chatbox for a user*
@@ -244,8 +431,8 @@ public class MessageHandler {
         // Implement logic to retrieve or create a private chatbox for the user
         // For example, search for a chatbox with only this user or create a new one
         // Placeholder implementation:
-        for (ChatBox chatBox : chatBoxes.values()) {
-            if (chatBox.getParticipants().size() == 1 && chatBox.getParticipants().iterator().next().getUserID() == userID) {
+        for (ChatBox chatBox : getChatBoxesOf(userDB.get(userID))) {
+            if (chatBox.getParticipantCount() == 1) {
                 return chatBox.getChatBoxID();
             }
         }
@@ -258,14 +445,15 @@ public class MessageHandler {
     }
     
     public boolean unhideChatBox(int chatBoxID) {
-        ChatBox chatBox = chatBoxes.get(chatBoxID);
-        if (chatBox != null) {
+        CompletableFuture<Void> persisted = withChatBox(chatBoxID, chatBox -> {
             chatBox.setHidden(false); // Set chatbox to unhidden
-            storeChatBox(chatBox); // Store updated chatbox to reflect unhidden status
-            updateParticipants(chatBoxID); // Update all participants with the latest chatbox state
-            return true;
-        }
-        return false;
+            long start = System.nanoTime();
+            CompletableFuture<Void> written = storageManager.recordChatBoxHidden(chatBox, false); // Persist the unhidden status
+            written.whenComplete((result, error) ->
+                    requestMetrics.recordPersist(MessageType.UNHIDE_CHATBOX, System.nanoTime() - start));
+            return updateParticipantsAfter(chatBox, written); // Update all participants with the latest chatbox state
+        });
+        return persisted != null && PersistenceQueue.await(persisted);
     }
 }
 
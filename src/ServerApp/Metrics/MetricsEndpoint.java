@@ -0,0 +1,56 @@
+package ServerApp.Metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * MetricsEndpoint serves the metrics report as plain text on the loopback
+ * interface (GET /metrics), so operators on the server's host can take a
+ * snapshot with curl without logging in as an admin.
+ */
+public class MetricsEndpoint {
+
+    // Attributes
+    private final HttpServer httpServer;
+
+    // Constructor: binds the endpoint on the loopback address
+    // INPUT: port (int, 0 for any free port), report (Supplier<String>) called for every request
+    public MetricsEndpoint(int port, Supplier<String> report) throws IOException {
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/metrics", exchange -> {
+            try (exchange) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = report.get().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            }
+        });
+    }
+
+    // Starts serving requests on the endpoint's own thread
+    public void start() {
+        httpServer.start();
+    }
+
+    // Returns the port the endpoint listens on
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    // Stops the endpoint
+    public void stop() {
+        httpServer.stop(0);
+    }
+}
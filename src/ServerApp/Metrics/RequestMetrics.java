@@ -0,0 +1,134 @@
+package ServerApp.Metrics;
+
+import Common.LatencyHistogram.LatencyHistogram;
+import Common.MessageType;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RequestMetrics counts the messages of each MessageType and how long their
+ * stages take: decoding the frame, handling the request, persisting what it
+ * changed, and fanning the result out to the participants' connections. The
+ * counters of a type are created the first time it is seen, and each stage
+ * is a LatencyHistogram, so recording never takes a lock.
+ */
+public class RequestMetrics {
+
+    // Stages a message is timed in
+    public enum Stage {
+        DECODE, HANDLE, PERSIST, FAN_OUT
+    }
+
+    // The counters of one message type
+    public static class TypeMetrics {
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder deliveries = new LongAdder(); // Connections fanned out to
+        private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+
+        private TypeMetrics() {
+            for (int i = 0; i < stages.length; i++) {
+                stages[i] = new LatencyHistogram();
+            }
+        }
+
+        // Number of messages of this type handled
+        public long getRequests() {
+            return requests.sum();
+        }
+
+        // Number of connections messages of this type were fanned out to
+        public long getDeliveries() {
+            return deliveries.sum();
+        }
+
+        public LatencyHistogram getStage(Stage stage) {
+            return stages[stage.ordinal()];
+        }
+    }
+
+    // Attributes
+    private final AtomicReferenceArray<TypeMetrics> byType;
+    private final long startNanos;
+
+    // Constructor
+    public RequestMetrics() {
+        this.byType = new AtomicReferenceArray<>(MessageType.values().length);
+        this.startNanos = System.nanoTime();
+    }
+
+    // Returns the counters of a type, creating them the first time
+    private TypeMetrics of(MessageType type) {
+        TypeMetrics metrics = byType.get(type.ordinal());
+        if (metrics == null) {
+            byType.compareAndSet(type.ordinal(), null, new TypeMetrics());
+            metrics = byType.get(type.ordinal());
+        }
+        return metrics;
+    }
+
+    // Records a handled request
+    // INPUT: type (MessageType), decodeNanos (long, negative if not measured), handleNanos (long)
+    // OUTPUT: none
+    public void recordRequest(MessageType type, long decodeNanos, long handleNanos) {
+        TypeMetrics metrics = of(type);
+        metrics.requests.increment();
+        if (decodeNanos >= 0) {
+            metrics.stages[Stage.DECODE.ordinal()].record(decodeNanos);
+        }
+        metrics.stages[Stage.HANDLE.ordinal()].record(handleNanos);
+    }
+
+    // Records the time from a change to it being persisted
+    // INPUT: type (MessageType), nanos (long)
+    // OUTPUT: none
+    public void recordPersist(MessageType type, long nanos) {
+        of(type).stages[Stage.PERSIST.ordinal()].record(nanos);
+    }
+
+    // Records the time taken to queue a message to every recipient
+    // INPUT: type (MessageType), nanos (long), recipients (int)
+    // OUTPUT: none
+    public void recordFanOut(MessageType type, long nanos, int recipients) {
+        TypeMetrics metrics = of(type);
+        metrics.deliveries.add(recipients);
+        metrics.stages[Stage.FAN_OUT.ordinal()].record(nanos);
+    }
+
+    // Returns the counters of a type, or null if none of its messages was seen
+    public TypeMetrics get(MessageType type) {
+        return byType.get(type.ordinal());
+    }
+
+    // *Formats a snapshot of every type seen: counts, rates since startup and stage percentiles*
+    // INPUT: none
+    // OUTPUT: String, one line per type and stage
+    public String report() {
+        double uptimeSeconds = Math.max(1e-9, (System.nanoTime() - startNanos) / 1e9);
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "uptime %.1fs%n", uptimeSeconds));
+        for (MessageType type : MessageType.values()) {
+            TypeMetrics metrics = byType.get(type.ordinal());
+            if (metrics == null) {
+                continue;
+            }
+            report.append(String.format(Locale.ROOT, "%s requests=%d rate=%.1f/s", type, metrics.getRequests(),
+                    metrics.getRequests() / uptimeSeconds));
+            if (metrics.getDeliveries() > 0) {
+                report.append(String.format(Locale.ROOT, " deliveries=%d rate=%.1f/s", metrics.getDeliveries(),
+                        metrics.getDeliveries() / uptimeSeconds));
+            }
+            report.append(System.lineSeparator());
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = metrics.getStage(stage);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                report.append(String.format(Locale.ROOT, "  %-8s %s%n",
+                        stage.name().toLowerCase(Locale.ROOT).replace('_', '-'), histogram.summarize()));
+            }
+        }
+        return report.toString();
+    }
+}
@@ -0,0 +1,25 @@
+package ServerApp.PersistenceQueue;
+
+/**
+ * DurabilityMode trades write latency against durability.
+ */
+public enum DurabilityMode {
+    SYNC,         // Each write is performed and fsynced on the caller's thread before it returns
+    GROUP_COMMIT, // Writes are batched by the persistence thread; callers wait for their batch's fsync
+    ASYNC;        // Writes are batched by the persistence thread; callers do not wait
+
+    // Parses a mode name such as "sync", "group-commit" or "async", falling back to SYNC
+    // INPUT: name (String)
+    // OUTPUT: DurabilityMode
+    public static DurabilityMode parse(String name) {
+        if (name != null) {
+            String normalized = name.trim().replace('-', '_');
+            for (DurabilityMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(normalized)) {
+                    return mode;
+                }
+            }
+        }
+        return SYNC;
+    }
+}
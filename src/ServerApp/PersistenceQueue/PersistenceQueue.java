@@ -0,0 +1,268 @@
+package ServerApp.PersistenceQueue;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * PersistenceQueue is the persistence stage shared by StorageManager and
+ * AuthenticationSystem. Outside SYNC mode a single "persistence-writer" thread
+ * collects pending writes into a batch (closed by a size or time trigger),
+ * keeps only the latest write per key, performs them and then fsyncs each
+ * distinct Syncable of the batch once.
+ */
+public class PersistenceQueue {
+
+    // A pending write; returns what must be fsynced afterwards (null if the write synced itself)
+    @FunctionalInterface
+    public interface Write {
+        Syncable apply() throws IOException;
+    }
+
+    // Something that can be forced to disk, such as the current segment of a MessageLog
+    @FunctionalInterface
+    public interface Syncable {
+        void sync() throws IOException;
+    }
+
+    private record PendingWrite(Object key, Write write, CompletableFuture<Void> done) {
+    }
+
+    // Attributes
+    private final DurabilityMode mode;
+    private final long maxDelayMillis;
+    private final int maxBatchSize;
+    private final LinkedBlockingQueue<PendingWrite> pending;
+    private final ReentrantLock syncLock; // Serializes SYNC mode writes like the writer thread does
+    private final LongAdder writeCount;
+    private final LongAdder batchCount;
+    private final Thread writer;
+    private volatile boolean running;
+
+    // Constructor
+    // *SYNC mode, no persistence thread*
+    public PersistenceQueue() {
+        this(DurabilityMode.SYNC, 0, 1);
+    }
+
+    // Constructor
+    // *Starts the persistence thread unless mode is SYNC*
+    // INPUT: mode (DurabilityMode), maxDelayMillis (long) a batch stays open, maxBatchSize (int) writes per batch
+    public PersistenceQueue(DurabilityMode mode, long maxDelayMillis, int maxBatchSize) {
+        this.mode = mode;
+        this.maxDelayMillis = Math.max(0, maxDelayMillis);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.pending = new LinkedBlockingQueue<>();
+        this.syncLock = new ReentrantLock();
+        this.writeCount = new LongAdder();
+        this.batchCount = new LongAdder();
+        this.running = true;
+        if (mode == DurabilityMode.SYNC) {
+            this.writer = null;
+        } else {
+            this.writer = Thread.ofPlatform().name("persistence-writer").daemon().start(this::runWriter);
+        }
+    }
+
+    // Submits a write. Writes with the same (non-null) key that end up in one batch are coalesced
+    // and only the latest is performed. Waits for durability unless the mode is ASYNC.
+    // INPUT: key (Object, may be null), write (Write)
+    // OUTPUT: CompletableFuture completed once the write is durable
+    public CompletableFuture<Void> submit(Object key, Write write) {
+        CompletableFuture<Void> done = enqueue(key, write);
+        await(acknowledged(done));
+        return done;
+    }
+
+    // Submits a write like submit() without waiting for it (SYNC mode still writes on the caller's thread)
+    // INPUT: key (Object, may be null), write (Write)
+    // OUTPUT: CompletableFuture completed once the write is durable
+    public CompletableFuture<Void> enqueue(Object key, Write write) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (writer == null || !running) {
+            // SYNC mode, or the writer has stopped: write on the caller's thread
+            syncLock.lock();
+            try {
+                writeBatch(List.of(new PendingWrite(key, write, done)));
+            } finally {
+                syncLock.unlock();
+            }
+        } else {
+            pending.add(new PendingWrite(key, write, done));
+            if (!running) {
+                writeRemaining(); // close() may already have drained the queue
+            }
+        }
+        return done;
+    }
+
+    // Returns what a caller waits for before acknowledging a write: the write itself, or nothing in ASYNC mode
+    // INPUT: done (CompletableFuture<Void>) returned by enqueue
+    // OUTPUT: CompletableFuture<Void>
+    public CompletableFuture<Void> acknowledged(CompletableFuture<Void> done) {
+        return mode == DurabilityMode.ASYNC ? CompletableFuture.completedFuture(null) : done;
+    }
+
+    // *Replaces a whole file: the bytes are written and forced to disk in a sibling temporary file, which is then
+    // renamed over the file, so a crash leaves either the old or the new contents*
+    // INPUT: path (Path), bytes (byte[])
+    // OUTPUT: none
+    public static void writeFile(Path path, byte[] bytes) throws IOException {
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName() + ".", ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temporary.toFile())) {
+                out.write(bytes);
+                out.getFD().sync();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    // Deletes a file if it exists
+    public static void deleteFile(Path path) throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    // Waits for a write, logging a failure instead of throwing
+    // INPUT: done (CompletableFuture<Void>)
+    // OUTPUT: true if the write succeeded
+    public static boolean await(CompletableFuture<Void> done) {
+        try {
+            done.join();
+            return true;
+        } catch (CompletionException e) {
+            System.err.println("Persistence write failed: " + e.getCause());
+            return false;
+        }
+    }
+
+    // Waits until every write submitted so far is durable
+    public void flush() {
+        await(submit(null, () -> null));
+    }
+
+    // Flushes pending writes and stops the persistence thread; later writes run on the caller's thread
+    public void close() {
+        if (writer == null || !running) {
+            return;
+        }
+        flush();
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeRemaining(); // Writes submitted while the writer was stopping
+    }
+
+    // Writes whatever is still queued on the caller's thread
+    private void writeRemaining() {
+        syncLock.lock();
+        try {
+            List<PendingWrite> remaining = new ArrayList<>();
+            pending.drainTo(remaining);
+            writeBatch(remaining);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Collects batches until stopped
+    private void runWriter() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (running) {
+            try {
+                batch.add(pending.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // close() stops the writer; anything already collected is still written below
+            }
+            writeBatch(batch);
+            batch.clear();
+        }
+    }
+
+    // Performs a batch: the latest write per key, then one fsync per distinct Syncable
+    private void writeBatch(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Object, List<PendingWrite>> coalesced = new LinkedHashMap<>();
+        for (PendingWrite pendingWrite : batch) {
+            Object key = pendingWrite.key() != null ? pendingWrite.key() : new Object();
+            coalesced.computeIfAbsent(key, k -> new ArrayList<>()).add(pendingWrite);
+        }
+        Set<Syncable> toSync = new LinkedHashSet<>();
+        for (List<PendingWrite> writes : coalesced.values()) {
+            PendingWrite latest = writes.get(writes.size() - 1);
+            try {
+                Syncable syncable = latest.write().apply();
+                if (syncable != null) {
+                    toSync.add(syncable);
+                }
+                writeCount.increment();
+            } catch (IOException | RuntimeException e) {
+                e.printStackTrace();
+                writes.forEach(write -> write.done().completeExceptionally(e));
+            }
+        }
+        IOException syncFailure = null;
+        for (Syncable syncable : toSync) {
+            try {
+                syncable.sync();
+            } catch (IOException e) {
+                e.printStackTrace();
+                syncFailure = e;
+            }
+        }
+        batchCount.increment();
+        for (PendingWrite pendingWrite : batch) {
+            if (syncFailure != null) {
+                pendingWrite.done().completeExceptionally(syncFailure);
+            } else {
+                pendingWrite.done().complete(null); // No-op for writes that already failed
+            }
+        }
+    }
+
+    // Returns the durability mode
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    // Metrics: writes performed (after coalescing) and batches written
+    public long getWriteCount() {
+        return writeCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+}
@@ -2,17 +2,37 @@ package ServerApp.Server;
 
 import Common.User.User;
 import Common.Admin.Admin;
+import ServerApp.ChatBoxWriter.ChatBoxWriter;
+import ServerApp.ChatLogExporter.ChatLogExporter;
 import ServerApp.ClientHandler.ClientHandler;
+import ServerApp.IdleReaper.IdleReaper;
+import ServerApp.Metrics.MetricsEndpoint;
+import ServerApp.Metrics.RequestMetrics;
 import ServerApp.MessageHandler.MessageHandler;
+import ServerApp.PersistenceQueue.PersistenceQueue;
 import ServerApp.StorageManager.StorageManager;
 import ServerApp.AuthenticationSystem.AuthenticationSystem;
+import ServerApp.SessionRegistry.SessionRegistry;
+import ServerApp.Transport.Connection;
+import ServerApp.Transport.NioTransport;
+import ServerApp.Transport.OutboundQueue;
+import ServerApp.Transport.SocketConnection;
 import Common.ChatBox.ChatBox;
+import Common.LatencyHistogram.LatencyHistogram;
 
 import java.io.*;
 import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Server is the main server class responsible for accepting client
@@ -22,28 +42,68 @@ import java.util.concurrent.CopyOnWriteArrayList;
 public class Server {
 
     // Attributes
+    private final ServerConfig config;
+    private final StartupReport startupReport; // Per-phase startup timings
     private ServerSocket serverSocket;
-    private final List<ClientHandler> clientHandlers;
+    private NioTransport nioTransport;
+    private ExecutorService clientExecutor;
+    private final Set<ClientHandler> clientHandlers;
+    private final SessionRegistry sessionRegistry; // Logged in sessions by user ID
     private final ConcurrentHashMap<String, String> activeClients; // Tracks active clients (ID -> IP)
     private final MessageHandler messageHandler;
     private final ConcurrentHashMap<Integer, User> userDB;
-    private final ConcurrentHashMap<Integer, ChatBox> chatBoxes;
+    private final PersistenceQueue persistenceQueue; // Disk writes of storageManager and authenticationSystem
+    private final ChatBoxWriter chatBoxWriter; // Owner threads of the chatboxes
+    private final LongAdder outboundOverflows; // Frames refused by full outbound queues
+    private final ChatLogExporter chatLogExporter; // Chunked and server-side chat log exports
+    private final IdleReaper idleReaper; // Pings quiet clients and closes dead sessions
+    private MetricsEndpoint metricsEndpoint; // Local GET /metrics, if enabled
     private final StorageManager storageManager;
     private final AuthenticationSystem authenticationSystem;
+    private final AtomicBoolean stopped; // stopServer has run
 
-    // Constructor initializes the server with necessary components.
+    // Constructor initializes the server with the configuration from system properties.
     public Server() {
+        this(ServerConfig.fromSystemProperties());
+    }
+
+    // Constructor initializes the server with necessary components.
+    // INPUT: config (ServerConfig)
+    public Server(ServerConfig config) {
         System.out.println("Initializing Server...");
-        this.clientHandlers = new CopyOnWriteArrayList<>();
+        this.config = config;
+        this.startupReport = new StartupReport();
+        this.clientHandlers = ConcurrentHashMap.newKeySet(); // O(1) removal with many sessions
+        this.sessionRegistry = new SessionRegistry();
         this.activeClients = new ConcurrentHashMap<>();
-        this.storageManager = new StorageManager();
-        this.chatBoxes = new ConcurrentHashMap<>(storageManager.getChatBoxRecords());
-        this.authenticationSystem = new AuthenticationSystem(); // Updated to remove file path
+        this.outboundOverflows = new LongAdder();
+        this.stopped = new AtomicBoolean();
+        this.idleReaper = new IdleReaper(TimeUnit.MILLISECONDS.toNanos(config.getReaperTickMillis()),
+                TimeUnit.SECONDS.toNanos(config.getHeartbeatSeconds()),
+                TimeUnit.SECONDS.toNanos(config.getIdleTimeoutSeconds()), System.nanoTime());
+        this.persistenceQueue = new PersistenceQueue(config.getDurabilityMode(), config.getGroupCommitMillis(),
+                config.getGroupCommitBatchSize());
+        // Chatboxes load on another thread while the users load on this one; each directory is read in parallel
+        CompletableFuture<StorageManager> chatBoxLoad = CompletableFuture.supplyAsync(() ->
+                new StorageManager(config.getPersistenceMode(), config.getCheckpointIntervalSeconds(),
+                        persistenceQueue, config.getMaxResidentChatBoxes()));
+        this.authenticationSystem = new AuthenticationSystem(persistenceQueue); // Updated to remove file path
+        try {
+            this.storageManager = chatBoxLoad.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        startupReport.record("load users", authenticationSystem.getLoadNanos());
+        startupReport.record("load chatboxes", storageManager.getLoadNanos());
+        startupReport.record("build indexes", authenticationSystem.getIndexNanos());
         this.userDB = authenticationSystem.getUserDB();
-        this.messageHandler = new MessageHandler(storageManager, chatBoxes, userDB, this);
+        this.chatBoxWriter = new ChatBoxWriter(config.getChatBoxWriters());
+        this.messageHandler = new MessageHandler(storageManager, chatBoxWriter, userDB, this);
+        this.chatLogExporter = new ChatLogExporter(messageHandler, Paths.get(config.getExportDirectory()));
 
         // Debug logs
-        System.out.println("StorageManager initialized with " + chatBoxes.size() + " chatboxes.");
+        System.out.println("StorageManager initialized with " + storageManager.getChatBoxIDs().size() + " chatboxes ("
+                + storageManager.getResidentCount() + " resident).");
         System.out.println("AuthenticationSystem loaded " + userDB.size() + " users.");
         System.out.println("Server initialization complete.");
 
@@ -57,7 +117,7 @@ public class Server {
     // Creates initial users (run once)
     private void createInitialUsers() {
         // Check if "Bob Admin" exists
-        boolean bobExists = userDB.values().stream().anyMatch(u -> u.getUsername().equals("Bob Admin"));
+        boolean bobExists = authenticationSystem.findUserByUsername("Bob Admin") != null;
         Admin bobAdmin;
         if (!bobExists) {
             // Create an Admin object
@@ -66,14 +126,11 @@ public class Server {
             System.out.println("Created admin user: Bob Admin");
         } else {
             // Retrieve existing Bob Admin
-            bobAdmin = (Admin) userDB.values().stream()
-                    .filter(u -> u.getUsername().equals("Bob Admin") && u instanceof Admin)
-                    .findFirst()
-                    .orElse(null);
+            bobAdmin = authenticationSystem.findUserByUsername("Bob Admin") instanceof Admin admin ? admin : null;
         }
 
         // Now, use bobAdmin to add Sally User
-        boolean sallyExists = userDB.values().stream().anyMatch(u -> u.getUsername().equals("Sally User"));
+        boolean sallyExists = authenticationSystem.findUserByUsername("Sally User") != null;
         if (!sallyExists && bobAdmin != null) {
             User sallyUser = new User("Sally User", "SallyPass");
             boolean success = bobAdmin.addUser(sallyUser);
@@ -87,19 +144,15 @@ public class Server {
 
     // Creates initial chatboxes (run once)
     private void createInitialChatBoxes() {
-        // Check if chatbox between Bob and Sally exists
-        boolean chatBoxExists = chatBoxes.values().stream().anyMatch(chatBox -> {
-            Collection<User> participants = chatBox.getParticipants();
-            return participants.stream().anyMatch(u -> u.getUsername().equals("Bob Admin")) &&
-                   participants.stream().anyMatch(u -> u.getUsername().equals("Sally User")) &&
-                   chatBox.getChatBoxID()!=0;
-        });
+        // Get Bob and Sally from userDB
+        User bob = authenticationSystem.findUserByUsername("Bob Admin");
+        User sally = authenticationSystem.findUserByUsername("Sally User");
 
-        if (!chatBoxExists) {
-            // Get Bob and Sally from userDB
-            User bob = userDB.values().stream().filter(u -> u.getUsername().equals("Bob Admin")).findFirst().orElse(null);
-            User sally = userDB.values().stream().filter(u -> u.getUsername().equals("Sally User")).findFirst().orElse(null);
+        // Check if chatbox between Bob and Sally exists (from chatbox metadata, without loading messages)
+        boolean chatBoxExists = bob != null && messageHandler.getChatBoxesOf(bob).stream().anyMatch(chatBox ->
+                sally != null && chatBox.hasParticipant(sally.getUserID()) && chatBox.getChatBoxID() != 0);
 
+        if (!chatBoxExists) {
             if (bob != null && sally != null) {
                 List<User> participants = Arrays.asList(bob, sally);
                 ChatBox chatBox = messageHandler.createChatBox(participants, "Test Box 1");
@@ -115,28 +168,44 @@ public class Server {
     }
 
     // The rest of the class remains unchanged...
-    // Starts the server to begin accepting client connections.
+    // Starts the server to begin accepting client connections using the configured transport.
     // INPUT: port (int)
     // OUTPUT: none
     public void startServer(int port) {
+        idleReaper.start();
+        startMetricsEndpoint();
+        switch (config.getTransportMode()) {
+            case NIO -> startNioServer(port);
+            default -> startBlockingServer(port);
+        }
+    }
+
+    // Accepts connections with one dedicated (platform or virtual) thread per client.
+    // INPUT: port (int)
+    // OUTPUT: none
+    private void startBlockingServer(int port) {
         try {
-            serverSocket = new ServerSocket(port);
-            // Get the external IP address
-            String serverIP = getExternalIPAddress();
-            System.out.println("Server started on IP: " + serverIP + ", port: " + port);
+            long bindStart = System.nanoTime();
+            serverSocket = new ServerSocket(port, 1024, resolveBindAddress());
+            startupReport.record("bind", System.nanoTime() - bindStart);
+            clientExecutor = createClientExecutor();
+            String serverIP = getLocalIPAddress();
+            System.out.println("Server started on IP: " + serverIP + ", port: " + serverSocket.getLocalPort()
+                    + (config.isVirtualThreads() ? " (virtual threads)" : ""));
+            reportReady(serverIP, serverSocket.getLocalPort());
 
-            while (!Thread.currentThread().isInterrupted()) {
+            while (!Thread.currentThread().isInterrupted() && !serverSocket.isClosed()) {
                 try {
                     Socket client = serverSocket.accept();
                     System.out.println("New client connected: " + client.getInetAddress().getHostAddress());
-                    ClientHandler clientHandler = new ClientHandler(
-                            client, this, messageHandler, authenticationSystem);
-                    clientHandlers.add(clientHandler);
-                    new Thread(clientHandler).start();
-
-                    // Output the number of connected clients
-                    System.out.println("Number of connected clients: " + clientHandlers.size());
+                    // The stream handshake blocks, so it runs on the client's thread rather than the accept loop
+                    clientExecutor.execute(() -> serviceClient(client));
 
+                } catch (SocketException e) {
+                    if (serverSocket.isClosed()) {
+                        break; // stopServer() closed the socket
+                    }
+                    System.err.println("Error accepting client connection: " + e.getMessage());
                 } catch (IOException e) {
                     System.err.println("Error accepting client connection: " + e.getMessage());
                     e.printStackTrace();
@@ -158,11 +227,84 @@ public class Server {
         }
     }
 
+    // Creates the executor that runs one ClientHandler per blocking connection.
+    // INPUT: none
+    // OUTPUT: ExecutorService
+    private ExecutorService createClientExecutor() {
+        if (config.isVirtualThreads()) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("client-handler-", 0).factory());
+        }
+        return Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("client-handler-", 0).factory());
+    }
+
+    // Opens the object streams of a blocking connection and runs its ClientHandler.
+    // INPUT: client (Socket)
+    // OUTPUT: none
+    private void serviceClient(Socket client) {
+        SocketConnection connection;
+        try {
+            connection = new SocketConnection(client, newOutboundQueue(), userDB::get);
+        } catch (IOException e) {
+            System.err.println("Error opening client connection: " + e.getMessage());
+            try {
+                client.close();
+            } catch (IOException ignored) {
+                // Nothing left to clean up
+            }
+            return;
+        }
+        acceptConnection(connection).run();
+    }
+
+    // Accepts connections on a fixed set of selector event loops.
+    // INPUT: port (int)
+    // OUTPUT: none
+    private void startNioServer(int port) {
+        try {
+            long bindStart = System.nanoTime();
+            nioTransport = new NioTransport(this, config.getIoThreads());
+            nioTransport.bind(resolveBindAddress(), port);
+            startupReport.record("bind", System.nanoTime() - bindStart);
+            String serverIP = getLocalIPAddress();
+            System.out.println("Server started on IP: " + serverIP + ", port: " + nioTransport.getLocalPort() + " (NIO)");
+            reportReady(serverIP, nioTransport.getLocalPort());
+            nioTransport.acceptLoop();
+        } catch (IOException e) {
+            System.err.println("Error starting server on port " + port + ": " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            stopServer();
+        }
+    }
+
+    // Creates and registers a ClientHandler for a newly accepted connection.
+    // INPUT: connection (Connection)
+    // OUTPUT: ClientHandler
+    public ClientHandler acceptConnection(Connection connection) {
+        ClientHandler clientHandler = new ClientHandler(connection, this, messageHandler, authenticationSystem);
+        clientHandlers.add(clientHandler);
+        idleReaper.register(clientHandler);
+
+        // Output the number of connected clients
+        System.out.println("Number of connected clients: " + clientHandlers.size());
+        return clientHandler;
+    }
+
     // Stops the server and closes the server socket
     // INPUT: none
     // OUTPUT: none
     public void stopServer() {
+        if (!stopped.compareAndSet(false, true)) {
+            return; // Already stopped (the accept loop and the shutdown hook both stop the server)
+        }
         System.out.println("Stopping server...");
+        idleReaper.close();
+        if (metricsEndpoint != null) {
+            metricsEndpoint.stop();
+        }
+        if (nioTransport != null) {
+            nioTransport.stop(); // Closes the connections and waits for their requests and logouts
+        }
         try {
             if (serverSocket != null && !serverSocket.isClosed()) {
                 serverSocket.close();
@@ -172,6 +314,37 @@ public class Server {
             System.err.println("Error closing server socket: " + e.getMessage());
             e.printStackTrace();
         }
+        if (clientExecutor != null) {
+            for (ClientHandler clientHandler : clientHandlers) {
+                clientHandler.closeConnection(); // Unblocks the handler threads
+            }
+            clientExecutor.shutdown();
+            try {
+                if (!clientExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    System.err.println("Client handlers did not finish their pending requests.");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // No request is handled any more, so the chatboxes and storage can be closed
+        chatLogExporter.close(); // Finishes the exports already started (they read through the chatbox writers)
+        chatBoxWriter.close(); // Finishes the chatbox changes already submitted
+        storageManager.close(); // Checkpoints chatboxes changed since the last checkpoint (LOG persistence)
+        persistenceQueue.close(); // Flushes writes still queued (group-commit/async durability)
+    }
+
+    // Returns the port the server is listening on, or -1 if it is not bound yet.
+    // INPUT: none
+    // OUTPUT: int
+    public int getLocalPort() {
+        if (serverSocket != null && serverSocket.isBound()) {
+            return serverSocket.getLocalPort();
+        }
+        if (nioTransport != null) {
+            return nioTransport.getLocalPort();
+        }
+        return -1;
     }
 
     // Removes a client handler from the active list and updates active clients map.
@@ -179,7 +352,7 @@ public class Server {
     // OUTPUT: none
     public void removeClientHandler(ClientHandler handler) {
         clientHandlers.remove(handler);
-        String clientIP = handler.getClientSocket().getInetAddress().getHostAddress();
+        String clientIP = handler.getConnection().getRemoteAddress();
         activeClients.values().removeIf(ip -> ip.equals(clientIP));
         System.out.println("Client disconnected: " + clientIP);
 
@@ -187,13 +360,110 @@ public class Server {
         System.out.println("Number of connected clients: " + clientHandlers.size());
     }
 
-    // Retrieves the list of active client handlers.
+    // Retrieves the active client handlers.
     // INPUT: none
-    // OUTPUT: List<ClientHandler>
-    public List<ClientHandler> getClientHandlers() {
+    // OUTPUT: Collection<ClientHandler>
+    public Collection<ClientHandler> getClientHandlers() {
         return clientHandlers;
     }
 
+    // Retrieves the registry of logged in sessions.
+    // INPUT: none
+    // OUTPUT: SessionRegistry
+    public SessionRegistry getSessionRegistry() {
+        return sessionRegistry;
+    }
+
+    // Creates the outbound queue of a new connection with the configured limits.
+    // INPUT: none
+    // OUTPUT: OutboundQueue
+    public OutboundQueue newOutboundQueue() {
+        return new OutboundQueue(config.getOutboundQueueFrames(), config.getOutboundQueueBytes(),
+                config.getSlowConsumerPolicy(), outboundOverflows);
+    }
+
+    // Returns the number of frames waiting to be written, over all connections.
+    // INPUT: none
+    // OUTPUT: long
+    public long getOutboundQueueDepth() {
+        long depth = 0;
+        for (ClientHandler clientHandler : clientHandlers) {
+            depth += clientHandler.getConnection().getQueueDepth();
+        }
+        return depth;
+    }
+
+    // Returns the deepest outbound queue of a connection.
+    // INPUT: none
+    // OUTPUT: int
+    public int getMaxOutboundQueueDepth() {
+        int max = 0;
+        for (ClientHandler clientHandler : clientHandlers) {
+            max = Math.max(max, clientHandler.getConnection().getQueueDepth());
+        }
+        return max;
+    }
+
+    // Returns the number of frames refused because a client's outbound queue was full.
+    // INPUT: none
+    // OUTPUT: long
+    public long getOutboundOverflows() {
+        return outboundOverflows.sum();
+    }
+
+    // Starts the local metrics endpoint if a port is configured; the server runs without it if it cannot bind.
+    // INPUT: none
+    // OUTPUT: none
+    private void startMetricsEndpoint() {
+        if (config.getMetricsPort() < 0 || metricsEndpoint != null) {
+            return;
+        }
+        try {
+            metricsEndpoint = new MetricsEndpoint(config.getMetricsPort(), this::getMetricsReport);
+            metricsEndpoint.start();
+            System.out.println("Metrics available at http://127.0.0.1:" + metricsEndpoint.getPort() + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Error starting metrics endpoint on port " + config.getMetricsPort() + ": " + e.getMessage());
+        }
+    }
+
+    // Retrieves the per message type counters and timings.
+    // INPUT: none
+    // OUTPUT: RequestMetrics
+    public RequestMetrics getRequestMetrics() {
+        return messageHandler.getRequestMetrics();
+    }
+
+    // Formats a snapshot of the request metrics followed by the connection and routing gauges.
+    // INPUT: none
+    // OUTPUT: String
+    public String getMetricsReport() {
+        return getRequestMetrics().report()
+                + "connections=" + clientHandlers.size()
+                + " online users=" + sessionRegistry.getOnlineUserIDs().size() + System.lineSeparator()
+                + "session lookups=" + sessionRegistry.getLookupCount()
+                + " avg=" + LatencyHistogram.formatNanos((long) sessionRegistry.getAverageLookupNanos())
+                + System.lineSeparator()
+                + "outbound queue depth=" + getOutboundQueueDepth() + " max=" + getMaxOutboundQueueDepth()
+                + " overflows=" + getOutboundOverflows() + System.lineSeparator()
+                + "idle reaper sessions=" + idleReaper.getSessionCount() + " pings=" + idleReaper.getPingCount()
+                + " reaped=" + idleReaper.getReapedCount() + System.lineSeparator();
+    }
+
+    // Retrieves the idle reaper, with its ping and reaped session counts.
+    // INPUT: none
+    // OUTPUT: IdleReaper
+    public IdleReaper getIdleReaper() {
+        return idleReaper;
+    }
+
+    // Retrieves the chat log exporter.
+    // INPUT: none
+    // OUTPUT: ChatLogExporter
+    public ChatLogExporter getChatLogExporter() {
+        return chatLogExporter;
+    }
+
     // Retrieves the user database.
     // INPUT: none
     // OUTPUT: ConcurrentHashMap<Integer, User>
@@ -201,13 +471,6 @@ public class Server {
         return userDB;
     }
 
-    // Retrieves the chatboxes.
-    // INPUT: none
-    // OUTPUT: ConcurrentHashMap<Integer, ChatBox>
-    public ConcurrentHashMap<Integer, ChatBox> getChatBoxes() {
-        return chatBoxes;
-    }
-
     // Main method to start the server.
     public static void main(String[] args) {
         System.out.println("Launching Server application...");
@@ -219,22 +482,74 @@ public class Server {
             server.stopServer();
         }));
 
-        server.startServer(1234);
+        server.startServer(server.config.getPort());
     }
 
-    // Method to get the external IP address
+    // Returns the address to bind to: the configured local address, or null for all interfaces
     // INPUT: none
-    // OUTPUT: String (external IP address)
-    private String getExternalIPAddress() {
-        String externalIP = "Unknown IP";
-        try (Socket socket = new Socket()) {
-            socket.connect(new InetSocketAddress("google.com", 80));
-            externalIP = socket.getLocalAddress().getHostAddress();
-        } catch (IOException e) {
-            System.err.println("Error obtaining external IP address: " + e.getMessage());
-            e.printStackTrace();
+    // OUTPUT: InetAddress (null for all interfaces)
+    private InetAddress resolveBindAddress() throws UnknownHostException {
+        String bindAddress = config.getBindAddress();
+        return bindAddress == null || bindAddress.isBlank() ? null : InetAddress.getByName(bindAddress);
+    }
+
+    // Returns the address clients can reach the server on, from the local network interfaces
+    // (no outbound connection, so it works on isolated hosts). Prefers a site-local IPv4 address.
+    // INPUT: none
+    // OUTPUT: String (IP address)
+    private String getLocalIPAddress() {
+        if (config.getBindAddress() != null && !config.getBindAddress().isBlank()) {
+            return config.getBindAddress();
         }
-        return externalIP;
+        InetAddress ipv4 = null;
+        InetAddress ipv6 = null;
+        try {
+            for (NetworkInterface networkInterface : Collections.list(NetworkInterface.getNetworkInterfaces())) {
+                if (!networkInterface.isUp() || networkInterface.isLoopback() || networkInterface.isVirtual()) {
+                    continue;
+                }
+                for (InetAddress address : Collections.list(networkInterface.getInetAddresses())) {
+                    if (address.isLinkLocalAddress()) {
+                        continue;
+                    }
+                    if (address instanceof Inet4Address) {
+                        if (address.isSiteLocalAddress()) {
+                            return address.getHostAddress();
+                        }
+                        ipv4 = ipv4 != null ? ipv4 : address;
+                    } else {
+                        ipv6 = ipv6 != null ? ipv6 : address;
+                    }
+                }
+            }
+        } catch (SocketException e) {
+            System.err.println("Error reading network interfaces: " + e.getMessage());
+        }
+        InetAddress address = ipv4 != null ? ipv4 : ipv6 != null ? ipv6 : InetAddress.getLoopbackAddress();
+        return address.getHostAddress().replaceFirst("%.*$", ""); // Drop an IPv6 scope suffix such as %eth0
+    }
+
+    // Prints the readiness marker with the startup timings, and writes it to the ready file if configured
+    // INPUT: serverIP (String), port (int)
+    // OUTPUT: none
+    private void reportReady(String serverIP, int port) {
+        String marker = "SERVER READY ip=" + serverIP + " port=" + port + " transport="
+                + config.getTransportMode().name().toLowerCase(Locale.ROOT) + " startup: " + startupReport;
+        System.out.println(marker);
+        if (config.getReadyFile() != null) {
+            try {
+                Files.writeString(Paths.get(config.getReadyFile()), marker + System.lineSeparator());
+            } catch (IOException e) {
+                System.err.println("Error writing ready file " + config.getReadyFile() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Returns the startup timings
+    // INPUT: none
+    // OUTPUT: StartupReport
+    public StartupReport getStartupReport() {
+        return startupReport;
     }
 }
 
@@ -0,0 +1,252 @@
+package ServerApp.Server;
+
+import ServerApp.PersistenceQueue.DurabilityMode;
+import ServerApp.StorageManager.PersistenceMode;
+import ServerApp.Transport.SlowConsumerPolicy;
+import ServerApp.Transport.TransportMode;
+
+/**
+ * ServerConfig holds the startup options of the server. Values are read from
+ * system properties (e.g. -Dserver.transport=nio) so deployments can tune the
+ * server without code changes.
+ */
+public class ServerConfig {
+
+    // Attributes (initialised to the defaults)
+    private int port = 1234;
+    private TransportMode transportMode = TransportMode.BLOCKING;
+    private int ioThreads = Runtime.getRuntime().availableProcessors();
+    private boolean virtualThreads = false;
+    private PersistenceMode persistenceMode = PersistenceMode.SNAPSHOT;
+    private long checkpointIntervalSeconds = 30;
+    private DurabilityMode durabilityMode = DurabilityMode.SYNC;
+    private long groupCommitMillis = 2;
+    private int groupCommitBatchSize = 256;
+    private int maxResidentChatBoxes = 1024;
+    private int chatBoxWriters = Runtime.getRuntime().availableProcessors();
+    private String bindAddress = null; // null binds all interfaces
+    private String readyFile = null;
+    private String exportDirectory = "exports";
+    private int outboundQueueFrames = 1024;
+    private long outboundQueueBytes = 8L * 1024 * 1024;
+    private SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DISCONNECT;
+    private long heartbeatSeconds = 30;
+    private long idleTimeoutSeconds = 90; // 0 never closes idle sessions
+    private long reaperTickMillis = 1000;
+    private int metricsPort = -1; // Loopback port of the metrics endpoint; -1 disables it, 0 picks a free port
+
+    // Builds a configuration from system properties, using defaults for missing values
+    // INPUT: none
+    // OUTPUT: ServerConfig
+    public static ServerConfig fromSystemProperties() {
+        ServerConfig config = new ServerConfig();
+        config.setPort(Integer.getInteger("server.port", config.getPort()));
+        config.setTransportMode(TransportMode.parse(System.getProperty("server.transport")));
+        config.setIoThreads(Integer.getInteger("server.ioThreads", config.getIoThreads()));
+        config.setVirtualThreads(Boolean.getBoolean("server.virtualThreads"));
+        config.setPersistenceMode(PersistenceMode.parse(System.getProperty("server.persistence")));
+        config.setCheckpointIntervalSeconds(Long.getLong("server.checkpointIntervalSeconds", config.getCheckpointIntervalSeconds()));
+        config.setDurabilityMode(DurabilityMode.parse(System.getProperty("server.durability")));
+        config.setGroupCommitMillis(Long.getLong("server.groupCommitMillis", config.getGroupCommitMillis()));
+        config.setGroupCommitBatchSize(Integer.getInteger("server.groupCommitBatchSize", config.getGroupCommitBatchSize()));
+        config.setMaxResidentChatBoxes(Integer.getInteger("server.residentChatBoxes", config.getMaxResidentChatBoxes()));
+        config.setChatBoxWriters(Integer.getInteger("server.chatBoxWriters", config.getChatBoxWriters()));
+        config.setBindAddress(System.getProperty("server.bindAddress"));
+        config.setReadyFile(System.getProperty("server.readyFile"));
+        config.setExportDirectory(System.getProperty("server.exportDirectory", config.getExportDirectory()));
+        config.setOutboundQueueFrames(Integer.getInteger("server.outboundQueueFrames", config.getOutboundQueueFrames()));
+        config.setOutboundQueueBytes(Long.getLong("server.outboundQueueBytes", config.getOutboundQueueBytes()));
+        config.setSlowConsumerPolicy(SlowConsumerPolicy.parse(System.getProperty("server.slowConsumerPolicy")));
+        config.setHeartbeatSeconds(Long.getLong("server.heartbeatSeconds", config.getHeartbeatSeconds()));
+        config.setIdleTimeoutSeconds(Long.getLong("server.idleTimeoutSeconds", config.getIdleTimeoutSeconds()));
+        config.setReaperTickMillis(Long.getLong("server.reaperTickMillis", config.getReaperTickMillis()));
+        config.setMetricsPort(Integer.getInteger("server.metricsPort", config.getMetricsPort()));
+        return config;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    public TransportMode getTransportMode() {
+        return transportMode;
+    }
+
+    public void setTransportMode(TransportMode transportMode) {
+        this.transportMode = transportMode;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public void setIoThreads(int ioThreads) {
+        this.ioThreads = ioThreads;
+    }
+
+    // True when blocking connections are serviced by virtual threads instead of platform threads
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+
+    public void setPersistenceMode(PersistenceMode persistenceMode) {
+        this.persistenceMode = persistenceMode;
+    }
+
+    // How often LOG persistence checkpoints changed chatboxes to their files
+    public long getCheckpointIntervalSeconds() {
+        return checkpointIntervalSeconds;
+    }
+
+    public void setCheckpointIntervalSeconds(long checkpointIntervalSeconds) {
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+    }
+
+    // sync (fsync per write), group-commit (callers wait for a batched fsync) or async (callers do not wait).
+    // With the NIO transport, group-commit waits on the event loop thread
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+
+    public void setDurabilityMode(DurabilityMode durabilityMode) {
+        this.durabilityMode = durabilityMode;
+    }
+
+    // How long a batch of writes stays open before it is flushed
+    public long getGroupCommitMillis() {
+        return groupCommitMillis;
+    }
+
+    public void setGroupCommitMillis(long groupCommitMillis) {
+        this.groupCommitMillis = groupCommitMillis;
+    }
+
+    // How many writes close a batch early
+    public int getGroupCommitBatchSize() {
+        return groupCommitBatchSize;
+    }
+
+    public void setGroupCommitBatchSize(int groupCommitBatchSize) {
+        this.groupCommitBatchSize = groupCommitBatchSize;
+    }
+
+    // How many chatboxes (with their messages) are kept in memory; the least recently used are evicted
+    public int getMaxResidentChatBoxes() {
+        return maxResidentChatBoxes;
+    }
+
+    public void setMaxResidentChatBoxes(int maxResidentChatBoxes) {
+        this.maxResidentChatBoxes = maxResidentChatBoxes;
+    }
+
+    // Number of chatbox writer threads; each chatbox is changed by one of them, picked by chatBoxID
+    public int getChatBoxWriters() {
+        return chatBoxWriters;
+    }
+
+    public void setChatBoxWriters(int chatBoxWriters) {
+        this.chatBoxWriters = chatBoxWriters;
+    }
+
+    // Local address to listen on (an interface address such as 10.0.0.5); null listens on all interfaces
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    public void setBindAddress(String bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    // File the readiness marker is written to once the server accepts connections; null to only print it
+    public String getReadyFile() {
+        return readyFile;
+    }
+
+    public void setReadyFile(String readyFile) {
+        this.readyFile = readyFile;
+    }
+
+    // Directory chat logs exported on the server are written to
+    public String getExportDirectory() {
+        return exportDirectory;
+    }
+
+    public void setExportDirectory(String exportDirectory) {
+        this.exportDirectory = exportDirectory;
+    }
+
+    // Most frames waiting to be written to one client before it counts as a slow consumer
+    public int getOutboundQueueFrames() {
+        return outboundQueueFrames;
+    }
+
+    public void setOutboundQueueFrames(int outboundQueueFrames) {
+        this.outboundQueueFrames = outboundQueueFrames;
+    }
+
+    // Most bytes waiting to be written to one client before it counts as a slow consumer
+    public long getOutboundQueueBytes() {
+        return outboundQueueBytes;
+    }
+
+    public void setOutboundQueueBytes(long outboundQueueBytes) {
+        this.outboundQueueBytes = outboundQueueBytes;
+    }
+
+    // disconnect (close a slow consumer) or drop (drop the frames that do not fit in its queue)
+    public SlowConsumerPolicy getSlowConsumerPolicy() {
+        return slowConsumerPolicy;
+    }
+
+    public void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = slowConsumerPolicy;
+    }
+
+    // Seconds without a message from a client before it is sent a Ping
+    public long getHeartbeatSeconds() {
+        return heartbeatSeconds;
+    }
+
+    public void setHeartbeatSeconds(long heartbeatSeconds) {
+        this.heartbeatSeconds = heartbeatSeconds;
+    }
+
+    // Seconds without a message from a client (including Pongs) before its session is closed
+    public long getIdleTimeoutSeconds() {
+        return idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(long idleTimeoutSeconds) {
+        this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    // Resolution of the idle reaper's timer wheel
+    public long getReaperTickMillis() {
+        return reaperTickMillis;
+    }
+
+    public void setReaperTickMillis(long reaperTickMillis) {
+        this.reaperTickMillis = reaperTickMillis;
+    }
+
+    // Loopback port serving GET /metrics, -1 if disabled
+    public int getMetricsPort() {
+        return metricsPort;
+    }
+
+    public void setMetricsPort(int metricsPort) {
+        this.metricsPort = metricsPort;
+    }
+}
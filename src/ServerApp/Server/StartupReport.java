@@ -0,0 +1,53 @@
+package ServerApp.Server;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StartupReport collects the duration of each startup phase so cold-start time
+ * can be tracked. Phases may overlap (users and chatboxes load in parallel), so
+ * the total is wall-clock time since the report was created, not the sum.
+ */
+public class StartupReport {
+
+    // Attributes
+    private final long startNanos;
+    private final Map<String, Long> phaseNanos;
+
+    // Constructor
+    public StartupReport() {
+        this.startNanos = System.nanoTime();
+        this.phaseNanos = Collections.synchronizedMap(new LinkedHashMap<>());
+    }
+
+    // Records the duration of a phase
+    // INPUT: phase (String), nanos (long)
+    // OUTPUT: none
+    public void record(String phase, long nanos) {
+        phaseNanos.merge(phase, nanos, Long::sum);
+    }
+
+    // Returns the phase durations in milliseconds, in the order they were first recorded
+    public Map<String, Long> getPhaseMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        synchronized (phaseNanos) {
+            phaseNanos.forEach((phase, nanos) -> millis.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        }
+        return millis;
+    }
+
+    // Returns the time since the report was created, in milliseconds
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    // Formats the report, e.g. "load users=12ms, load chatboxes=30ms, ..., total=41ms"
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        getPhaseMillis().forEach((phase, millis) -> builder.append(phase).append('=').append(millis).append("ms, "));
+        return builder.append("total=").append(getElapsedMillis()).append("ms").toString();
+    }
+}
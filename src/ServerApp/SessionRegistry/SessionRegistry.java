@@ -0,0 +1,82 @@
+package ServerApp.SessionRegistry;
+
+import ServerApp.ClientHandler.ClientHandler;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SessionRegistry routes a userID to the ClientHandlers logged in as that user.
+ * It replaces scanning every connected handler when fanning out messages, and
+ * supports more than one session per user.
+ */
+public class SessionRegistry {
+
+    // Attributes
+    private final ConcurrentHashMap<Integer, Set<ClientHandler>> sessions;
+    private final LongAdder lookupCount;
+    private final LongAdder lookupNanos;
+
+    // Constructor
+    public SessionRegistry() {
+        this.sessions = new ConcurrentHashMap<>();
+        this.lookupCount = new LongAdder();
+        this.lookupNanos = new LongAdder();
+    }
+
+    // Registers a session for a user (called on login)
+    // INPUT: userID (int), handler (ClientHandler)
+    // OUTPUT: none
+    public void register(int userID, ClientHandler handler) {
+        sessions.computeIfAbsent(userID, id -> ConcurrentHashMap.newKeySet()).add(handler);
+    }
+
+    // Removes a session for a user (called when the connection closes)
+    // INPUT: userID (int), handler (ClientHandler)
+    // OUTPUT: none
+    public void unregister(int userID, ClientHandler handler) {
+        sessions.computeIfPresent(userID, (id, handlers) -> {
+            handlers.remove(handler);
+            return handlers.isEmpty() ? null : handlers;
+        });
+    }
+
+    // Returns the live sessions of a user (empty if the user is offline)
+    // INPUT: userID (int)
+    // OUTPUT: Collection<ClientHandler>
+    public Collection<ClientHandler> getSessions(int userID) {
+        long start = System.nanoTime();
+        Set<ClientHandler> handlers = sessions.get(userID);
+        lookupNanos.add(System.nanoTime() - start);
+        lookupCount.increment();
+        return handlers != null ? handlers : Collections.emptySet();
+    }
+
+    // Returns true if the user has at least one session
+    public boolean isOnline(int userID) {
+        return sessions.containsKey(userID);
+    }
+
+    // Returns the IDs of the users with at least one session (a live view)
+    public Set<Integer> getOnlineUserIDs() {
+        return Collections.unmodifiableSet(sessions.keySet());
+    }
+
+    // Returns the number of users with at least one session
+    public int getOnlineUserCount() {
+        return sessions.size();
+    }
+
+    // Routing metrics
+    public long getLookupCount() {
+        return lookupCount.sum();
+    }
+
+    public double getAverageLookupNanos() {
+        long count = lookupCount.sum();
+        return count == 0 ? 0 : (double) lookupNanos.sum() / count;
+    }
+}
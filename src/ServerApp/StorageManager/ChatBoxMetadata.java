@@ -0,0 +1,104 @@
+package ServerApp.StorageManager;
+
+import Common.ChatBox.ChatBox;
+import Common.ChatBoxSummary.ChatBoxSummary;
+import Common.Message.Message;
+import Common.Protocol.BinaryCodec;
+import Common.User.User;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * ChatBoxMetadata is what StorageManager keeps in memory for every chatbox,
+ * resident or not: enough to list chatboxes and find a user's chatboxes
+ * without loading their messages. It is persisted next to the chatbox file
+ * as "<chatBoxID>.meta". participantIDs is sorted and never modified (null for
+ * the system chatbox, which every user takes part in).
+ */
+public record ChatBoxMetadata(int chatBoxID, String name, int[] participantIDs, boolean hidden,
+                              LocalDateTime creationTime, LocalDateTime lastUpdated, long lastSequenceNumber) {
+
+    // Leading int of the current file format; older files start with the (non-negative) chatBoxID
+    // and hold full User objects
+    private static final int FORMAT_PARTICIPANT_IDS = -2;
+
+    // Most recently active first (chatboxes without an update time last), then by chatBoxID
+    public static final Comparator<ChatBoxMetadata> BY_ACTIVITY =
+            Comparator.comparing(ChatBoxMetadata::lastUpdated, Comparator.nullsLast(Comparator.reverseOrder()))
+                      .thenComparingInt(ChatBoxMetadata::chatBoxID);
+
+    // Builds the metadata of a chatbox (the caller guards the chatbox against concurrent changes)
+    // INPUT: chatBox (ChatBox)
+    // OUTPUT: ChatBoxMetadata
+    public static ChatBoxMetadata of(ChatBox chatBox) {
+        return new ChatBoxMetadata(chatBox.getChatBoxID(), chatBox.getName(), chatBox.getParticipantIDs(), chatBox.isHidden(),
+                chatBox.getCreationTime(), chatBox.lastUpdated(), chatBox.getLastSequenceNumber());
+    }
+
+    // Returns a copy updated for a new message; the participant list is shared
+    // INPUT: message (Message)
+    // OUTPUT: ChatBoxMetadata
+    public ChatBoxMetadata withMessage(Message message) {
+        return new ChatBoxMetadata(chatBoxID, name, participantIDs, hidden, creationTime,
+                message.getTimestamp(), Math.max(lastSequenceNumber, message.getSequenceNumber()));
+    }
+
+    // Returns true if the user takes part in the chatbox
+    public boolean hasParticipant(int userID) {
+        return participantIDs == null || Arrays.binarySearch(participantIDs, userID) >= 0;
+    }
+
+    // Returns the chatbox without its messages, as sent in login responses and chatbox lists
+    public ChatBox toEmptyChatBox() {
+        return ChatBox.restore(chatBoxID, name, participantIDs, List.of(), hidden, creationTime);
+    }
+
+    // Returns the summary shown in the admin chatbox lists. Messages are never removed and are numbered
+    // from 1, so the last sequence number is the message count
+    // INPUT: userCount (int) participants of a chatbox every user takes part in
+    // OUTPUT: ChatBoxSummary
+    public ChatBoxSummary toSummary(int userCount) {
+        int participantCount = participantIDs == null ? userCount : participantIDs.length;
+        return new ChatBoxSummary(chatBoxID, name, hidden, participantCount, lastSequenceNumber, lastUpdated);
+    }
+
+    // Writes the metadata file contents
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(FORMAT_PARTICIPANT_IDS);
+        out.writeInt(chatBoxID);
+        BinaryCodec.writeString(out, name);
+        BinaryCodec.writeUserIDs(out, participantIDs);
+        out.writeBoolean(hidden);
+        BinaryCodec.writeTime(out, creationTime);
+        BinaryCodec.writeTime(out, lastUpdated);
+        out.writeLong(lastSequenceNumber);
+    }
+
+    // Reads the metadata file contents
+    public static ChatBoxMetadata read(DataInputStream in) throws IOException {
+        int format = in.readInt();
+        int chatBoxID = format == FORMAT_PARTICIPANT_IDS ? in.readInt() : format;
+        String name = BinaryCodec.readString(in);
+        int[] participantIDs;
+        if (format == FORMAT_PARTICIPANT_IDS) {
+            participantIDs = BinaryCodec.readUserIDs(in);
+        } else {
+            List<User> participants = BinaryCodec.readUsers(in);
+            participantIDs = participants == null || chatBoxID == 0 ? null // The system chatbox: every user
+                    : participants.stream().mapToInt(User::getUserID).sorted().distinct().toArray();
+        }
+        if (participantIDs == null && chatBoxID != 0) {
+            participantIDs = new int[0];
+        }
+        boolean hidden = in.readBoolean();
+        LocalDateTime creationTime = BinaryCodec.readTime(in);
+        LocalDateTime lastUpdated = BinaryCodec.readTime(in);
+        return new ChatBoxMetadata(chatBoxID, name, participantIDs, hidden, creationTime, lastUpdated, in.readLong());
+    }
+}
@@ -0,0 +1,237 @@
+package ServerApp.StorageManager;
+
+import ServerApp.PersistenceQueue.PersistenceQueue;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * MessageLog is an append-only, segmented log of chatbox changes. Each record
+ * is written as [length][crc32][type][chatBoxID][payload]; replay stops at the
+ * first truncated or corrupt record, which can only be the tail of a segment
+ * that was being written when the server stopped. Appends are flushed to the
+ * operating system but not forced to disk; sync() does that, once per batch
+ * when called through a PersistenceQueue.
+ */
+public class MessageLog implements PersistenceQueue.Syncable {
+
+    // Record types
+    public static final byte MESSAGE = 1;
+    public static final byte PARTICIPANT_ADDED = 2;
+    public static final byte PARTICIPANT_REMOVED = 3;
+    public static final byte CHATBOX_HIDDEN = 4;
+    public static final byte MESSAGE_HIDDEN = 5;
+    public static final byte MESSAGE_SEQUENCE_HIDDEN = 6; // Replaces MESSAGE_HIDDEN, whose messageIDs repeat across restarts
+    public static final byte PARTICIPANT_ID_ADDED = 7; // Replaces PARTICIPANT_ADDED, which holds a full User
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // Writes the payload of a record
+    @FunctionalInterface
+    public interface RecordWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    // Applies a replayed record
+    @FunctionalInterface
+    public interface RecordHandler {
+        void apply(byte type, int chatBoxID, DataInputStream payload) throws IOException;
+    }
+
+    // Attributes
+    private final Path directory;
+    private final ReentrantLock lock;
+    private FileOutputStream segmentFile;
+    private DataOutputStream segmentOutput;
+    private long segmentNumber;
+
+    // Constructor
+    // *Opens a fresh segment after the existing ones; existing segments are left for replay*
+    // INPUT: directory (Path)
+    public MessageLog(Path directory) throws IOException {
+        this.directory = directory;
+        this.lock = new ReentrantLock();
+        Files.createDirectories(directory);
+        List<Long> existing = listSegments();
+        this.segmentNumber = existing.isEmpty() ? 0 : existing.get(existing.size() - 1);
+        openNextSegment();
+    }
+
+    // Appends a record to the current segment
+    // INPUT: type (byte), chatBoxID (int), writer (RecordWriter) for the payload
+    // OUTPUT: none
+    public void append(byte type, int chatBoxID, RecordWriter writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(type);
+        body.writeInt(chatBoxID);
+        writer.write(body);
+        body.flush();
+        byte[] record = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        lock.lock();
+        try {
+            segmentOutput.writeInt(record.length);
+            segmentOutput.writeInt((int) crc.getValue());
+            segmentOutput.write(record);
+            segmentOutput.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forces the records appended so far to disk
+    // INPUT: none
+    // OUTPUT: none
+    @Override
+    public void sync() throws IOException {
+        lock.lock();
+        try {
+            segmentFile.getFD().sync();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Forces and closes the current segment and starts a new one
+    // INPUT: none
+    // OUTPUT: the number of the new segment
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            segmentFile.getFD().sync();
+            segmentOutput.close();
+            openNextSegment();
+            return segmentNumber;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Replays every record of the segments written before this log was opened
+    // INPUT: handler (RecordHandler)
+    // OUTPUT: number of records replayed
+    public int replay(RecordHandler handler) throws IOException {
+        return replay(0, handler);
+    }
+
+    // Replays the records of the segments numbered fromSegment or above that were written before
+    // this log was opened (older segments are covered by a snapshot)
+    // INPUT: fromSegment (long), handler (RecordHandler)
+    // OUTPUT: number of records replayed
+    public int replay(long fromSegment, RecordHandler handler) throws IOException {
+        int replayed = 0;
+        for (long number : listSegments()) {
+            if (number >= segmentNumber) {
+                break;
+            }
+            if (number >= fromSegment) {
+                replayed += replaySegment(segmentPath(number), handler);
+            }
+        }
+        return replayed;
+    }
+
+    // Deletes the segments numbered below the given one (they are covered by a snapshot)
+    // INPUT: number (long), never above the current segment
+    // OUTPUT: number of segments deleted
+    public int deleteSegmentsBefore(long number) throws IOException {
+        int deleted = 0;
+        for (long existing : listSegments()) {
+            if (existing >= Math.min(number, segmentNumber)) {
+                break;
+            }
+            Files.deleteIfExists(segmentPath(existing));
+            deleted++;
+        }
+        return deleted;
+    }
+
+    // Reads the records of one segment until its end or the first damaged record
+    private int replaySegment(Path path, RecordHandler handler) throws IOException {
+        int replayed = 0;
+        long remaining = Files.size(path); // Bytes of the segment not read yet
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break; // Clean end of segment
+                }
+                try {
+                    int expectedCrc = in.readInt();
+                    remaining -= 2 * Integer.BYTES;
+                    // Checked before allocating: the length of a torn record can be anything
+                    if (length < 5 || length > remaining) {
+                        throw new IOException("Invalid record length " + length);
+                    }
+                    byte[] record = new byte[length];
+                    in.readFully(record);
+                    remaining -= length;
+                    CRC32 crc = new CRC32();
+                    crc.update(record);
+                    if ((int) crc.getValue() != expectedCrc) {
+                        throw new IOException("Checksum mismatch");
+                    }
+                    DataInputStream payload = new DataInputStream(new ByteArrayInputStream(record));
+                    byte type = payload.readByte();
+                    int chatBoxID = payload.readInt();
+                    handler.apply(type, chatBoxID, payload);
+                    replayed++;
+                } catch (IOException e) { // Includes a truncated record (EOFException)
+                    System.err.println("Stopped replaying " + path.getFileName() + " at a damaged record: " + e.getMessage());
+                    break;
+                }
+            }
+        }
+        return replayed;
+    }
+
+    // Returns the numbers of the segments on disk, in order
+    public List<Long> listSegments() throws IOException {
+        List<Long> numbers = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.map(path -> path.getFileName().toString())
+                 .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                 .forEach(name -> numbers.add(Long.parseLong(
+                         name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        numbers.sort(null);
+        return numbers;
+    }
+
+    // Returns the number of the segment currently being written
+    public long getSegmentNumber() {
+        return segmentNumber;
+    }
+
+    // Forces and closes the current segment
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            segmentFile.getFD().sync();
+            segmentOutput.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentNumber++;
+        segmentFile = new FileOutputStream(segmentPath(segmentNumber).toFile(), true);
+        segmentOutput = new DataOutputStream(new BufferedOutputStream(segmentFile));
+    }
+}
@@ -0,0 +1,23 @@
+package ServerApp.StorageManager;
+
+/**
+ * PersistenceMode selects how StorageManager persists chatbox changes.
+ */
+public enum PersistenceMode {
+    SNAPSHOT, // Rewrite the whole chatbox file on every change
+    LOG;      // Append changes to a MessageLog and checkpoint chatbox files periodically
+
+    // Parses a mode name, falling back to SNAPSHOT for unknown values
+    // INPUT: name (String)
+    // OUTPUT: PersistenceMode
+    public static PersistenceMode parse(String name) {
+        if (name != null) {
+            for (PersistenceMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return SNAPSHOT;
+    }
+}
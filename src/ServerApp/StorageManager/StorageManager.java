@@ -1,12 +1,47 @@
 package ServerApp.StorageManager;
 
 import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.Protocol.BinaryCodec;
+import Common.User.User;
+import ServerApp.MembershipIndex.MembershipIndex;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.concurrent.locks.ReentrantLock;
 import java.io.*;
 import java.nio.file.*;
 
 /**
  * StorageManager handles the persistent storage and retrieval of ChatBox objects.
+ * In SNAPSHOT mode every change rewrites the chatbox file. In LOG mode changes are
+ * appended to a MessageLog and the changed chatboxes are checkpointed to their files
+ * periodically; on startup the log is replayed on top of the checkpointed files.
+ * Disk writes go through a PersistenceQueue, whose DurabilityMode decides whether
+ * callers wait for them.
+ *
+ * Only a bounded number of chatboxes are resident; the least recently used are
+ * evicted and loaded again on first access. ChatBoxMetadata of every chatbox is
+ * kept in memory (and in a ".meta" file next to the chatbox file) so startup
+ * and chatbox listings do not need to deserialize message histories.
+ *
+ * In LOG mode every checkpoint also writes a catalog snapshot (the metadata of
+ * all chatboxes in one file) and deletes the log segments it covers, so a restart
+ * reads the catalog plus a short log tail.
  */
 public class StorageManager implements Serializable {
 
@@ -14,16 +49,91 @@ public class StorageManager implements Serializable {
     private static final long serialVersionUID = 1L;
 
     // Attributes
-    private final ConcurrentHashMap<Integer, ChatBox> chatBoxRecords;
+    private final ConcurrentHashMap<Integer, ChatBox> residentChatBoxes; // Chatboxes held in memory
+    private final LinkedHashMap<Integer, Boolean> recency; // Resident chatbox IDs, least recently used first
+    private final ReentrantLock cacheLock = new ReentrantLock(); // Guards recency and admissions
+    private final int maxResidentChatBoxes;
+    private final Set<Integer> pinnedChatBoxes; // Never evicted (e.g. the system chatbox)
+    private final ConcurrentHashMap<Integer, ChatBoxMetadata> chatBoxMetadata; // Every chatbox, resident or not
+    private final transient MembershipIndex membershipIndex; // userID -> chatboxes, kept in step with chatBoxMetadata
+    private final transient ConcurrentSkipListSet<ChatBoxMetadata> chatBoxesByActivity; // chatBoxMetadata by activity
+    private final ConcurrentHashMap<Integer, CompletableFuture<Void>> pendingSaves; // Chatbox file writes in flight
     private final String chatBoxesDirectory;
+    // A ReentrantLock rather than synchronized: virtual threads blocked on file I/O inside a
+    // synchronized block pin their carrier thread
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final PersistenceMode persistenceMode;
+    private final transient PersistenceQueue persistenceQueue;
+    private final Set<Integer> dirtyChatBoxes; // Chatboxes changed since their last checkpoint (LOG mode)
+    private transient MessageLog messageLog;
+    private transient ScheduledExecutorService checkpointScheduler;
+    private volatile boolean closed;
+    private long loadNanos;
+    private long catalogSegment; // First log segment not covered by the catalog snapshot read at startup
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    private static final String CATALOG_FILE = "catalog.snapshot";
+    private static final int CATALOG_VERSION = 1;
 
     // Constructor
     // Initializes StorageManager and loads existing chatboxes from files
     public StorageManager() {
-        this.chatBoxRecords = new ConcurrentHashMap<>();
-        this.chatBoxesDirectory = "chatboxes"; // Directory to store chatbox files
+        this(PersistenceMode.SNAPSHOT, 0, new PersistenceQueue(), Integer.MAX_VALUE);
+    }
+
+    // Constructor
+    // *Initializes StorageManager in the given persistence mode; LOG mode replays the message log
+    // and checkpoints every checkpointIntervalSeconds (no periodic checkpoint if <= 0). At most
+    // maxResidentChatBoxes chatboxes are kept in memory*
+    // INPUT: persistenceMode (PersistenceMode), checkpointIntervalSeconds (long), persistenceQueue (PersistenceQueue),
+    //        maxResidentChatBoxes (int)
+    public StorageManager(PersistenceMode persistenceMode, long checkpointIntervalSeconds, PersistenceQueue persistenceQueue,
+                          int maxResidentChatBoxes) {
+        this(persistenceMode, checkpointIntervalSeconds, persistenceQueue, maxResidentChatBoxes, "chatboxes"); // Directory to store chatbox files
+    }
+
+    // Constructor
+    // *As above, with the chatbox files in a given directory*
+    // INPUT: persistenceMode (PersistenceMode), checkpointIntervalSeconds (long), persistenceQueue (PersistenceQueue),
+    //        maxResidentChatBoxes (int), chatBoxesDirectory (String)
+    public StorageManager(PersistenceMode persistenceMode, long checkpointIntervalSeconds, PersistenceQueue persistenceQueue,
+                          int maxResidentChatBoxes, String chatBoxesDirectory) {
+        this.residentChatBoxes = new ConcurrentHashMap<>();
+        this.recency = new LinkedHashMap<>(16, 0.75f, true);
+        this.maxResidentChatBoxes = Math.max(1, maxResidentChatBoxes);
+        this.pinnedChatBoxes = ConcurrentHashMap.newKeySet();
+        this.chatBoxMetadata = new ConcurrentHashMap<>();
+        this.chatBoxesByActivity = new ConcurrentSkipListSet<>(ChatBoxMetadata.BY_ACTIVITY);
+        this.membershipIndex = new MembershipIndex();
+        this.pendingSaves = new ConcurrentHashMap<>();
+        this.chatBoxesDirectory = chatBoxesDirectory;
+        this.persistenceMode = persistenceMode;
+        this.persistenceQueue = persistenceQueue;
+        this.dirtyChatBoxes = ConcurrentHashMap.newKeySet();
         createChatBoxesDirectory();
-        loadChatBoxesFromFiles(); // Load existing chatboxes from files
+        loadChatBoxMetadata(); // Load the metadata of existing chatboxes
+        if (persistenceMode == PersistenceMode.LOG) {
+            openMessageLog(checkpointIntervalSeconds);
+        }
+    }
+
+    // Opens the message log, replays it and schedules checkpoints
+    private void openMessageLog(long checkpointIntervalSeconds) {
+        try {
+            messageLog = new MessageLog(Paths.get(chatBoxesDirectory, "log"));
+            long start = System.nanoTime();
+            int replayed = messageLog.replay(catalogSegment, this::applyRecord);
+            loadNanos += System.nanoTime() - start;
+            System.out.println("Replayed " + replayed + " log records.");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error opening message log", e);
+        }
+        if (checkpointIntervalSeconds > 0) {
+            checkpointScheduler = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("storage-checkpoint").daemon().factory());
+            checkpointScheduler.scheduleWithFixedDelay(this::checkpoint,
+                    checkpointIntervalSeconds, checkpointIntervalSeconds, TimeUnit.SECONDS);
+        }
     }
 
     // Creates the chatboxes directory if it doesn't exist
@@ -42,53 +152,565 @@ public class StorageManager implements Serializable {
     // Stores a chatbox in memory and saves it to an individual file
     public boolean storeChatBox(ChatBox chatBox) {
         if (chatBox != null) {
-            chatBoxRecords.put(chatBox.getChatBoxID(), chatBox);
-            saveChatBoxToFile(chatBox); // Save the chatbox to its individual file
+            cacheChatBox(chatBox);
+            updateMetadata(chatBox);
+            PersistenceQueue.await(persistenceQueue.acknowledged(saveChatBoxToFile(chatBox))); // Save the chatbox to its individual file
             return true;
         }
         return false;
     }
 
-    // Retrieves a chatbox from storage based on chatID
-    public ChatBox retrieveChatBox(int chatID) {
-        return chatBoxRecords.get(chatID);
+    // The record methods persist a change without waiting for the disk, so the chatbox's owner thread
+    // can go on; they return what the caller waits for before acknowledging the change (see
+    // PersistenceQueue.acknowledged)
+
+    // Records a new message of a chatbox
+    // INPUT: chatBox (ChatBox), message (Message) already added to the chatbox
+    // OUTPUT: CompletableFuture completed when the message may be acknowledged
+    public CompletableFuture<Void> recordMessage(ChatBox chatBox, Message message) {
+        chatBoxMetadata.compute(chatBox.getChatBoxID(), (id, metadata) -> {
+            if (metadata != null) {
+                ChatBoxMetadata updated = metadata.withMessage(message); // Participants are unchanged
+                reorderByActivity(metadata, updated);
+                return updated;
+            }
+            ChatBoxMetadata created = metadataOf(chatBox);
+            membershipIndex.update(id, null, created.participantIDs());
+            reorderByActivity(null, created);
+            return created;
+        });
+        return record(chatBox, MessageLog.MESSAGE, out -> BinaryCodec.writeMessage(out, message));
+    }
+
+    // Records a participant joining a chatbox
+    // INPUT: chatBox (ChatBox), userID (int)
+    // OUTPUT: CompletableFuture completed when the change may be acknowledged
+    public CompletableFuture<Void> recordParticipantAdded(ChatBox chatBox, int userID) {
+        updateMetadata(chatBox);
+        return record(chatBox, MessageLog.PARTICIPANT_ID_ADDED, out -> out.writeInt(userID));
+    }
+
+    // Records a participant leaving a chatbox
+    // INPUT: chatBox (ChatBox), userID (int)
+    // OUTPUT: CompletableFuture completed when the change may be acknowledged
+    public CompletableFuture<Void> recordParticipantRemoved(ChatBox chatBox, int userID) {
+        updateMetadata(chatBox);
+        return record(chatBox, MessageLog.PARTICIPANT_REMOVED, out -> out.writeInt(userID));
     }
 
-    // Retrieves all chatbox records from storage
-    public ConcurrentHashMap<Integer, ChatBox> getChatBoxRecords() {
-        return chatBoxRecords;
+    // Records a chatbox being hidden or unhidden
+    // INPUT: chatBox (ChatBox), hidden (boolean)
+    // OUTPUT: CompletableFuture completed when the change may be acknowledged
+    public CompletableFuture<Void> recordChatBoxHidden(ChatBox chatBox, boolean hidden) {
+        updateMetadata(chatBox);
+        return record(chatBox, MessageLog.CHATBOX_HIDDEN, out -> out.writeBoolean(hidden));
     }
 
-    // Saves a single chatbox to its individual file
-    private void saveChatBoxToFile(ChatBox chatBox) {
-        synchronized (this) { // Ensure thread safety during save
-            String fileName = chatBoxesDirectory + File.separator + chatBox.getChatBoxID(); // Filename is chatBoxID
-            try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(fileName))) {
-                oos.writeObject(chatBox);
+    // Records a message being hidden or unhidden
+    // INPUT: chatBox (ChatBox), sequenceNumber (long) of the message, hidden (boolean)
+    // OUTPUT: CompletableFuture completed when the change may be acknowledged
+    public CompletableFuture<Void> recordMessageHidden(ChatBox chatBox, long sequenceNumber, boolean hidden) {
+        return record(chatBox, MessageLog.MESSAGE_SEQUENCE_HIDDEN, out -> {
+            out.writeLong(sequenceNumber);
+            out.writeBoolean(hidden);
+        });
+    }
+
+    // Persists a change that was already applied to the chatbox in memory
+    private CompletableFuture<Void> record(ChatBox chatBox, byte type, MessageLog.RecordWriter writer) {
+        cacheChatBox(chatBox); // Re-admits a chatbox evicted while the change was being made
+        if (persistenceMode != PersistenceMode.LOG) {
+            return persistenceQueue.acknowledged(saveChatBoxToFile(chatBox));
+        }
+        // Marked dirty before appending, so a checkpoint that rotates past this record also rewrites the chatbox
+        dirtyChatBoxes.add(chatBox.getChatBoxID());
+        try {
+            messageLog.append(type, chatBox.getChatBoxID(), writer);
+        } catch (IOException e) {
+            System.err.println("Error appending to message log for chatbox " + chatBox.getChatBoxID());
+            e.printStackTrace();
+            return CompletableFuture.failedFuture(e);
+        }
+        // Appended in order on this thread; only the fsync is batched (one per batch, keyed by the log)
+        return persistenceQueue.acknowledged(persistenceQueue.enqueue(messageLog, () -> messageLog));
+    }
+
+    // Applies a replayed log record to the loaded chatboxes; records already covered by the file are skipped
+    private void applyRecord(byte type, int chatBoxID, DataInputStream payload) throws IOException {
+        ChatBox chatBox = retrieveChatBox(chatBoxID);
+        if (chatBox == null) {
+            System.err.println("Skipping log record for unknown chatbox " + chatBoxID);
+            return;
+        }
+        switch (type) {
+            case MessageLog.MESSAGE -> {
+                Message message = BinaryCodec.readMessage(payload);
+                if (message.getSequenceNumber() > chatBox.getLastSequenceNumber()) {
+                    chatBox.addMessage(message);
+                }
+            }
+            case MessageLog.PARTICIPANT_ADDED -> chatBox.addParticipant(BinaryCodec.readUser(payload)); // Older logs
+            case MessageLog.PARTICIPANT_ID_ADDED -> chatBox.addParticipant(payload.readInt());
+            case MessageLog.PARTICIPANT_REMOVED -> chatBox.removeParticipant(payload.readInt());
+            case MessageLog.CHATBOX_HIDDEN -> chatBox.setHidden(payload.readBoolean());
+            case MessageLog.MESSAGE_HIDDEN -> { // Older logs, keyed by messageID
+                Message message = chatBox.findMessage(payload.readInt());
+                boolean hidden = payload.readBoolean();
+                if (message != null) {
+                    message.setHidden(hidden);
+                }
+            }
+            case MessageLog.MESSAGE_SEQUENCE_HIDDEN -> {
+                long sequenceNumber = payload.readLong();
+                chatBox.setMessageHidden(sequenceNumber, payload.readBoolean());
+            }
+            default -> throw new IOException("Unknown log record type " + type);
+        }
+        updateMetadata(chatBox);
+        dirtyChatBoxes.add(chatBoxID);
+    }
+
+    // Writes every chatbox changed since the last checkpoint to its file. The log is rotated
+    // first, so every record in the older segments is covered once the files are durable; the
+    // catalog snapshot is then rewritten and the covered segments are deleted. Runs on the
+    // checkpoint thread: senders only ever append to the current segment.
+    // INPUT: none
+    // OUTPUT: number of chatboxes written
+    public int checkpoint() {
+        if (messageLog == null) {
+            return 0;
+        }
+        checkpointLock.lock();
+        try {
+            long coveredSegment;
+            try {
+                coveredSegment = messageLog.rotate();
             } catch (IOException e) {
+                System.err.println("Error rotating message log");
                 e.printStackTrace();
+                return 0;
+            }
+            List<CompletableFuture<Void>> writes = new ArrayList<>();
+            for (Integer chatBoxID : dirtyChatBoxes) {
+                dirtyChatBoxes.remove(chatBoxID);
+                ChatBox chatBox = residentChatBoxes.get(chatBoxID);
+                if (chatBox != null) {
+                    writes.add(saveChatBoxToFile(chatBox));
+                }
             }
+            writes.addAll(pendingSaves.values()); // Includes the saves of dirty chatboxes evicted since the last checkpoint
+            boolean durable = true;
+            for (CompletableFuture<Void> write : writes) {
+                durable &= PersistenceQueue.await(write); // The checkpoint is complete once every file is durable
+            }
+            if (durable) {
+                compact(coveredSegment);
+            } else {
+                System.err.println("Checkpoint incomplete; keeping message log segments");
+            }
+            return writes.size();
+        } finally {
+            checkpointLock.unlock();
         }
     }
 
-    // Loads chatboxes from individual files into memory
-    private void loadChatBoxesFromFiles() {
-        synchronized (this) { // Ensure thread safety during load
-            try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(Paths.get(chatBoxesDirectory))) {
-                for (Path path : directoryStream) {
-                    try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(path.toFile()))) {
-                        ChatBox chatBox = (ChatBox) ois.readObject();
-                        chatBoxRecords.put(chatBox.getChatBoxID(), chatBox);
-                    } catch (IOException | ClassNotFoundException e) {
-                        System.err.println("Error loading chatbox from file: " + path.getFileName());
-                        e.printStackTrace();
-                    }
+    // Writes the catalog snapshot and deletes the log segments it covers
+    // INPUT: coveredSegment (long), the first segment not covered by the chatbox files
+    // OUTPUT: none
+    private void compact(long coveredSegment) {
+        try {
+            writeCatalog(coveredSegment);
+            int deleted = messageLog.deleteSegmentsBefore(coveredSegment);
+            if (deleted > 0) {
+                System.out.println("Checkpoint compacted " + deleted + " log segments.");
+            }
+        } catch (IOException e) {
+            System.err.println("Error compacting message log");
+            e.printStackTrace();
+        }
+    }
+
+    // Writes the metadata of every chatbox to the catalog snapshot, atomically replacing the old one
+    // INPUT: coveredSegment (long)
+    // OUTPUT: none
+    private void writeCatalog(long coveredSegment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        List<ChatBoxMetadata> entries = List.copyOf(chatBoxMetadata.values());
+        out.writeInt(CATALOG_VERSION);
+        out.writeLong(coveredSegment);
+        out.writeInt(entries.size());
+        for (ChatBoxMetadata metadata : entries) {
+            metadata.write(out);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        PersistenceQueue.writeFile(Paths.get(chatBoxesDirectory, CATALOG_FILE), bytes.toByteArray());
+    }
+
+    // Reads the catalog snapshot into chatBoxMetadata
+    // INPUT: none
+    // OUTPUT: the first log segment to replay (0 if there is no usable catalog)
+    private long readCatalog() {
+        Path catalog = Paths.get(chatBoxesDirectory, CATALOG_FILE);
+        if (!Files.exists(catalog)) {
+            return 0;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(catalog);
+            if (bytes.length < Long.BYTES) {
+                throw new IOException("Truncated catalog");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(bytes, 0, bytes.length - Long.BYTES);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+            if (in.readInt() != CATALOG_VERSION) {
+                throw new IOException("Unknown catalog version");
+            }
+            long coveredSegment = in.readLong();
+            int count = in.readInt();
+            List<ChatBoxMetadata> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(ChatBoxMetadata.read(in));
+            }
+            if (in.readLong() != crc.getValue()) {
+                throw new IOException("Catalog checksum mismatch");
+            }
+            entries.forEach(this::putMetadata);
+            return coveredSegment;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable catalog snapshot: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    // Checkpoints and closes the message log (no-op in SNAPSHOT mode or when already closed)
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (checkpointScheduler != null) {
+            checkpointScheduler.shutdown();
+        }
+        if (messageLog != null) {
+            checkpoint();
+            persistenceQueue.flush(); // Pending log syncs
+            try {
+                messageLog.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // Returns the persistence mode
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+
+    // Retrieves a chatbox from storage based on chatID, loading it from its file if it is not resident
+    public ChatBox retrieveChatBox(int chatID) {
+        ChatBox chatBox = residentChatBoxes.get(chatID);
+        if (chatBox != null) {
+            cacheLock.lock();
+            try {
+                recency.get(chatID); // Marks it most recently used
+            } finally {
+                cacheLock.unlock();
+            }
+            return chatBox;
+        }
+        if (!chatBoxMetadata.containsKey(chatID)) {
+            return null;
+        }
+        ChatBox loaded = loadChatBoxFromFile(chatID);
+        if (loaded == null) {
+            return null;
+        }
+        return cacheChatBox(loaded);
+    }
+
+    // Keeps a chatbox resident whatever the cache size
+    public void pinChatBox(int chatBoxID) {
+        pinnedChatBoxes.add(chatBoxID);
+    }
+
+    // Returns the IDs of all chatboxes, resident or not
+    public Set<Integer> getChatBoxIDs() {
+        return chatBoxMetadata.keySet();
+    }
+
+    // Returns the metadata of all chatboxes, resident or not
+    public Collection<ChatBoxMetadata> getChatBoxMetadata() {
+        return chatBoxMetadata.values();
+    }
+
+    // Returns a page of the metadata of all chatboxes, most recently active first, without sorting
+    // INPUT: offset (int), limit (int)
+    // OUTPUT: List<ChatBoxMetadata>
+    public List<ChatBoxMetadata> getChatBoxesByActivity(int offset, int limit) {
+        List<ChatBoxMetadata> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<ChatBoxMetadata> iterator = chatBoxesByActivity.iterator();
+        for (int skipped = 0; skipped < offset && iterator.hasNext(); skipped++) {
+            iterator.next();
+        }
+        while (page.size() < limit && iterator.hasNext()) {
+            page.add(iterator.next());
+        }
+        return page;
+    }
+
+    // Returns the number of chatboxes, resident or not
+    public int getChatBoxCount() {
+        return chatBoxMetadata.size();
+    }
+
+    // Returns the chatboxes a user takes part in (all chatboxes if user is null), without messages
+    // INPUT: user (User, may be null)
+    // OUTPUT: List<ChatBox>
+    public List<ChatBox> getEmptyChatBoxes(User user) {
+        Collection<Integer> chatBoxIDs = chatBoxMetadata.keySet();
+        if (user != null) {
+            // Only the user's own chatboxes, plus the pinned ones (the system chatbox takes in every user)
+            Set<Integer> candidates = new TreeSet<>(membershipIndex.getChatBoxIDs(user.getUserID()));
+            candidates.addAll(pinnedChatBoxes);
+            chatBoxIDs = candidates;
+        }
+        List<ChatBox> chatBoxes = new ArrayList<>();
+        for (int chatBoxID : chatBoxIDs) {
+            ChatBoxMetadata metadata = chatBoxMetadata.get(chatBoxID);
+            if (metadata == null) {
+                continue;
+            }
+            if (user == null || metadata.hasParticipant(user.getUserID())) {
+                chatBoxes.add(metadata.toEmptyChatBox());
+            }
+        }
+        return chatBoxes;
+    }
+
+    // Returns true if a user takes part in a chatbox, without loading the chatbox
+    // INPUT: userID (int), chatBoxID (int)
+    // OUTPUT: boolean
+    public boolean isParticipant(int userID, int chatBoxID) {
+        if (membershipIndex.isMember(userID, chatBoxID)) {
+            return true;
+        }
+        ChatBoxMetadata metadata = chatBoxMetadata.get(chatBoxID);
+        return metadata != null && metadata.participantIDs() == null; // Every user takes part
+    }
+
+    // Returns the number of resident chatboxes
+    public int getResidentCount() {
+        return residentChatBoxes.size();
+    }
+
+    // Makes a chatbox resident, evicting the least recently used ones beyond the limit
+    // INPUT: chatBox (ChatBox)
+    // OUTPUT: the resident instance (an instance loaded concurrently wins over a freshly loaded one)
+    private ChatBox cacheChatBox(ChatBox chatBox) {
+        List<ChatBox> evicted = new ArrayList<>();
+        ChatBox resident;
+        cacheLock.lock();
+        try {
+            resident = residentChatBoxes.putIfAbsent(chatBox.getChatBoxID(), chatBox);
+            if (resident == null) {
+                resident = chatBox;
+            }
+            recency.put(chatBox.getChatBoxID(), Boolean.TRUE);
+            Iterator<Integer> eldest = recency.keySet().iterator();
+            while (recency.size() > maxResidentChatBoxes && eldest.hasNext()) {
+                Integer chatBoxID = eldest.next();
+                if (chatBoxID != chatBox.getChatBoxID() && !pinnedChatBoxes.contains(chatBoxID)) {
+                    eldest.remove();
+                    evicted.add(residentChatBoxes.remove(chatBoxID));
                 }
-                System.out.println("Loaded " + chatBoxRecords.size() + " chatboxes from files.");
+            }
+        } finally {
+            cacheLock.unlock();
+        }
+        for (ChatBox evictedChatBox : evicted) {
+            evict(evictedChatBox);
+        }
+        return resident;
+    }
+
+    // Forces an evicted chatbox to disk if it has changes that only the message log holds
+    private void evict(ChatBox chatBox) {
+        if (dirtyChatBoxes.remove(chatBox.getChatBoxID())) {
+            saveChatBoxToFile(chatBox); // A reload waits for this write
+        }
+    }
+
+    // Refreshes the metadata of a chatbox after a change
+    private void updateMetadata(ChatBox chatBox) {
+        putMetadata(metadataOf(chatBox));
+    }
+
+    // Replaces the metadata of a chatbox and moves its participants in the membership index
+    private void putMetadata(ChatBoxMetadata metadata) {
+        chatBoxMetadata.compute(metadata.chatBoxID(), (id, previous) -> {
+            membershipIndex.update(id, previous != null ? previous.participantIDs() : null, metadata.participantIDs());
+            reorderByActivity(previous, metadata);
+            return metadata;
+        });
+    }
+
+    // Moves a chatbox in chatBoxesByActivity (called inside chatBoxMetadata.compute, so one chatbox is
+    // never moved by two threads at once; a page read meanwhile may miss it)
+    private void reorderByActivity(ChatBoxMetadata previous, ChatBoxMetadata current) {
+        if (previous != null) {
+            chatBoxesByActivity.remove(previous);
+        }
+        chatBoxesByActivity.add(current);
+    }
+
+    private static ChatBoxMetadata metadataOf(ChatBox chatBox) {
+        synchronized (chatBox) { // appendMessage holds the same monitor
+            return ChatBoxMetadata.of(chatBox);
+        }
+    }
+
+    // Saves a single chatbox and its metadata to their files. The chatbox is serialized on the
+    // caller's thread; the files are written by the persistence queue (later writes of the same file win)
+    private CompletableFuture<Void> saveChatBoxToFile(ChatBox chatBox) {
+        int chatBoxID = chatBox.getChatBoxID();
+        Path path = chatBoxPath(chatBoxID); // Filename is chatBoxID
+        Path metadataPath = metadataPath(chatBoxID);
+        byte[] bytes;
+        byte[] metadataBytes;
+        try {
+            ByteArrayOutputStream metadataOut = new ByteArrayOutputStream();
+            synchronized (chatBox) { // appendMessage holds the same monitor
+                bytes = serialize(chatBox);
+                ChatBoxMetadata.of(chatBox).write(new DataOutputStream(metadataOut));
+            }
+            metadataBytes = metadataOut.toByteArray();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return CompletableFuture.failedFuture(e);
+        }
+        persistenceQueue.enqueue(path, () -> {
+            PersistenceQueue.writeFile(path, bytes);
+            return null;
+        });
+        // The metadata file is written after the chatbox file, so it is never newer than a stale chatbox file
+        CompletableFuture<Void> saved = persistenceQueue.enqueue(metadataPath, () -> {
+            PersistenceQueue.writeFile(metadataPath, metadataBytes);
+            return null;
+        });
+        pendingSaves.put(chatBoxID, saved);
+        saved.whenComplete((result, error) -> pendingSaves.remove(chatBoxID, saved));
+        return saved;
+    }
+
+    // Serializes a chatbox in memory
+    private static byte[] serialize(ChatBox chatBox) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(chatBox);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Loads a single chatbox from its file, after any write of it still in flight
+    private ChatBox loadChatBoxFromFile(int chatBoxID) {
+        CompletableFuture<Void> pendingSave = pendingSaves.get(chatBoxID);
+        if (pendingSave != null) {
+            PersistenceQueue.await(pendingSave);
+        }
+        Path path = chatBoxPath(chatBoxID);
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            return (ChatBox) ois.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            System.err.println("Error loading chatbox from file: " + path.getFileName());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Loads the metadata of every chatbox, reading the files in parallel; chatbox files without an
+    // up to date metadata file (e.g. written by an older server) are loaded once to rebuild it
+    private void loadChatBoxMetadata() {
+        fileLock.lock(); // Ensure thread safety during load
+        try {
+            long start = System.nanoTime();
+            List<Path> paths;
+            try (Stream<Path> directory = Files.list(Paths.get(chatBoxesDirectory))) {
+                paths = directory.filter(StorageManager::isChatBoxFile).toList(); // Skips the log directory and metadata files
             } catch (IOException e) {
                 System.err.println("Error reading chatbox files from directory: " + chatBoxesDirectory);
                 e.printStackTrace();
+                return;
+            }
+            if (persistenceMode == PersistenceMode.LOG) {
+                // Older segments are deleted once a catalog covers them; chatboxes created since have .meta files
+                catalogSegment = readCatalog();
+            }
+            int fromCatalog = chatBoxMetadata.size();
+            LongAdder rebuilt = new LongAdder();
+            paths.parallelStream().forEach(path -> {
+                int chatBoxID = Integer.parseInt(path.getFileName().toString());
+                if (chatBoxMetadata.containsKey(chatBoxID)) {
+                    return; // From the catalog; later changes are in the log
+                }
+                ChatBoxMetadata metadata = readMetadata(path, metadataPath(chatBoxID));
+                if (metadata == null) {
+                    ChatBox chatBox = loadChatBoxFromFile(chatBoxID);
+                    if (chatBox == null) {
+                        return;
+                    }
+                    metadata = ChatBoxMetadata.of(chatBox);
+                    saveChatBoxToFile(chatBox);
+                    cacheChatBox(chatBox);
+                    rebuilt.increment();
+                }
+                putMetadata(metadata);
+            });
+            int maxChatBoxID = chatBoxMetadata.keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+            ChatBox.advanceChatBoxIdGenerator(maxChatBoxID); // Stored chatboxes keep their files
+            loadNanos = System.nanoTime() - start;
+            System.out.println("Loaded metadata of " + chatBoxMetadata.size() + " chatboxes (" + fromCatalog
+                    + " from the catalog snapshot, " + rebuilt.sum() + " rebuilt from chatbox files).");
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    // Startup timing: loading the chatbox metadata (and replaying the message log in LOG mode)
+    public long getLoadNanos() {
+        return loadNanos;
+    }
+
+    // Reads a metadata file, or returns null if it is missing, unreadable or older than the chatbox file
+    private static ChatBoxMetadata readMetadata(Path chatBoxPath, Path metadataPath) {
+        try {
+            if (!Files.exists(metadataPath)
+                    || Files.getLastModifiedTime(metadataPath).compareTo(Files.getLastModifiedTime(chatBoxPath)) < 0) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(metadataPath)))) {
+                return ChatBoxMetadata.read(in);
             }
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable metadata file: " + metadataPath.getFileName());
+            return null;
         }
     }
+
+    private Path chatBoxPath(int chatBoxID) {
+        return Paths.get(chatBoxesDirectory, String.valueOf(chatBoxID));
+    }
+
+    private Path metadataPath(int chatBoxID) {
+        return Paths.get(chatBoxesDirectory, chatBoxID + ".meta");
+    }
+
+    // Chatbox files are named by their numeric chatBoxID
+    private static boolean isChatBoxFile(Path path) {
+        return Files.isRegularFile(path) && path.getFileName().toString().matches("\\d+");
+    }
 }
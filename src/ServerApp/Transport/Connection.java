@@ -0,0 +1,32 @@
+package ServerApp.Transport;
+
+import Common.MessageInterface;
+
+/**
+ * Connection is the transport side of a client session. ClientHandler uses it
+ * to send responses without knowing whether the client is serviced by a
+ * dedicated thread or by an event loop.
+ */
+public interface Connection {
+
+    // Sends a message to the client
+    void send(MessageInterface message);
+
+    // Sends a message encoded once for many clients
+    void send(EncodedMessage message);
+
+    // Closes the connection, flushing pending output where possible
+    void close();
+
+    // Closes the connection at once, dropping pending output (dead or idle clients)
+    void abort();
+
+    // Returns true while the connection has not been closed
+    boolean isOpen();
+
+    // Returns the number of frames waiting to be written to the client
+    int getQueueDepth();
+
+    // Returns the remote IP address of the client
+    String getRemoteAddress();
+}
@@ -0,0 +1,52 @@
+package ServerApp.Transport;
+
+import Common.MessageInterface;
+import Common.Protocol.WireProtocol;
+
+import java.io.IOException;
+
+/**
+ * EncodedMessage is a message sent to many connections. Its frame is encoded
+ * once per codec, the first time a connection using that codec sends it, and
+ * the same bytes are then written to every other connection. The frames must
+ * not be modified once encoded.
+ */
+public final class EncodedMessage {
+
+    // Attributes
+    private final MessageInterface message;
+    private volatile byte[] binaryFrame;
+    private volatile byte[] serializedFrame;
+
+    // Constructor
+    // INPUT: message (MessageInterface), which must not change while it is being sent
+    public EncodedMessage(MessageInterface message) {
+        this.message = message;
+    }
+
+    // Returns the message being sent
+    public MessageInterface getMessage() {
+        return message;
+    }
+
+    // Returns the frame of the message for a codec, encoding it on first use
+    // INPUT: codec (byte)
+    // OUTPUT: byte[] frame (length prefix + payload), shared by every caller
+    public byte[] getFrame(byte codec) throws IOException {
+        byte[] frame = codec == WireProtocol.CODEC_BINARY ? binaryFrame : serializedFrame;
+        if (frame == null) {
+            synchronized (this) {
+                frame = codec == WireProtocol.CODEC_BINARY ? binaryFrame : serializedFrame;
+                if (frame == null) {
+                    frame = WireProtocol.encodeFrame(message, codec);
+                    if (codec == WireProtocol.CODEC_BINARY) {
+                        binaryFrame = frame;
+                    } else {
+                        serializedFrame = frame;
+                    }
+                }
+            }
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,141 @@
+package ServerApp.Transport;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * EventLoop owns a Selector and services every NioConnection registered with it
+ * on a single thread. Work from other threads is handed over through a task
+ * queue so that connection state is only ever touched by the loop thread.
+ */
+public class EventLoop implements Runnable {
+
+    // Attributes
+    private final String name;
+    private final Selector selector;
+    private final Queue<Runnable> tasks;
+    private volatile boolean running;
+    private Thread thread;
+
+    // Constructor
+    // INPUT: name (String) used for the loop thread
+    public EventLoop(String name) throws IOException {
+        this.name = name;
+        this.selector = Selector.open();
+        this.tasks = new ConcurrentLinkedQueue<>();
+    }
+
+    // Starts the loop thread
+    public void start() {
+        running = true;
+        thread = new Thread(this, name);
+        thread.start();
+    }
+
+    // Stops the loop and closes every connection it owns
+    public void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    // Waits until the loop thread has closed its connections and ended
+    // INPUT: timeoutMillis (long)
+    // OUTPUT: none
+    public void awaitStop(long timeoutMillis) throws InterruptedException {
+        if (thread != null && !inEventLoop()) {
+            thread.join(timeoutMillis);
+        }
+    }
+
+    // Returns true when called from the loop thread
+    public boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    // Runs a task on the loop thread (inline when already on it)
+    // INPUT: task (Runnable)
+    // OUTPUT: none
+    public void execute(Runnable task) {
+        if (inEventLoop()) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    // Registers a newly accepted connection with this loop
+    // INPUT: connection (NioConnection)
+    // OUTPUT: none
+    public void register(NioConnection connection) {
+        execute(() -> {
+            try {
+                SelectionKey key = connection.getChannel().register(selector, SelectionKey.OP_READ, connection);
+                connection.attach(key);
+            } catch (IOException e) {
+                System.err.println("Error registering client connection: " + e.getMessage());
+                connection.closeNow();
+            }
+        });
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                runTasks();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    NioConnection connection = (NioConnection) key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            connection.onReadable();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.onWritable();
+                        }
+                    } catch (IOException e) {
+                        System.err.println("Connection error with client: " + e.getMessage());
+                        connection.closeNow();
+                    } catch (Exception e) {
+                        System.err.println("Unexpected error handling client: " + e.getMessage());
+                        e.printStackTrace();
+                        connection.closeNow();
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Event loop " + name + " failed: " + e.getMessage());
+        } finally {
+            shutdown();
+        }
+    }
+
+    // Runs the tasks queued by other threads
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            task.run();
+        }
+    }
+
+    // Closes all owned connections and the selector
+    private void shutdown() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                ((NioConnection) key.attachment()).closeNow();
+            }
+            selector.close();
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Error closing event loop " + name + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package ServerApp.Transport;
+
+import Common.MessageInterface;
+import Common.Protocol.WireProtocol;
+import ServerApp.ClientHandler.ClientHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NioConnection is a non-blocking client connection owned by one EventLoop.
+ * Incoming bytes are split into WireProtocol frames on the event loop, and the
+ * decoded requests are handed in order to the ClientHandler on a worker
+ * thread, so a request waiting on a chatbox owner or on fsync never stalls the
+ * other connections of the loop. Outgoing frames are queued in a bounded
+ * OutboundQueue and written in batches with one gathering write when the
+ * socket is writable.
+ */
+public class NioConnection implements Connection {
+
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_BATCH_FRAMES = 256; // Frames handed to one gathering write
+    private static final int MAX_PENDING_REQUESTS = 1024; // Reading pauses above this many undispatched requests
+
+    // Attributes
+    private final SocketChannel channel;
+    private final EventLoop eventLoop;
+    private final Executor workers;
+    private final String remoteAddress;
+    private final OutboundQueue outbound;
+    private final AtomicBoolean flushScheduled; // A flush is already queued on the event loop
+    private final Queue<Runnable> requests; // Decoded requests and the close, handled one at a time
+    private final AtomicInteger pendingRequests;
+    private final AtomicBoolean dispatching; // A worker is draining the requests
+    private boolean readPaused; // (loop thread only)
+    private ByteBuffer[] inFlight; // Batch being written (loop thread only)
+    private int inFlightIndex;
+    private ByteBuffer readBuffer;
+    private SelectionKey key;
+    private ClientHandler handler;
+    private boolean handshakeComplete;
+    private volatile byte codec;
+    private volatile boolean open;
+    private volatile boolean closing;
+
+    // Constructor with the default outbound queue
+    // INPUT: channel (SocketChannel) in non-blocking mode, eventLoop (EventLoop), workers (Executor)
+    public NioConnection(SocketChannel channel, EventLoop eventLoop, Executor workers) throws IOException {
+        this(channel, eventLoop, workers, new OutboundQueue());
+    }
+
+    // Constructor
+    // INPUT: channel (SocketChannel) in non-blocking mode, eventLoop (EventLoop), workers (Executor) that run
+    //        the requests, outbound (OutboundQueue)
+    public NioConnection(SocketChannel channel, EventLoop eventLoop, Executor workers, OutboundQueue outbound)
+            throws IOException {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+        this.workers = workers;
+        this.remoteAddress = channel.socket().getInetAddress().getHostAddress();
+        this.outbound = outbound;
+        this.flushScheduled = new AtomicBoolean();
+        this.requests = new ConcurrentLinkedQueue<>();
+        this.pendingRequests = new AtomicInteger();
+        this.dispatching = new AtomicBoolean();
+        this.readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        this.open = true;
+    }
+
+    // Sets the handler that receives decoded messages
+    public void setHandler(ClientHandler handler) {
+        this.handler = handler;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    void attach(SelectionKey key) {
+        this.key = key;
+        if (outbound.getDepth() > 0) {
+            flush();
+        }
+    }
+
+    // Reads available bytes and dispatches every complete frame (loop thread only)
+    void onReadable() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read == -1) {
+            closeNow();
+            return;
+        }
+        readBuffer.flip();
+        int required = processFrames();
+        readBuffer.compact();
+        if (required > readBuffer.capacity()) {
+            ByteBuffer larger = ByteBuffer.allocate(required);
+            readBuffer.flip();
+            larger.put(readBuffer);
+            readBuffer = larger;
+        }
+    }
+
+    // Writes queued frames (loop thread only)
+    void onWritable() {
+        flush();
+    }
+
+    // Decodes complete frames from the read buffer
+    // OUTPUT: the buffer size needed to hold the next incomplete frame
+    private int processFrames() throws IOException {
+        if (!handshakeComplete) {
+            if (readBuffer.remaining() < WireProtocol.HANDSHAKE_LENGTH) {
+                return 0;
+            }
+            int magic = readBuffer.getInt();
+            byte requested = readBuffer.get();
+            if (magic != WireProtocol.MAGIC || !WireProtocol.isSupportedCodec(requested)) {
+                // Legacy object-stream clients are only supported by the blocking transport
+                throw new IOException("Unsupported protocol handshake from " + remoteAddress);
+            }
+            codec = requested;
+            handshakeComplete = true;
+        }
+        while (open && readBuffer.remaining() >= 4) {
+            int length = readBuffer.getInt(readBuffer.position());
+            if (length < 0 || length > WireProtocol.MAX_FRAME_LENGTH) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            if (readBuffer.remaining() < 4 + length) {
+                return 4 + length;
+            }
+            int payloadStart = readBuffer.position() + 4;
+            long decodeStart = System.nanoTime();
+            MessageInterface message = WireProtocol.decodePayload(
+                    readBuffer.array(), readBuffer.arrayOffset() + payloadStart, length, codec);
+            long decodeNanos = System.nanoTime() - decodeStart;
+            readBuffer.position(payloadStart + length);
+            dispatch(() -> handler.handleMessage(message, decodeNanos));
+        }
+        if (open && pendingRequests.get() > MAX_PENDING_REQUESTS && !readPaused) {
+            readPaused = true; // The client sends faster than its requests are handled
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+        }
+        return 0;
+    }
+
+    // Queues work for the handler and starts a worker unless one is already draining the queue
+    private void dispatch(Runnable request) {
+        requests.add(request);
+        pendingRequests.incrementAndGet();
+        if (dispatching.compareAndSet(false, true)) {
+            try {
+                workers.execute(this::drainRequests);
+            } catch (RejectedExecutionException e) {
+                drainRequests(); // The transport is stopping: finish the requests and the logout here
+            }
+        }
+    }
+
+    // Handles queued requests in arrival order (worker thread)
+    private void drainRequests() {
+        while (true) {
+            Runnable request;
+            while ((request = requests.poll()) != null) {
+                try {
+                    request.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Error handling request from " + remoteAddress + ": " + e.getMessage());
+                }
+                if (pendingRequests.decrementAndGet() == MAX_PENDING_REQUESTS / 2) {
+                    eventLoop.execute(this::resumeReading);
+                }
+            }
+            dispatching.set(false);
+            // A request queued after the last poll but before the flag was cleared is drained here
+            if (requests.isEmpty() || !dispatching.compareAndSet(false, true)) {
+                return;
+            }
+        }
+    }
+
+    // Reads again once the backlog of requests has shrunk (loop thread only)
+    private void resumeReading() {
+        if (readPaused && open && key != null) {
+            readPaused = false;
+            key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    @Override
+    public void send(MessageInterface message) {
+        if (!open || closing) {
+            return;
+        }
+        try {
+            enqueue(WireProtocol.encodeFrame(message, codec));
+        } catch (IOException e) {
+            System.err.println("Error encoding message for client: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void send(EncodedMessage message) {
+        if (!open || closing) {
+            return;
+        }
+        try {
+            enqueue(message.getFrame(codec));
+        } catch (IOException e) {
+            System.err.println("Error encoding message for client: " + e.getMessage());
+        }
+    }
+
+    // Queues an encoded frame and schedules a flush unless one is already pending; a full queue
+    // applies the slow consumer policy
+    private void enqueue(byte[] frame) {
+        if (!outbound.offer(frame)) {
+            if (outbound.getPolicy() == SlowConsumerPolicy.DISCONNECT && open && !closing) {
+                System.err.println("Client " + remoteAddress + " is not reading its messages: disconnecting.");
+                closing = true;
+                eventLoop.execute(this::closeNow);
+            }
+            return;
+        }
+        if (flushScheduled.compareAndSet(false, true)) {
+            eventLoop.execute(this::flush); // Frames queued before it runs are written together
+        }
+    }
+
+    // Writes as much queued output as the socket accepts (loop thread only)
+    private void flush() {
+        flushScheduled.set(false);
+        if (!open || key == null) {
+            return;
+        }
+        try {
+            while (true) {
+                if (inFlight == null) {
+                    List<byte[]> batch = outbound.poll(MAX_BATCH_FRAMES);
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    // Buffers of our own over the (possibly shared) frames, so each connection keeps its own position
+                    inFlight = new ByteBuffer[batch.size()];
+                    for (int i = 0; i < inFlight.length; i++) {
+                        inFlight[i] = ByteBuffer.wrap(batch.get(i));
+                    }
+                    inFlightIndex = 0;
+                }
+                channel.write(inFlight, inFlightIndex, inFlight.length - inFlightIndex);
+                while (inFlightIndex < inFlight.length && !inFlight[inFlightIndex].hasRemaining()) {
+                    inFlightIndex++;
+                }
+                if (inFlightIndex < inFlight.length) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                    return;
+                }
+                inFlight = null;
+            }
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+            if (closing) {
+                closeNow();
+            }
+        } catch (IOException e) {
+            System.err.println("Error sending message to client: " + e.getMessage());
+            closeNow();
+        }
+    }
+
+    // Closes the connection once pending output has been written
+    @Override
+    public void close() {
+        if (!open || closing) {
+            return;
+        }
+        closing = true;
+        outbound.close(); // Nothing is queued after the frames already sent
+        eventLoop.execute(() -> {
+            if (key == null) {
+                closeNow();
+            } else {
+                flush();
+            }
+        });
+    }
+
+    // Closes the connection on the event loop without writing what is still queued
+    @Override
+    public void abort() {
+        if (!open) {
+            return;
+        }
+        closing = true;
+        eventLoop.execute(this::closeNow);
+    }
+
+    // Closes the channel immediately and notifies the handler
+    void closeNow() {
+        if (!open) {
+            return;
+        }
+        open = false;
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing client connection: " + e.getMessage());
+        }
+        outbound.close();
+        outbound.clear();
+        inFlight = null;
+        if (handler != null) {
+            dispatch(handler::closeConnection); // Logging out may write the user file, so not on the loop
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && !closing;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return outbound.getDepth();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return remoteAddress;
+    }
+}
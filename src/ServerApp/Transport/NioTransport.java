@@ -0,0 +1,116 @@
+package ServerApp.Transport;
+
+import ServerApp.ClientHandler.ClientHandler;
+import ServerApp.Server.Server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NioTransport accepts connections on a ServerSocketChannel and spreads them
+ * round-robin over a fixed set of EventLoops, so the number of server threads
+ * no longer grows with the number of connected clients. Requests are handled
+ * on virtual worker threads, which may block on a chatbox owner or on disk
+ * without holding up an event loop.
+ */
+public class NioTransport {
+
+    private static final long STOP_TIMEOUT_MILLIS = 5000;
+
+    // Attributes
+    private final Server server;
+    private final EventLoop[] eventLoops;
+    private final ExecutorService workers;
+    private ServerSocketChannel serverChannel;
+    private int nextLoop;
+
+    // Constructor
+    // INPUT: server (Server), ioThreads (int) number of event loops
+    public NioTransport(Server server, int ioThreads) throws IOException {
+        this.server = server;
+        this.eventLoops = new EventLoop[Math.max(1, ioThreads)];
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop("nio-event-loop-" + i);
+        }
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("nio-worker-", 0).factory());
+    }
+
+    // Binds the listening channel and starts the event loops
+    // INPUT: bindAddress (InetAddress, null for all interfaces), port (int)
+    // OUTPUT: none
+    public void bind(InetAddress bindAddress, int port) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(bindAddress, port), 1024);
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+        System.out.println("NIO transport started with " + eventLoops.length + " event loops.");
+    }
+
+    // Accepts connections until the channel is closed (runs on the calling thread)
+    // INPUT: none
+    // OUTPUT: none
+    public void acceptLoop() {
+        while (serverChannel.isOpen() && !Thread.currentThread().isInterrupted()) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                System.out.println("New client connected: " + channel.socket().getInetAddress().getHostAddress());
+
+                EventLoop eventLoop = eventLoops[nextLoop];
+                nextLoop = (nextLoop + 1) % eventLoops.length;
+                NioConnection connection = new NioConnection(channel, eventLoop, workers, server.newOutboundQueue());
+                ClientHandler clientHandler = server.acceptConnection(connection);
+                connection.setHandler(clientHandler);
+                eventLoop.register(connection);
+            } catch (ClosedChannelException e) {
+                break;
+            } catch (IOException e) {
+                System.err.println("Error accepting client connection: " + e.getMessage());
+            }
+        }
+    }
+
+    // Returns the bound port (useful when binding to port 0)
+    public int getLocalPort() {
+        if (serverChannel == null || !serverChannel.isOpen()) {
+            return -1;
+        }
+        return serverChannel.socket().getLocalPort();
+    }
+
+    // Stops accepting, shuts down the event loops, and waits for the workers to finish the requests
+    // already read and the logouts of the closed connections
+    public void stop() {
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing server channel: " + e.getMessage());
+        }
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.stop();
+        }
+        try {
+            for (EventLoop eventLoop : eventLoops) {
+                eventLoop.awaitStop(STOP_TIMEOUT_MILLIS); // Its connections have queued their logouts
+            }
+            workers.shutdown();
+            if (!workers.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                System.err.println("NIO workers did not finish their pending requests.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
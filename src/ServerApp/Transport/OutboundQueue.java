@@ -0,0 +1,161 @@
+package ServerApp.Transport;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * OutboundQueue holds the encoded frames waiting to be written to one client.
+ * Senders only append to it, so a thread fanning a message out to many clients
+ * never waits for a slow one; the connection's writer takes every queued frame
+ * at once and writes them with a single flush. The queue is bounded by a number
+ * of frames and of bytes: a frame that does not fit is refused, and the
+ * connection applies its SlowConsumerPolicy.
+ */
+public class OutboundQueue {
+
+    // Attributes
+    private final ArrayDeque<byte[]> frames;
+    private final int maxFrames;
+    private final long maxBytes;
+    private final SlowConsumerPolicy policy;
+    private final LongAdder overflows; // Refused frames, shared by the queues of a server
+    private final ReentrantLock lock = new ReentrantLock(); // Does not pin virtual threads
+    private final Condition notEmpty = lock.newCondition();
+    private long queuedBytes;
+    private int highWaterMark; // Most frames queued at once
+    private boolean closed;
+
+    // Constructor
+    // INPUT: maxFrames (int), maxBytes (long), policy (SlowConsumerPolicy), overflows (LongAdder)
+    public OutboundQueue(int maxFrames, long maxBytes, SlowConsumerPolicy policy, LongAdder overflows) {
+        this.frames = new ArrayDeque<>();
+        this.maxFrames = Math.max(1, maxFrames);
+        this.maxBytes = Math.max(1, maxBytes);
+        this.policy = policy;
+        this.overflows = overflows;
+    }
+
+    // Constructor with the default limits (1024 frames, 8MB, disconnect)
+    public OutboundQueue() {
+        this(1024, 8L * 1024 * 1024, SlowConsumerPolicy.DISCONNECT, new LongAdder());
+    }
+
+    // Queues a frame
+    // INPUT: frame (byte[]) never modified afterwards (it may be shared with other queues)
+    // OUTPUT: true if queued, false if the queue is closed or full
+    public boolean offer(byte[] frame) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            // An empty queue always takes one frame, however large
+            if (!frames.isEmpty() && (frames.size() >= maxFrames || queuedBytes + frame.length > maxBytes)) {
+                overflows.increment();
+                return false;
+            }
+            frames.add(frame);
+            queuedBytes += frame.length;
+            highWaterMark = Math.max(highWaterMark, frames.size());
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes up to a number of queued frames, waiting for one if none is queued (writer thread)
+    // INPUT: limit (int)
+    // OUTPUT: the frames in order, or an empty list once the queue is closed and drained
+    public List<byte[]> take(int limit) throws InterruptedException {
+        lock.lock();
+        try {
+            while (frames.isEmpty() && !closed) {
+                notEmpty.await();
+            }
+            return removeFrames(limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Takes up to a number of queued frames without waiting (event loop)
+    // INPUT: limit (int)
+    // OUTPUT: the frames in order, possibly none
+    public List<byte[]> poll(int limit) {
+        lock.lock();
+        try {
+            return removeFrames(limit);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<byte[]> removeFrames(int limit) {
+        List<byte[]> batch = new ArrayList<>(Math.min(limit, frames.size()));
+        while (batch.size() < limit && !frames.isEmpty()) {
+            byte[] frame = frames.poll();
+            queuedBytes -= frame.length;
+            batch.add(frame);
+        }
+        return batch;
+    }
+
+    // Refuses new frames; the frames already queued can still be taken
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Drops the frames still queued
+    public void clear() {
+        lock.lock();
+        try {
+            frames.clear();
+            queuedBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Number of frames waiting to be written
+    public int getDepth() {
+        lock.lock();
+        try {
+            return frames.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getQueuedBytes() {
+        lock.lock();
+        try {
+            return queuedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getHighWaterMark() {
+        lock.lock();
+        try {
+            return highWaterMark;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SlowConsumerPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,23 @@
+package ServerApp.Transport;
+
+/**
+ * SlowConsumerPolicy selects what happens to a client whose outbound queue is full.
+ */
+public enum SlowConsumerPolicy {
+    DISCONNECT, // Close the connection; the client reconnects and reloads its chatboxes
+    DROP;       // Drop the frames that do not fit; the client fetches missed messages by sequence number
+
+    // Parses a policy name, falling back to DISCONNECT for unknown values
+    // INPUT: name (String)
+    // OUTPUT: SlowConsumerPolicy
+    public static SlowConsumerPolicy parse(String name) {
+        if (name != null) {
+            for (SlowConsumerPolicy policy : values()) {
+                if (policy.name().equalsIgnoreCase(name.trim())) {
+                    return policy;
+                }
+            }
+        }
+        return DISCONNECT;
+    }
+}
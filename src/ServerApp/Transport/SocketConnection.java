@@ -0,0 +1,227 @@
+package ServerApp.Transport;
+
+import Common.MessageInterface;
+import Common.Protocol.LegacyObjectOutputStream;
+import Common.Protocol.WireProtocol;
+import Common.User.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+/**
+ * SocketConnection is the blocking transport, read by the thread that runs the
+ * ClientHandler. The protocol is negotiated from the first bytes the client
+ * sends: a WireProtocol handshake selects framed messages with the requested
+ * codec, anything else is treated as a legacy Java object stream. Messages are
+ * encoded by the sending thread into an OutboundQueue and written by a virtual
+ * writer thread of the connection, so a sender never blocks on the socket.
+ */
+public class SocketConnection implements Connection {
+
+    private static final int MAX_BATCH_FRAMES = 256; // Frames written before one flush
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    // Attributes
+    private final Socket socket;
+    private final boolean framed;
+    private final byte codec;
+    private final OutboundQueue outbound;
+    private final OutputStream socketOutput;
+    private ObjectOutputStream output; // Legacy object stream, writing into objectBytes
+    private ByteArrayOutputStream objectBytes;
+    private ObjectInputStream input;
+    private DataInputStream frameInput;
+    private final ReentrantLock encodeLock = new ReentrantLock(); // Orders the legacy object stream; does not pin virtual threads
+    private volatile boolean open;
+    private long lastDecodeNanos = -1; // Time spent decoding the last message received (reading thread only)
+
+    // Constructor with the default outbound queue (blocks until the client has sent its handshake or stream header)
+    // INPUT: socket (Socket)
+    public SocketConnection(Socket socket) throws IOException {
+        this(socket, new OutboundQueue(), userID -> null);
+    }
+
+    // Constructor (blocks until the client has sent its handshake or stream header)
+    // INPUT: socket (Socket), outbound (OutboundQueue), userLookup (IntFunction<User>) giving legacy clients
+    //        the participants of a chatbox as users
+    public SocketConnection(Socket socket, OutboundQueue outbound, IntFunction<User> userLookup) throws IOException {
+        this.socket = socket;
+        this.outbound = outbound;
+        BufferedInputStream in = new BufferedInputStream(socket.getInputStream());
+        DataInputStream peek = new DataInputStream(in);
+        in.mark(WireProtocol.HANDSHAKE_LENGTH);
+        if (peek.readInt() == WireProtocol.MAGIC) {
+            byte requested = peek.readByte();
+            if (!WireProtocol.isSupportedCodec(requested)) {
+                throw new IOException("Unsupported codec requested: " + requested);
+            }
+            this.framed = true;
+            this.codec = requested;
+            this.frameInput = peek;
+        } else {
+            in.reset(); // Legacy client: the bytes read were its object stream header
+            this.framed = false;
+            this.codec = WireProtocol.CODEC_SERIALIZED;
+            this.objectBytes = new ByteArrayOutputStream();
+            this.output = new LegacyObjectOutputStream(objectBytes, userLookup);
+            output.flush();
+            outbound.offer(takeObjectBytes()); // The stream header goes out first
+            this.input = new ObjectInputStream(in);
+        }
+        this.socketOutput = new BufferedOutputStream(socket.getOutputStream(), OUTPUT_BUFFER_SIZE);
+        this.open = true;
+        Thread.ofVirtual().name("client-writer-" + getRemoteAddress()).start(this::writeLoop);
+    }
+
+    // Blocks until the next message arrives from the client
+    // INPUT: none
+    // OUTPUT: MessageInterface
+    public MessageInterface receive() throws IOException, ClassNotFoundException {
+        if (framed) {
+            byte[] payload = WireProtocol.readPayload(frameInput);
+            long start = System.nanoTime();
+            MessageInterface message = WireProtocol.decodePayload(payload, 0, payload.length, codec);
+            lastDecodeNanos = System.nanoTime() - start;
+            return message;
+        }
+        return (MessageInterface) input.readObject(); // Reading and decoding an object stream cannot be told apart
+    }
+
+    // Returns the time spent decoding the last message received, or -1 if it was not measured
+    public long getLastDecodeNanos() {
+        return lastDecodeNanos;
+    }
+
+    @Override
+    public void send(MessageInterface message) {
+        if (!open) {
+            return;
+        }
+        try {
+            if (framed) {
+                enqueue(WireProtocol.encodeFrame(message, codec));
+                return;
+            }
+            encodeLock.lock();
+            try {
+                output.reset();
+                output.writeObject(message);
+                output.flush();
+                enqueue(takeObjectBytes()); // Under the lock, so the stream's parts are queued in order
+            } finally {
+                encodeLock.unlock();
+            }
+        } catch (IOException e) {
+            System.err.println("Error sending message to client: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void send(EncodedMessage message) {
+        if (!framed) {
+            send(message.getMessage()); // A legacy object stream writes its own copy
+            return;
+        }
+        if (!open) {
+            return;
+        }
+        try {
+            enqueue(message.getFrame(codec));
+        } catch (IOException e) {
+            System.err.println("Error sending message to client: " + e.getMessage());
+        }
+    }
+
+    // Queues an encoded frame, applying the slow consumer policy when the queue is full
+    private void enqueue(byte[] frame) {
+        if (!outbound.offer(frame) && open && outbound.getPolicy() == SlowConsumerPolicy.DISCONNECT) {
+            System.err.println("Client " + getRemoteAddress() + " is not reading its messages: disconnecting.");
+            abort();
+        }
+    }
+
+    private byte[] takeObjectBytes() {
+        byte[] bytes = objectBytes.toByteArray();
+        objectBytes.reset();
+        return bytes;
+    }
+
+    // Writes queued frames until the queue is closed and drained (writer thread)
+    private void writeLoop() {
+        try {
+            List<byte[]> batch;
+            while (!(batch = outbound.take(MAX_BATCH_FRAMES)).isEmpty()) {
+                for (byte[] frame : batch) {
+                    socketOutput.write(frame);
+                }
+                socketOutput.flush(); // One flush for everything queued meanwhile
+            }
+        } catch (IOException e) {
+            if (open) {
+                System.err.println("Error sending message to client: " + e.getMessage());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeSocket(); // A failed write also ends the reading side
+        }
+    }
+
+    // Stops reading and closes the socket once the frames already queued have been written
+    @Override
+    public void close() {
+        open = false;
+        outbound.close();
+        try {
+            if (!socket.isClosed() && !socket.isInputShutdown()) {
+                socket.shutdownInput(); // Unblocks a pending receive()
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing client connection: " + e.getMessage());
+        }
+    }
+
+    // Closes the socket at once, dropping the frames still queued (slow consumers, dead clients)
+    @Override
+    public void abort() {
+        open = false;
+        outbound.close();
+        outbound.clear();
+        closeSocket();
+    }
+
+    private void closeSocket() {
+        try {
+            if (!socket.isClosed()) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            System.err.println("Error closing client connection: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return outbound.getDepth();
+    }
+
+    @Override
+    public String getRemoteAddress() {
+        return socket.getInetAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,23 @@
+package ServerApp.Transport;
+
+/**
+ * TransportMode selects how the server accepts and services client connections.
+ */
+public enum TransportMode {
+    BLOCKING, // One thread per connection, Java object streams
+    NIO;      // Selector based event loops, framed WireProtocol connections
+
+    // Parses a mode name, falling back to BLOCKING for unknown values
+    // INPUT: name (String)
+    // OUTPUT: TransportMode
+    public static TransportMode parse(String name) {
+        if (name != null) {
+            for (TransportMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return BLOCKING;
+    }
+}
@@ -0,0 +1,68 @@
+package ServerApp.UserChangeLog;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * UserChangeLog numbers every change to a user (created, renamed, banned,
+ * unbanned, logged in or out, deleted) with a version and remembers which user
+ * the last changes were about, so a client holding the user directory at some
+ * version only needs the users changed since. Only the most recent changes are
+ * kept; a client further behind, or one that synced with an earlier run of the
+ * server (another epoch), gets the whole directory again.
+ */
+public class UserChangeLog {
+
+    // Attributes
+    private final long epoch; // Identifies this run of the server; versions of another run are not comparable
+    private final long[] versions; // Ring of the most recent changes
+    private final int[] userIDs;
+    private int next; // Slot of the next change
+    private int size;
+    private long version; // Version of the last change (0 before any change)
+
+    // Constructor
+    // INPUT: capacity (int) number of changes kept
+    public UserChangeLog(int capacity) {
+        this.epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE); // 0 is a client that never synced
+        this.versions = new long[Math.max(1, capacity)];
+        this.userIDs = new int[versions.length];
+    }
+
+    // Records a change to a user
+    // INPUT: userID (int)
+    // OUTPUT: the version of the change
+    public synchronized long record(int userID) {
+        version++;
+        versions[next] = version;
+        userIDs[next] = userID;
+        next = (next + 1) % versions.length;
+        size = Math.min(size + 1, versions.length);
+        return version;
+    }
+
+    // Returns the users changed after a version, oldest change first (a user changed twice is listed once)
+    // INPUT: sinceVersion (long)
+    // OUTPUT: Set of userIDs, or null if the changes since that version are no longer kept
+    public synchronized Set<Integer> changedSince(long sinceVersion) {
+        if (sinceVersion > version || sinceVersion < version - size) {
+            return null;
+        }
+        Set<Integer> changed = new LinkedHashSet<>();
+        int count = (int) (version - sinceVersion);
+        for (int i = count; i > 0; i--) {
+            changed.add(userIDs[Math.floorMod(next - i, versions.length)]);
+        }
+        return changed;
+    }
+
+    // Returns the version of the last change
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+}
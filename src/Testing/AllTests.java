@@ -15,7 +15,19 @@ import org.junit.runners.Suite;
 	TestServer.class,
 	TestAuthenticationSystem.class,
 	TestMessageHandler.class,
-	TestStorageManager.class
+	TestStorageManager.class,
+	TestVirtualThreadServer.class,
+	TestBinaryCodec.class,
+	TestSessionRegistry.class,
+	TestMessageLog.class,
+	TestPersistenceQueue.class,
+	TestChatBoxWriter.class,
+	TestMembershipIndex.class,
+	TestChatLogExporter.class,
+	TestUserChangeLog.class,
+	TestOutboundQueue.class,
+	TestIdleReaper.class,
+	TestRequestMetrics.class
 })
 public class AllTests {
 }
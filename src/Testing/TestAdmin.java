@@ -2,16 +2,19 @@ package Testing;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import Common.Admin.Admin;
 import Common.ChatBox.ChatBox;
 import Common.User.User;
 import ServerApp.AuthenticationSystem.AuthenticationSystem;
 import ServerApp.MessageHandler.MessageHandler;
+import ServerApp.PersistenceQueue.PersistenceQueue;
 import ServerApp.Server.Server;
 import ServerApp.StorageManager.StorageManager;
 
@@ -25,11 +28,14 @@ class TestAdmin {
     private ConcurrentHashMap<Integer, User> userDB;
     private Server server;
 
+    @TempDir
+    Path usersDirectory; // A fresh directory per test, so the users of one test do not clash with the next
+
     @BeforeEach
     public void setUpConstructor() {
         storageManager = new StorageManager();
         chatBoxes = new ConcurrentHashMap<>();
-        authenticationSys = new AuthenticationSystem();
+        authenticationSys = new AuthenticationSystem(new PersistenceQueue(), usersDirectory.toString());
         userDB = authenticationSys.getUserDB();
         messageHandler = new MessageHandler(storageManager, chatBoxes, userDB, server);
         admin = new Admin("BobAdmin", "Bob123", messageHandler, authenticationSys);
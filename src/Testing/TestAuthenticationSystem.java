@@ -4,9 +4,13 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import Common.User.User;
 import ServerApp.AuthenticationSystem.AuthenticationSystem;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+
+import java.nio.file.Path;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TestAuthenticationSystem {
     private AuthenticationSystem authSystem;
@@ -48,4 +52,39 @@ class TestAuthenticationSystem {
         assertTrue(authSystem.resetPassword(user.getUserID(), "newPassword"));
         assertEquals("newPassword", authSystem.findUser(user.getUserID()).getPassword());
     }
+
+    @Test
+    void testUsernameLookupIsCaseInsensitive() {
+        String name = "CaseUser" + System.nanoTime();
+        User user = new User(name, "pw");
+        assertTrue(authSystem.registerUser(user));
+        assertEquals(user, authSystem.findUserByUsername(name.toLowerCase()));
+        assertFalse(authSystem.registerUser(new User(name.toUpperCase(), "pw")));
+        assertEquals(user, authSystem.validateCredentials(name.toUpperCase(), "pw"));
+    }
+
+    @Test
+    void testRenameUserUpdatesIndex() {
+        String name = "RenameUser" + System.nanoTime();
+        User user = new User(name, "pw");
+        authSystem.registerUser(user);
+        assertTrue(authSystem.renameUser(user.getUserID(), name + "New"));
+        assertNull(authSystem.findUserByUsername(name));
+        assertEquals(user, authSystem.findUserByUsername(name + "New"));
+    }
+
+    @Test
+    void testUsersAreOfflineAfterRestart(@TempDir Path usersDirectory) {
+        PersistenceQueue persistenceQueue = new PersistenceQueue();
+        AuthenticationSystem beforeCrash = new AuthenticationSystem(persistenceQueue, usersDirectory.toString());
+        User user = new User("CrashUser", "pw");
+        beforeCrash.registerUser(user);
+        assertEquals(user, beforeCrash.validateCredentials("CrashUser", "pw"));
+        persistenceQueue.close();
+
+        // The user never logged out, yet can log in again once the server restarts
+        AuthenticationSystem afterRestart = new AuthenticationSystem(new PersistenceQueue(), usersDirectory.toString());
+        assertFalse(afterRestart.findUserByUsername("CrashUser").isOnline());
+        assertNotNull(afterRestart.validateCredentials("CrashUser", "pw"));
+    }
 }
@@ -0,0 +1,145 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import Common.Admin.Admin;
+import Common.ChatBox.ChatBox;
+import Common.ChatBoxSummary.ChatBoxSummary;
+import Common.Message.Message;
+import Common.MessageInterface;
+import Common.MessageType;
+import Common.Messages.*;
+import Common.Protocol.WireProtocol;
+import Common.User.User;
+import Common.UserSummary.UserSummary;
+import ServerApp.Transport.EncodedMessage;
+
+class TestBinaryCodec {
+
+	// Encodes and decodes a message through a binary frame
+	private MessageInterface roundTrip(MessageInterface message) throws IOException {
+		byte[] frame = WireProtocol.encodeFrame(message, WireProtocol.CODEC_BINARY);
+		return WireProtocol.decodePayload(frame, 4, frame.length - 4, WireProtocol.CODEC_BINARY);
+	}
+
+	@Test
+	void testSimpleRecords() throws IOException {
+		assertEquals(new Login("bob", "pass"), roundTrip(new Login("bob", "pass")));
+		assertEquals(new BanUser(7), roundTrip(new BanUser(7)));
+		assertEquals(new AskChatBox(3), roundTrip(new AskChatBox(3)));
+		assertEquals(new Notification("hello"), roundTrip(new Notification("hello")));
+		assertEquals(new CreateUser("new", "pw", true), roundTrip(new CreateUser("new", "pw", true)));
+		assertInstanceOf(Logout.class, roundTrip(new Logout()));
+		assertEquals(new Ping(123456789L), roundTrip(new Ping(123456789L)));
+		assertEquals(new Pong(123456789L), roundTrip(new Pong(123456789L)));
+		assertInstanceOf(AskServerMetrics.class, roundTrip(new AskServerMetrics()));
+		assertEquals(new SendServerMetrics("LOGIN requests=1"), roundTrip(new SendServerMetrics("LOGIN requests=1")));
+	}
+
+	@Test
+	void testLengthsBeyondThePayloadAreRejected() {
+		// A LOGIN whose username claims almost 2GB, in a payload of a few bytes
+		byte[] payload = { (byte) MessageType.LOGIN.ordinal(), 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xf0, 'a' };
+		assertThrows(IOException.class,
+				() -> WireProtocol.decodePayload(payload, 0, payload.length, WireProtocol.CODEC_BINARY));
+		// A chatbox list whose count is negative
+		byte[] negative = { (byte) MessageType.RETURN_CHATBOX_LIST.ordinal(), (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xfe };
+		assertThrows(IOException.class,
+				() -> WireProtocol.decodePayload(negative, 0, negative.length, WireProtocol.CODEC_BINARY));
+	}
+
+	@Test
+	void testSendMessage() throws IOException {
+		Message message = new Message(5, "Hi there");
+		SendMessage decoded = (SendMessage) roundTrip(new SendMessage(message, 12));
+		assertEquals(12, decoded.chatBoxID());
+		assertEquals(message.getMessageID(), decoded.message().getMessageID());
+		assertEquals(5, decoded.message().getSenderID());
+		assertEquals("Hi there", decoded.message().getContent());
+		assertEquals(message.getTimestamp(), decoded.message().getTimestamp());
+	}
+
+	@Test
+	void testSendChatBoxKeepsParticipantsAndMessages() throws IOException {
+		User user = new User("Sally", "pass123");
+		Admin admin = new Admin("Bob", "pass456", null, null);
+		ChatBox chatBox = new ChatBox(List.of(user, admin), "Box");
+		chatBox.addMessage(new Message(user.getUserID(), "first"));
+
+		SendChatBox sent = new SendChatBox(chatBox, List.of(UserSummary.of(user), UserSummary.of(admin)));
+		SendChatBox received = (SendChatBox) roundTrip(sent);
+		ChatBox decoded = received.chatBox();
+		assertEquals(chatBox.getChatBoxID(), decoded.getChatBoxID());
+		assertEquals("Box", decoded.getName());
+		assertArrayEquals(chatBox.getParticipantIDs(), decoded.getParticipantIDs());
+		assertEquals(sent.users(), received.users());
+		assertEquals("first", decoded.getMessages().get(0).getContent());
+	}
+
+	@Test
+	void testMessagePage() throws IOException {
+		assertEquals(new AskMessagePage(4, 20, true, 50), roundTrip(new AskMessagePage(4, 20, true, 50)));
+		ChatBox page = new ChatBox("Box");
+		page.appendMessage(new Message(1, "paged"));
+		List<UserSummary> users = List.of(new UserSummary(1, "Sally", true));
+		SendMessagePage decoded = (SendMessagePage) roundTrip(new SendMessagePage(page, 20, true, true, users));
+		assertEquals(users, decoded.users());
+		assertEquals(20, decoded.cursor());
+		assertTrue(decoded.older());
+		assertTrue(decoded.hasMore());
+		assertEquals(1, decoded.chatBox().getLastSequenceNumber());
+	}
+
+	@Test
+	void testChatBoxSummaries() throws IOException {
+		assertEquals(new AskChatBoxSummaries(100, 50), roundTrip(new AskChatBoxSummaries(100, 50)));
+		List<ChatBoxSummary> summaries = List.of(
+				new ChatBoxSummary(3, "Box", true, 2, 40, LocalDateTime.of(2024, 5, 1, 12, 30)),
+				new ChatBoxSummary(4, "Empty", false, 5, 0, null));
+		SendChatBoxSummaries sent = new SendChatBoxSummaries(summaries, 100, 250);
+		assertEquals(sent, roundTrip(sent));
+	}
+
+	@Test
+	void testUserChanges() throws IOException {
+		assertEquals(new AskUserChanges(17, 42), roundTrip(new AskUserChanges(17, 42)));
+		List<UserSummary> users = List.of(new UserSummary(3, "Sally", false, true), new UserSummary(4, "Bob", true, false));
+		SendUserChanges decoded = (SendUserChanges) roundTrip(new SendUserChanges(17, 45, false, users, new int[] {9}));
+		assertEquals(17, decoded.epoch());
+		assertEquals(45, decoded.version());
+		assertFalse(decoded.full());
+		assertEquals(users, decoded.users());
+		assertArrayEquals(new int[] {9}, decoded.removedUserIDs());
+	}
+
+	@Test
+	void testChatLogChunks() throws IOException {
+		assertEquals(new AskChatLogChunk(4, 500), roundTrip(new AskChatLogChunk(4, 500)));
+		assertEquals(new ExportChatLog(4), roundTrip(new ExportChatLog(4)));
+		SendChatLogChunk chunk = new SendChatLogChunk(4, 500, "line 1\nline 2\n", 502, true);
+		assertEquals(chunk, roundTrip(chunk));
+	}
+
+	@Test
+	void testBinaryFrameIsSmallerThanSerialization() throws IOException {
+		SendMessage message = new SendMessage(new Message(1, "Hello"), 1);
+		assertTrue(WireProtocol.encodeFrame(message, WireProtocol.CODEC_BINARY).length * 5
+				< WireProtocol.encodeFrame(message, WireProtocol.CODEC_SERIALIZED).length);
+	}
+
+	@Test
+	void testEncodedMessageIsEncodedOncePerCodec() throws IOException {
+		EncodedMessage encoded = new EncodedMessage(new SendMessage(new Message(5, "To everyone"), 0));
+		byte[] frame = encoded.getFrame(WireProtocol.CODEC_BINARY);
+		assertSame(frame, encoded.getFrame(WireProtocol.CODEC_BINARY));
+		assertNotSame(frame, encoded.getFrame(WireProtocol.CODEC_SERIALIZED));
+		SendMessage decoded = (SendMessage) WireProtocol.decodePayload(frame, 4, frame.length - 4, WireProtocol.CODEC_BINARY);
+		assertEquals("To everyone", decoded.message().getContent());
+	}
+}
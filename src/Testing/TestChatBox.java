@@ -3,12 +3,27 @@ package Testing;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
+
+import javax.tools.ToolProvider;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import Common.ChatBox.ChatBox;
+import Common.Protocol.LegacyObjectOutputStream;
 import Common.User.User;
 import Common.Message.Message;
 
@@ -44,14 +59,26 @@ class TestChatBox {
     void testGetParrticipants() {
     	chatBox.addParticipant(user1);
     	chatBox.addParticipant(user2);
+    	assertArrayEquals(new int[] {user1.getUserID(), user2.getUserID()}, chatBox.getParticipantIDs());
+    	assertTrue(chatBox.hasParticipant(user2.getUserID()));
     	chatBox.setParticipants(participants);
-    	assertNotNull(chatBox.getParticipants());
+    	assertEquals(0, chatBox.getParticipantCount());
     }
     
     @Test 
     void testRemoveParticiapant() {
     	chatBox.addParticipant(user1);
     	assertTrue(chatBox.removeParticipant(user1));
+    	assertFalse(chatBox.hasParticipant(user1.getUserID()));
+    	assertFalse(chatBox.removeParticipant(user1));
+    }
+
+    @Test
+    void testSystemChatBoxIncludesEveryone() {
+    	ChatBox systemChatBox = ChatBox.getSystemChatBox();
+    	assertTrue(systemChatBox.includesEveryone());
+    	assertTrue(systemChatBox.hasParticipant(user1.getUserID()));
+    	assertNull(systemChatBox.getParticipantIDs());
     }
     
     @Test 
@@ -59,7 +86,147 @@ class TestChatBox {
     	ChatBox emptyChatBox = chatBox.getEmpty();
     	assertNotNull(emptyChatBox);
     	assertEquals(chatBox.getChatBoxID(), emptyChatBox.getChatBoxID());
-    	assertEquals(chatBox.getParticipants(), emptyChatBox.getParticipants());
+    	assertArrayEquals(chatBox.getParticipantIDs(), emptyChatBox.getParticipantIDs());
     }
-}
+    
+    @Test
+    void testAppendMessageAssignsSequenceNumbers() {
+    	assertEquals(1, chatBox.appendMessage(new Message(1, "first")));
+    	assertEquals(2, chatBox.appendMessage(new Message(1, "second")));
+    	assertEquals(2, chatBox.getLastSequenceNumber());
+    	assertEquals(0, chatBox.getEmpty().getLastSequenceNumber());
+    }
+    
+    @Test
+    void testMessagePagesByCursor() {
+    	LocalDateTime start = LocalDateTime.of(2024, 1, 1, 12, 0);
+    	for (int i = 1; i <= 5; i++) {
+    		chatBox.addMessage(new Message(i, 1, "message " + i, start.plusSeconds(i), false, i));
+    	}
+    	assertEquals(List.of(4L, 5L), sequenceNumbers(chatBox.getMessagePage(0, true, 2)));
+    	assertEquals(List.of(2L, 3L), sequenceNumbers(chatBox.getMessagePage(4, true, 2)));
+    	assertEquals(List.of(1L), sequenceNumbers(chatBox.getMessagePage(2, true, 2)));
+    	assertEquals(List.of(3L, 4L), sequenceNumbers(chatBox.getMessagePage(2, false, 2)));
+    	chatBox.addMessage(new Message(6, 1, "message 6", start.plusSeconds(6), false, 6));
+    	assertEquals(List.of(6L), sequenceNumbers(chatBox.getMessagePage(5, false, 2)));
+    }
+    
+    @Test
+    void testMessagesWithTheSameTimestampAreKept() {
+    	LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 0);
+    	chatBox.addMessage(new Message(1, 1, "first", time, false, 0));
+    	chatBox.addMessage(new Message(2, 1, "second", time, false, 0));
+    	assertEquals(List.of(1L, 2L), sequenceNumbers(chatBox.getMessages()));
+    	assertEquals("second", chatBox.findMessage(2).getContent());
+    	chatBox.addMessage(new Message(3, 1, "duplicate", time, false, 2));
+    	assertEquals(2, chatBox.getMessages().size());
+    }
+    
+    @Test
+    void testHidingUsesTheSequenceNumberWhenMessageIDsRepeat() {
+    	LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 0);
+    	chatBox.addMessage(new Message(7, 1, "before restart", time, false, 1));
+    	chatBox.addMessage(new Message(7, 1, "after restart", time, false, 2)); // IDs start again in a new JVM
+    	assertTrue(chatBox.setMessageHidden(2, true));
+    	assertFalse(chatBox.findMessageBySequenceNumber(1).isHidden());
+    	assertTrue(chatBox.findMessageBySequenceNumber(2).isHidden());
+    	assertFalse(chatBox.setMessageHidden(3, true));
+    }
+    
+    @Test
+    void testOlderMessagesAreInsertedInOrder() {
+    	LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 0);
+    	chatBox.addMessage(new Message(5, 1, "newest", time, false, 5));
+    	chatBox.addMessage(new Message(2, 1, "older", time, false, 2));
+    	chatBox.addMessage(new Message(3, 1, "old", time, false, 3));
+    	assertEquals(List.of(2L, 3L, 5L), sequenceNumbers(chatBox.getMessages()));
+    	assertEquals(5, chatBox.getLastSequenceNumber());
+    }
+    
+    private static List<Long> sequenceNumbers(List<Message> messages) {
+    	return messages.stream().map(Message::getSequenceNumber).toList();
+    }
+
+    // The ChatBox class as clients built before participant IDs and the message list had it
+    private static final String BASELINE_CHATBOX = """
+    		package Common.ChatBox;
+    		import Common.User.User;
+    		import Common.Message.Message;
+    		import java.io.Serializable;
+    		import java.time.LocalDateTime;
+    		import java.util.*;
+    		public class ChatBox implements Serializable {
+    		    private static final long serialVersionUID = 1L;
+    		    private int chatBoxID;
+    		    private final String name;
+    		    private Collection<User> participants;
+    		    private final SortedSet<Message> messages;
+    		    private boolean isHidden;
+    		    LocalDateTime creationTime;
+    		    private static class SerializableComparator implements Comparator<Message>, Serializable {
+    		        private static final long serialVersionUID = 1L;
+    		        public int compare(Message m1, Message m2) {
+    		            return m1.getTimestamp().compareTo(m2.getTimestamp());
+    		        }
+    		    }
+    		    private ChatBox() {
+    		        this.name = null;
+    		        this.messages = null;
+    		    }
+    		    public Collection<User> getParticipants() {
+    		        return participants;
+    		    }
+    		    public SortedSet<Message> getMessages() {
+    		        return messages;
+    		    }
+    		}
+    		""";
+
+    @Test
+    void testLegacyStreamIsReadableByTheBaselineChatBox(@TempDir Path classes) throws Exception {
+    	ChatBox legacyChatBox = new ChatBox(List.of(user1, user2), "Legacy");
+    	LocalDateTime time = LocalDateTime.of(2024, 1, 1, 12, 0);
+    	legacyChatBox.addMessage(new Message(1, user1.getUserID(), "first", time, false, 1));
+    	legacyChatBox.addMessage(new Message(2, user2.getUserID(), "second", time.plusSeconds(1), false, 2));
+    	Map<Integer, User> users = Map.of(user1.getUserID(), user1, user2.getUserID(), user2);
+    	ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    	try (LegacyObjectOutputStream out = new LegacyObjectOutputStream(bytes, users::get)) {
+    		out.writeObject(legacyChatBox);
+    	}
 
+    	// Compile the baseline class and read the stream with it in place of the current one
+    	Path source = classes.resolve("Common/ChatBox/ChatBox.java");
+    	Files.createDirectories(source.getParent());
+    	Files.writeString(source, BASELINE_CHATBOX);
+    	String common = Path.of(User.class.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+    	assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null,
+    			"-cp", common, "-d", classes.toString(), source.toString()));
+    	try (URLClassLoader baseline = new URLClassLoader(new URL[] {classes.toUri().toURL()}, getClass().getClassLoader()) {
+    		@Override
+    		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    			if (!name.startsWith("Common.ChatBox.ChatBox")) {
+    				return super.loadClass(name, resolve);
+    			}
+    			synchronized (getClassLoadingLock(name)) {
+    				Class<?> loaded = findLoadedClass(name);
+    				return loaded != null ? loaded : findClass(name); // The baseline class, not the current one
+    			}
+    		}
+    	}; ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())) {
+    		@Override
+    		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+    			return Class.forName(desc.getName(), false, baseline);
+    		}
+    	}) {
+    		Object read = in.readObject();
+    		assertEquals(baseline, read.getClass().getClassLoader());
+    		Collection<?> readParticipants = (Collection<?>) read.getClass().getMethod("getParticipants").invoke(read);
+    		SortedSet<?> readMessages = (SortedSet<?>) read.getClass().getMethod("getMessages").invoke(read);
+    		assertEquals(Set.of("Sally", "Bob"),
+    				readParticipants.stream().map(user -> ((User) user).getUsername()).collect(Collectors.toSet()));
+    		assertNull(((User) readParticipants.iterator().next()).getPassword());
+    		assertEquals(List.of("first", "second"),
+    				readMessages.stream().map(message -> ((Message) message).getContent()).toList());
+    	}
+    }
+}
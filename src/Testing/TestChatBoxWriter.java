@@ -0,0 +1,76 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.jupiter.api.Test;
+
+import ServerApp.ChatBoxWriter.ChatBoxWriter;
+
+class TestChatBoxWriter {
+
+	@Test
+	void testChangesToOneChatBoxRunInOrderOnOneThread() {
+		ChatBoxWriter writer = new ChatBoxWriter(4);
+		List<Integer> applied = new CopyOnWriteArrayList<>();
+		List<Thread> threads = new CopyOnWriteArrayList<>();
+		List<CompletableFuture<Void>> changes = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			int value = i;
+			changes.add(writer.submit(6, () -> {
+				applied.add(value);
+				threads.add(Thread.currentThread());
+				return null;
+			}));
+		}
+		changes.forEach(ChatBoxWriter::join);
+		writer.close();
+		assertEquals(100, applied.size());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(i, applied.get(i));
+		}
+		assertEquals(1, threads.stream().distinct().count());
+		assertNotEquals(Thread.currentThread(), threads.get(0));
+	}
+
+	@Test
+	void testNestedChangeOnTheOwnerRunsInline() {
+		ChatBoxWriter writer = new ChatBoxWriter(2);
+		// Chatboxes 1 and 3 share a shard, so waiting for the nested change must not deadlock
+		int result = writer.call(1, () -> writer.call(3, () -> 42));
+		writer.close();
+		assertEquals(42, result);
+		assertEquals(writer.shardOf(1), writer.shardOf(3));
+	}
+
+	@Test
+	void testTaskRunsOnTheOwnerAfterTheStage() {
+		ChatBoxWriter writer = new ChatBoxWriter(2);
+		CompletableFuture<Void> stage = new CompletableFuture<>();
+		CompletableFuture<Thread> ran = new CompletableFuture<>();
+		writer.executeAfter(1, stage, () -> ran.complete(Thread.currentThread()));
+		assertFalse(ran.isDone());
+		Thread owner = writer.call(1, Thread::currentThread);
+		stage.complete(null);
+		assertEquals(owner, ran.join());
+		writer.close();
+	}
+
+	@Test
+	void testChangesAreRefusedOnceClosed() {
+		ChatBoxWriter writer = new ChatBoxWriter(2);
+		writer.close();
+		List<Thread> ran = new CopyOnWriteArrayList<>();
+		CompletableFuture<Void> change = writer.submit(1, () -> {
+			ran.add(Thread.currentThread());
+			return null;
+		});
+		assertThrows(RejectedExecutionException.class, () -> ChatBoxWriter.join(change));
+		assertTrue(ran.isEmpty());
+	}
+}
@@ -0,0 +1,79 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.Messages.SendChatLogChunk;
+import Common.User.User;
+import ServerApp.ChatLogExporter.ChatLogExporter;
+import ServerApp.MessageHandler.MessageHandler;
+import ServerApp.StorageManager.StorageManager;
+
+class TestChatLogExporter {
+	private static final int MESSAGES = 1200;
+
+	@TempDir
+	Path exportDirectory;
+
+	private MessageHandler msgHandler;
+	private ChatLogExporter exporter;
+	private int chatBoxID;
+
+	@BeforeEach
+	public void setUpExporter() {
+		msgHandler = new MessageHandler(new StorageManager(), new ConcurrentHashMap<>(), null);
+		exporter = new ChatLogExporter(msgHandler, exportDirectory);
+		User user1 = new User("user1", "pass");
+		User user2 = new User("user2", "pass");
+		ChatBox chatBox = msgHandler.createChatBox(List.of(user1, user2), "log");
+		chatBoxID = chatBox.getChatBoxID();
+		msgHandler.withChatBox(chatBoxID, box -> {
+			for (int i = 0; i < MESSAGES; i++) {
+				box.appendMessage(new Message(user1.getUserID(), "message " + i));
+			}
+			return null;
+		});
+	}
+
+	@Test
+	void testChunksCoverTheLogInBoundedParts() {
+		long cursor = 0;
+		int lines = 0;
+		int chunks = 0;
+		SendChatLogChunk chunk;
+		do {
+			chunk = exporter.readChunk(chatBoxID, cursor);
+			int chunkLines = chunk.chatLog().split("\n").length;
+			assertTrue(chunkLines <= ChatLogExporter.CHUNK_MESSAGES);
+			assertTrue(chunk.nextCursor() > cursor);
+			lines += chunkLines;
+			cursor = chunk.nextCursor();
+			chunks++;
+		} while (!chunk.complete());
+		assertEquals(MESSAGES, lines);
+		assertEquals(3, chunks);
+		assertNull(exporter.readChunk(-5, 0));
+	}
+
+	@Test
+	void testExportWritesTheWholeLog() throws IOException {
+		Path file = exporter.export(chatBoxID).join();
+		assertEquals(exportDirectory, file.getParent());
+		List<String> lines = Files.readAllLines(file);
+		assertEquals(MESSAGES, lines.size());
+		assertTrue(lines.get(MESSAGES - 1).endsWith("message " + (MESSAGES - 1)));
+		assertNull(exporter.export(-5).join());
+		exporter.close();
+	}
+}
@@ -0,0 +1,98 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import ServerApp.IdleReaper.IdleReaper;
+
+class TestIdleReaper {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	// A session whose activity is set by the test
+	private static class FakeSession implements IdleReaper.Session {
+		long lastActivity;
+		boolean active = true;
+		int pings;
+
+		public long getLastActivityNanos() {
+			return lastActivity;
+		}
+
+		public boolean isActive() {
+			return active;
+		}
+
+		public void sendPing(long nowNanos) {
+			pings++;
+		}
+
+		public void closeIdle() {
+			active = false;
+		}
+	}
+
+	@Test
+	void testQuietSessionIsPingedThenClosed() {
+		IdleReaper reaper = new IdleReaper(SECOND, 30 * SECOND, 90 * SECOND, 0);
+		FakeSession session = new FakeSession();
+		reaper.register(session);
+		reaper.expire(29 * SECOND);
+		assertEquals(0, session.pings);
+		reaper.expire(32 * SECOND);
+		assertEquals(1, session.pings);
+		reaper.expire(63 * SECOND);
+		assertEquals(2, session.pings);
+		assertTrue(session.active);
+		reaper.expire(92 * SECOND);
+		assertFalse(session.active);
+		assertEquals(1, reaper.getReapedCount());
+		assertEquals(0, reaper.getSessionCount());
+	}
+
+	@Test
+	void testActiveSessionIsKept() {
+		IdleReaper reaper = new IdleReaper(SECOND, 30 * SECOND, 90 * SECOND, 0);
+		FakeSession session = new FakeSession();
+		reaper.register(session);
+		for (long now = 0; now < 600 * SECOND; now += 10 * SECOND) {
+			session.lastActivity = now; // A message every ten seconds
+			reaper.expire(now);
+		}
+		assertTrue(session.active);
+		assertEquals(0, session.pings);
+		assertEquals(1, reaper.getSessionCount());
+	}
+
+	@Test
+	void testDeadlinesBeyondOneTurnOfTheWheel() {
+		// 512 slots of 10ms turn in about 5 seconds; the timeout is 20 seconds
+		IdleReaper reaper = new IdleReaper(SECOND / 100, 0, 20 * SECOND, 0);
+		FakeSession session = new FakeSession();
+		reaper.register(session);
+		reaper.expire(19 * SECOND);
+		assertTrue(session.active);
+		reaper.expire(21 * SECOND);
+		assertFalse(session.active);
+	}
+
+	@Test
+	void testManySessionsAndClosedSessionsAreDropped() {
+		IdleReaper reaper = new IdleReaper(SECOND, 0, 60 * SECOND, 0);
+		FakeSession[] sessions = new FakeSession[100_000];
+		for (int i = 0; i < sessions.length; i++) {
+			sessions[i] = new FakeSession();
+			sessions[i].lastActivity = i % 60 * SECOND;
+			reaper.register(sessions[i]);
+		}
+		sessions[0].active = false; // Logged out before its timeout
+		reaper.expire(90 * SECOND);
+		// Ticks up to 89s have ended: sessions last active in the first 30 seconds of each minute are due
+		assertEquals(49_990, reaper.getSessionCount());
+		assertEquals(50_009, reaper.getReapedCount()); // The logged out session is dropped, not reaped
+		assertFalse(sessions[29].active);
+		assertTrue(sessions[30].active);
+		assertFalse(new IdleReaper(SECOND, 0, 0, 0).isEnabled());
+	}
+}
@@ -0,0 +1,37 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import Common.User.User;
+import ServerApp.MembershipIndex.MembershipIndex;
+
+class TestMembershipIndex {
+
+	@Test
+	void testUpdateMovesParticipants() {
+		User alice = new User("alice", "pass");
+		User bob = new User("bob", "pass");
+		User carol = new User("carol", "pass");
+		MembershipIndex index = new MembershipIndex();
+		index.update(4, null, new int[] {alice.getUserID(), bob.getUserID()});
+		index.update(5, null, new int[] {bob.getUserID()});
+		assertEquals(Set.of(4, 5), index.getChatBoxIDs(bob.getUserID()));
+
+		index.update(4, new int[] {alice.getUserID(), bob.getUserID()}, new int[] {alice.getUserID(), carol.getUserID()});
+		assertTrue(index.isMember(alice.getUserID(), 4));
+		assertTrue(index.isMember(carol.getUserID(), 4));
+		assertFalse(index.isMember(bob.getUserID(), 4));
+		assertEquals(Set.of(5), index.getChatBoxIDs(bob.getUserID()));
+	}
+
+	@Test
+	void testUnknownUserHasNoChatBoxes() {
+		MembershipIndex index = new MembershipIndex();
+		assertTrue(index.getChatBoxIDs(99).isEmpty());
+		assertFalse(index.isMember(99, 1));
+	}
+}
@@ -38,7 +38,7 @@ class TestMessageHandler {
 		User user2=new User("user2", "pass");
 		chatbox.addParticipant(user1);
 		chatbox.addParticipant(user2);
-		List<User> participants =chatbox.getParticipantsList();
+		List<User> participants =List.of(user1, user2);
 		assertNotNull(msgHandler.createChatBox(participants, "chat1"));
 	}
 	@Test
@@ -48,7 +48,7 @@ class TestMessageHandler {
 	     ChatBox chatbox = new ChatBox();
 	     chatbox.addParticipant(user1);
 	     chatbox.addParticipant(user2);
-	     List<User> participants = chatbox.getParticipantsList();
+	     List<User> participants = List.of(user1, user2);
 	     ChatBox createdChatBox = msgHandler.createChatBox(participants, "chat1");
 	     int boxId = createdChatBox.getChatBoxID();
 	     assertEquals(createdChatBox, msgHandler.getChatBox(boxId));
@@ -61,7 +61,7 @@ class TestMessageHandler {
         ChatBox chatbox = new ChatBox();
         chatbox.addParticipant(user1);
         chatbox.addParticipant(user2);
-        List<User> participants = chatbox.getParticipantsList();
+        List<User> participants = List.of(user1, user2);
         ChatBox createdChatBox = msgHandler.createChatBox(participants, "chat1");
         int boxId = createdChatBox.getChatBoxID();
         Message msg = new Message(1, "This is test msg");
@@ -76,7 +76,7 @@ class TestMessageHandler {
 	    ChatBox chatbox = new ChatBox();
 	    chatbox.addParticipant(user1);
 	    chatbox.addParticipant(user2);
-	    List<User> participants = chatbox.getParticipantsList();
+	    List<User> participants = List.of(user1, user2);
 	    msgHandler.createChatBox(participants, "chat1");
 	    int userId = user1.getUserID();
 	    assertTrue(msgHandler.sendMessageToUser(userId, "Hi There"));
@@ -88,7 +88,7 @@ class TestMessageHandler {
 	     ChatBox chatbox = new ChatBox();
 	     chatbox.addParticipant(user1);
 	     chatbox.addParticipant(user2);
-	     List<User> participants = chatbox.getParticipantsList();
+	     List<User> participants = List.of(user1, user2);
 	     ChatBox createdChatBox = msgHandler.createChatBox(participants, "chat1");
 	     int boxId = createdChatBox.getChatBoxID();
 	     int userId = user1.getUserID();
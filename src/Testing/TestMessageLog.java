@@ -0,0 +1,92 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ServerApp.StorageManager.MessageLog;
+
+class TestMessageLog {
+
+	@TempDir
+	Path directory;
+
+	// Appends one MESSAGE record per content string and closes the log
+	private void appendAll(String... contents) throws IOException {
+		MessageLog log = new MessageLog(directory);
+		for (String content : contents) {
+			log.append(MessageLog.MESSAGE, 7, out -> out.writeUTF(content));
+		}
+		log.close();
+	}
+
+	// Opens a new log and returns the contents of the replayed records
+	private List<String> replayAll() throws IOException {
+		List<String> replayed = new ArrayList<>();
+		MessageLog log = new MessageLog(directory);
+		log.replay((type, chatBoxID, payload) -> {
+			assertEquals(MessageLog.MESSAGE, type);
+			assertEquals(7, chatBoxID);
+			replayed.add(payload.readUTF());
+		});
+		log.close();
+		return replayed;
+	}
+
+	@Test
+	void testReplayReturnsRecordsInOrder() throws IOException {
+		appendAll("first", "second");
+		appendAll("third");
+		assertEquals(List.of("first", "second", "third"), replayAll());
+	}
+
+	@Test
+	void testReplayStopsAtTruncatedRecord() throws IOException {
+		appendAll("kept", "torn");
+		Path segment;
+		try (var segments = Files.list(directory)) {
+			segment = segments.findFirst().orElseThrow();
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.setLength(file.length() - 2); // Simulates a crash in the middle of a write
+		}
+		assertEquals(List.of("kept"), replayAll());
+	}
+
+	@Test
+	void testReplayStopsAtGarbageLength() throws IOException {
+		appendAll("kept");
+		Path segment;
+		try (var segments = Files.list(directory)) {
+			segment = segments.findFirst().orElseThrow();
+		}
+		try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+			file.seek(file.length());
+			file.writeInt(Integer.MAX_VALUE - 8); // A torn tail whose length field is garbage
+			file.writeInt(0);
+		}
+		assertEquals(List.of("kept"), replayAll());
+	}
+
+	@Test
+	void testCompactedSegmentsAreNotReplayed() throws IOException {
+		appendAll("old");
+		MessageLog log = new MessageLog(directory);
+		log.append(MessageLog.MESSAGE, 7, out -> out.writeUTF("new"));
+		long covered = log.rotate();
+		assertEquals(2, log.deleteSegmentsBefore(covered));
+		List<String> replayed = new ArrayList<>();
+		log.replay(covered, (type, chatBoxID, payload) -> replayed.add(payload.readUTF()));
+		log.close();
+		assertTrue(replayed.isEmpty());
+		assertEquals(List.of(covered), log.listSegments());
+	}
+}
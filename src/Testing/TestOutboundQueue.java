@@ -0,0 +1,57 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+import ServerApp.Transport.OutboundQueue;
+import ServerApp.Transport.SlowConsumerPolicy;
+
+class TestOutboundQueue {
+
+	@Test
+	void testFramesAndBytesAreBounded() {
+		LongAdder overflows = new LongAdder();
+		OutboundQueue queue = new OutboundQueue(2, 10, SlowConsumerPolicy.DROP, overflows);
+		assertTrue(queue.offer(new byte[20])); // An empty queue takes one frame, however large
+		assertFalse(queue.offer(new byte[1]));
+		assertEquals(1, overflows.sum());
+		queue.poll(1);
+		assertTrue(queue.offer(new byte[4]));
+		assertTrue(queue.offer(new byte[4]));
+		assertFalse(queue.offer(new byte[1])); // Two frames already queued
+		assertEquals(2, queue.getDepth());
+		assertEquals(8, queue.getQueuedBytes());
+		assertEquals(2, overflows.sum());
+		assertEquals(SlowConsumerPolicy.DROP, queue.getPolicy());
+	}
+
+	@Test
+	void testBatchesKeepTheOrderOfFrames() throws InterruptedException {
+		OutboundQueue queue = new OutboundQueue();
+		for (byte i = 0; i < 5; i++) {
+			queue.offer(new byte[] { i });
+		}
+		List<byte[]> batch = queue.take(3);
+		assertEquals(3, batch.size());
+		assertEquals(0, batch.get(0)[0]);
+		assertEquals(2, batch.get(2)[0]);
+		assertEquals(2, queue.poll(10).size());
+		assertTrue(queue.poll(10).isEmpty());
+		assertEquals(5, queue.getHighWaterMark());
+	}
+
+	@Test
+	void testClosedQueueIsDrainedThenEmpty() throws InterruptedException {
+		OutboundQueue queue = new OutboundQueue();
+		queue.offer(new byte[] { 1 });
+		queue.close();
+		assertFalse(queue.offer(new byte[] { 2 }));
+		assertEquals(1, queue.take(10).size());
+		assertTrue(queue.take(10).isEmpty()); // Does not wait once closed
+		assertEquals(SlowConsumerPolicy.DISCONNECT, SlowConsumerPolicy.parse("disconnect"));
+	}
+}
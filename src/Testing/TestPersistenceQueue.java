@@ -0,0 +1,71 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import ServerApp.PersistenceQueue.DurabilityMode;
+import ServerApp.PersistenceQueue.PersistenceQueue;
+
+class TestPersistenceQueue {
+
+	@Test
+	void testSyncModeWritesOnCallerThread() {
+		PersistenceQueue queue = new PersistenceQueue();
+		List<Thread> writers = new CopyOnWriteArrayList<>();
+		assertTrue(PersistenceQueue.await(queue.submit("key", () -> {
+			writers.add(Thread.currentThread());
+			return null;
+		})));
+		assertEquals(List.of(Thread.currentThread()), writers);
+	}
+
+	@Test
+	void testBatchCoalescesWritesAndSyncsOnce() {
+		// A long batch window so every submission lands in the same batch
+		PersistenceQueue queue = new PersistenceQueue(DurabilityMode.ASYNC, 200, 1000);
+		List<Integer> written = new CopyOnWriteArrayList<>();
+		AtomicInteger syncs = new AtomicInteger();
+		PersistenceQueue.Syncable log = syncs::incrementAndGet;
+		for (int i = 0; i < 10; i++) {
+			int value = i;
+			queue.submit("file", () -> {
+				written.add(value);
+				return log;
+			});
+			queue.submit(null, () -> log);
+		}
+		queue.close();
+		assertEquals(List.of(9), written); // Only the latest write of "file"
+		assertEquals(1, syncs.get());
+		assertEquals(1, queue.getBatchCount());
+	}
+
+	@Test
+	void testFailedWriteCompletesExceptionally() {
+		PersistenceQueue queue = new PersistenceQueue(DurabilityMode.ASYNC, 0, 1);
+		assertFalse(PersistenceQueue.await(queue.submit("key", () -> {
+			throw new java.io.IOException("disk full");
+		})));
+		queue.close();
+	}
+
+	@Test
+	void testWriteFileReplacesTheWholeFile(@TempDir Path directory) throws IOException {
+		Path file = directory.resolve("42");
+		PersistenceQueue.writeFile(file, new byte[] { 1, 2, 3, 4 });
+		PersistenceQueue.writeFile(file, new byte[] { 5 });
+		assertArrayEquals(new byte[] { 5 }, Files.readAllBytes(file));
+		try (var files = Files.list(directory)) {
+			assertEquals(List.of(file), files.toList()); // No temporary file left behind
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import Common.MessageType;
+import Common.LatencyHistogram.LatencyHistogram;
+import ServerApp.Metrics.RequestMetrics;
+
+class TestRequestMetrics {
+
+	@Test
+	void testPercentilesAreWithinThePrecisionOfTheHistogram() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100_000; value++) {
+			histogram.record(value * 1_000); // 1us to 100ms
+		}
+		assertEquals(100_000, histogram.getCount());
+		assertEquals(100_000_000, histogram.getMax());
+		assertEquals(50_000_500, Math.round(histogram.getMean()));
+		assertWithinPrecision(50_000_000, histogram.getValueAtPercentile(50));
+		assertWithinPrecision(99_000_000, histogram.getValueAtPercentile(99));
+		assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+	}
+
+	// A bucket spans at most 1/32 of its values
+	private static void assertWithinPrecision(long expected, long actual) {
+		assertTrue(Math.abs(expected - actual) <= expected / 32, "expected about " + expected + " got " + actual);
+	}
+
+	@Test
+	void testSmallAndHugeValues() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99)); // Nothing recorded
+		histogram.record(-5);
+		histogram.record(7);
+		assertEquals(0, histogram.getValueAtPercentile(50));
+		assertEquals(7, histogram.getValueAtPercentile(100)); // Small values are exact
+		histogram.record(Long.MAX_VALUE);
+		assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+	}
+
+	@Test
+	void testStagesAreCountedPerMessageType() {
+		RequestMetrics metrics = new RequestMetrics();
+		assertNull(metrics.get(MessageType.LOGIN));
+		metrics.recordRequest(MessageType.SEND_MESSAGE, 2_000, 10_000);
+		metrics.recordRequest(MessageType.SEND_MESSAGE, -1, 20_000); // Decode not measured
+		metrics.recordPersist(MessageType.SEND_MESSAGE, 1_000_000);
+		metrics.recordFanOut(MessageType.SEND_MESSAGE, 50_000, 3);
+		RequestMetrics.TypeMetrics sends = metrics.get(MessageType.SEND_MESSAGE);
+		assertEquals(2, sends.getRequests());
+		assertEquals(3, sends.getDeliveries());
+		assertEquals(1, sends.getStage(RequestMetrics.Stage.DECODE).getCount());
+		assertEquals(2, sends.getStage(RequestMetrics.Stage.HANDLE).getCount());
+		assertEquals(1, sends.getStage(RequestMetrics.Stage.PERSIST).getCount());
+		assertEquals(1, sends.getStage(RequestMetrics.Stage.FAN_OUT).getCount());
+		String report = metrics.report();
+		assertTrue(report.contains("SEND_MESSAGE requests=2"));
+		assertTrue(report.contains("fan-out"));
+		assertFalse(report.contains("LOGIN"));
+	}
+}
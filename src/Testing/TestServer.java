@@ -2,9 +2,12 @@ package Testing;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.util.List;
+
 import org.junit.jupiter.api.Test;
 
 import ServerApp.Server.Server;
+import ServerApp.Server.ServerConfig;
 
 class TestServer {
 	private Server server;
@@ -16,4 +19,18 @@ class TestServer {
 		assertNotNull(server);
 	}
 
+	@Test
+	void testStartupReportHasLoadPhases() {
+		server=new Server(new ServerConfig());
+		assertTrue(server.getStartupReport().getPhaseMillis().keySet()
+				.containsAll(List.of("load users", "load chatboxes", "build indexes")));
+	}
+
+	@Test
+	void testMetricsReportHasSessionLookups() {
+		server=new Server(new ServerConfig());
+		server.getSessionRegistry().getSessions(1);
+		assertTrue(server.getMetricsReport().contains("session lookups=1 avg="));
+	}
+
 }
@@ -0,0 +1,49 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ServerApp.ClientHandler.ClientHandler;
+import ServerApp.SessionRegistry.SessionRegistry;
+
+class TestSessionRegistry {
+	private SessionRegistry registry;
+	private ClientHandler firstSession;
+	private ClientHandler secondSession;
+
+	@BeforeEach
+	void setUpRegistry() {
+		registry = new SessionRegistry();
+		firstSession = new ClientHandler(null, null, null, null);
+		secondSession = new ClientHandler(null, null, null, null);
+	}
+
+	@Test
+	void testMultipleSessionsPerUser() {
+		registry.register(1, firstSession);
+		registry.register(1, secondSession);
+		assertEquals(2, registry.getSessions(1).size());
+		assertTrue(registry.getSessions(2).isEmpty());
+	}
+
+	@Test
+	void testUnregisterRemovesUserWhenLastSessionCloses() {
+		registry.register(1, firstSession);
+		registry.register(1, secondSession);
+		registry.unregister(1, firstSession);
+		assertTrue(registry.isOnline(1));
+		registry.unregister(1, secondSession);
+		assertFalse(registry.isOnline(1));
+		assertEquals(0, registry.getOnlineUserCount());
+	}
+
+	@Test
+	void testLookupsAreCounted() {
+		registry.getSessions(1);
+		registry.getSessions(2);
+		assertEquals(2, registry.getLookupCount());
+		assertTrue(registry.getAverageLookupNanos() >= 0);
+	}
+}
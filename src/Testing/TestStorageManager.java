@@ -2,11 +2,19 @@ package Testing;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Path;
+import java.util.List;
+
+import ServerApp.PersistenceQueue.PersistenceQueue;
+import ServerApp.StorageManager.PersistenceMode;
 import ServerApp.StorageManager.StorageManager;
 import Common.ChatBox.ChatBox;
+import Common.Message.Message;
+import Common.User.User;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class TestStorageManager {
     private StorageManager storageManager;
@@ -25,5 +33,71 @@ class TestStorageManager {
         assertNotNull(retrievedChatBox);
         assertEquals(chatBox.getChatBoxID(), retrievedChatBox.getChatBoxID());
     }
-    
+
+    @Test
+    void testEvictedChatBoxIsReloaded() {
+        StorageManager bounded = new StorageManager(PersistenceMode.SNAPSHOT, 0, new PersistenceQueue(), 1);
+        ChatBox first = new ChatBox("First");
+        first.addMessage(new Message(1, "hello"));
+        bounded.storeChatBox(first);
+        bounded.storeChatBox(new ChatBox("Second")); // Evicts "First"
+        assertEquals(1, bounded.getResidentCount());
+
+        ChatBox reloaded = bounded.retrieveChatBox(first.getChatBoxID());
+        assertNotSame(first, reloaded);
+        assertEquals(1, reloaded.getMessages().size());
+    }
+
+    @Test
+    void testChatBoxesOfUserComeFromMetadata() {
+        User user = new User("member", "pass");
+        ChatBox chatBox = new ChatBox(List.of(user), "Members");
+        chatBox.addMessage(new Message(user.getUserID(), "hello"));
+        storageManager.storeChatBox(chatBox);
+
+        ChatBox listed = storageManager.getEmptyChatBoxes(user).stream()
+                .filter(c -> c.getChatBoxID() == chatBox.getChatBoxID()).findFirst().orElseThrow();
+        assertEquals("Members", listed.getName());
+        assertTrue(listed.getMessages().isEmpty());
+    }
+
+    @Test
+    void testChatBoxesByActivityFollowNewMessages() {
+        ChatBox older = new ChatBox("Older");
+        ChatBox newer = new ChatBox("Newer");
+        storageManager.storeChatBox(older);
+        storageManager.storeChatBox(newer);
+        Message message = new Message(1, "latest");
+        older.appendMessage(message);
+        storageManager.recordMessage(older, message).join();
+
+        List<Integer> order = storageManager.getChatBoxesByActivity(0, storageManager.getChatBoxCount()).stream()
+                .map(metadata -> metadata.chatBoxID()).toList();
+        assertEquals(storageManager.getChatBoxCount(), order.size());
+        assertTrue(order.indexOf(older.getChatBoxID()) < order.indexOf(newer.getChatBoxID()));
+        assertEquals(1, storageManager.getChatBoxesByActivity(1, 1).size());
+    }
+
+    @Test
+    void testHiddenMessageIsReplayedBySequenceNumber(@TempDir Path directory) {
+        String chatBoxes = directory.resolve("chatboxes").toString();
+        StorageManager logged = new StorageManager(PersistenceMode.LOG, 0, new PersistenceQueue(), 16, chatBoxes);
+        ChatBox chatBox = new ChatBox("Hidden");
+        logged.storeChatBox(chatBox);
+        Message first = new Message(9, 1, "first", null, false, 0);
+        Message second = new Message(9, 1, "second", null, false, 0); // Same messageID, as after a restart
+        chatBox.appendMessage(first);
+        logged.recordMessage(chatBox, first).join();
+        chatBox.appendMessage(second);
+        logged.recordMessage(chatBox, second).join();
+        chatBox.setMessageHidden(2, true);
+        logged.recordMessageHidden(chatBox, 2, true).join();
+        logged.close();
+
+        StorageManager reopened = new StorageManager(PersistenceMode.LOG, 0, new PersistenceQueue(), 16, chatBoxes);
+        ChatBox replayed = reopened.retrieveChatBox(chatBox.getChatBoxID());
+        assertFalse(replayed.findMessageBySequenceNumber(1).isHidden());
+        assertTrue(replayed.findMessageBySequenceNumber(2).isHidden());
+        reopened.close();
+    }
 }
@@ -12,6 +12,7 @@ class TestUser {
 	
 	@BeforeAll
 	static public void createConstructor() {
+		User.setUserIdGenerator(0); // IDs count from 1 again, whatever ran before in this JVM
 		user=new User("user", "user123");
 	}
 	@Test
@@ -0,0 +1,38 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import ServerApp.UserChangeLog.UserChangeLog;
+
+class TestUserChangeLog {
+
+	@Test
+	void testChangesSinceAVersion() {
+		UserChangeLog changes = new UserChangeLog(8);
+		assertEquals(0, changes.getVersion());
+		assertTrue(changes.changedSince(0).isEmpty());
+		changes.record(5);
+		long afterFirst = changes.record(6);
+		changes.record(5);
+		assertEquals(3, changes.getVersion());
+		assertEquals(List.of(6, 5), List.copyOf(changes.changedSince(1)));
+		assertEquals(List.of(5), List.copyOf(changes.changedSince(afterFirst)));
+		assertTrue(changes.changedSince(3).isEmpty());
+	}
+
+	@Test
+	void testTooOldOrUnknownVersionsNeedAFullSync() {
+		UserChangeLog changes = new UserChangeLog(2);
+		for (int userID = 1; userID <= 5; userID++) {
+			changes.record(userID);
+		}
+		assertNull(changes.changedSince(2)); // Changes 3 to 5 are needed, only 4 and 5 are kept
+		assertEquals(List.of(4, 5), List.copyOf(changes.changedSince(3)));
+		assertNull(changes.changedSince(9)); // A version this log never reached
+		assertNotEquals(0, changes.getEpoch());
+	}
+}
@@ -0,0 +1,75 @@
+package Testing;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import ServerApp.Server.Server;
+import ServerApp.Server.ServerConfig;
+
+// Idle connection load test for the virtual thread mode.
+// Run with -Dloadtest.connections=50000 (and a raised ulimit -n) for the full-size test.
+class TestVirtualThreadServer {
+	private static final int CONNECTIONS = Integer.getInteger("loadtest.connections", 2000);
+
+	private Server server;
+	private Thread serverThread;
+	private final List<Socket> sockets = new ArrayList<>();
+
+	@BeforeEach
+	public void startServer() throws InterruptedException {
+		ServerConfig config = new ServerConfig();
+		config.setPort(0);
+		config.setVirtualThreads(true);
+		server = new Server(config);
+		serverThread = new Thread(() -> server.startServer(0));
+		serverThread.start();
+		while (server.getLocalPort() == -1) {
+			Thread.sleep(10);
+		}
+	}
+
+	@AfterEach
+	public void stopServer() throws Exception {
+		for (Socket socket : sockets) {
+			socket.close();
+		}
+		server.stopServer();
+		serverThread.join(5000);
+	}
+
+	@Test
+	void testIdleConnectionsDoNotNeedPlatformThreads() throws Exception {
+		int platformThreadsBefore = Thread.getAllStackTraces().size();
+		long start = System.nanoTime();
+		for (int i = 0; i < CONNECTIONS; i++) {
+			Socket socket = new Socket("127.0.0.1", server.getLocalPort());
+			sockets.add(socket);
+			// Complete the object stream handshake so each handler is parked in readObject()
+			new ObjectOutputStream(socket.getOutputStream()).flush();
+			new ObjectInputStream(socket.getInputStream());
+		}
+		while (server.getClientHandlers().size() < CONNECTIONS) {
+			Thread.sleep(10);
+		}
+		long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+		// getAllStackTraces() only reports platform threads, so it stays flat in virtual thread mode
+		int platformThreadsAfter = Thread.getAllStackTraces().size();
+		Runtime runtime = Runtime.getRuntime();
+		System.out.println(CONNECTIONS + " idle connections in " + elapsedMillis + " ms, platform threads "
+				+ platformThreadsBefore + " -> " + platformThreadsAfter + ", heap used "
+				+ (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024) + " MB");
+
+		assertEquals(CONNECTIONS, server.getClientHandlers().size());
+		assertTrue(platformThreadsAfter - platformThreadsBefore < 2 * Runtime.getRuntime().availableProcessors() + 16);
+	}
+}